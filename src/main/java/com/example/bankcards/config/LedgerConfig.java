@@ -0,0 +1,42 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.ledger.JdbcLedgerStore;
+import com.example.bankcards.ledger.LedgerEngine;
+import com.example.bankcards.ledger.TransferJournal;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.TransferRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Configuration
+@ConditionalOnProperty(name = "app.transfer.concurrency-mode", havingValue = "LEDGER")
+public class LedgerConfig {
+
+    @Bean(destroyMethod = "close")
+    public LedgerEngine ledgerEngine(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     TransferRepository transferRepository,
+                                     LedgerEntryRepository ledgerEntryRepository,
+                                     @Value("${app.transfer.ledger.journal-path:data/transfer-journal.dat}") String journalPath,
+                                     @Value("${app.transfer.ledger.journal-size-mb:64}") int journalSizeMb) throws IOException {
+        Path path = Path.of(journalPath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        TransferJournal journal = new TransferJournal(path, journalSizeMb * 1024 * 1024);
+        LedgerEngine ledgerEngine = new LedgerEngine(
+                new JdbcLedgerStore(jdbcTemplate, new TransactionTemplate(transactionManager),
+                        transferRepository, ledgerEntryRepository), journal);
+        ledgerEngine.recover();
+        return ledgerEngine;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.annotation.EnableRetry;
+
+@Configuration
+@EnableRetry
+public class RetryConfig {
+
+    @Bean
+    public RetryListener transferRetryListener(MeterRegistry meterRegistry,
+                                               @Value("${app.transfer.concurrency-mode:PESSIMISTIC}") String mode) {
+        String modeTag = mode.toLowerCase();
+        return new RetryListener() {
+            @Override
+            public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+                if (throwable instanceof OptimisticLockingFailureException) {
+                    meterRegistry.counter("transfer.conflicts", "mode", modeTag, "type", "optimistic").increment();
+                } else if (throwable instanceof PessimisticLockingFailureException) {
+                    meterRegistry.counter("transfer.conflicts", "mode", modeTag, "type", "pessimistic").increment();
+                }
+            }
+
+            @Override
+            public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+                int failedAttempts = context.getRetryCount();
+                int retries = throwable == null ? failedAttempts : failedAttempts - 1;
+                if (retries > 0) {
+                    meterRegistry.counter("transfer.retries", "mode", modeTag).increment(retries);
+                }
+                if (throwable instanceof OptimisticLockingFailureException) {
+                    meterRegistry.counter("transfer.retries.exhausted", "mode", modeTag).increment();
+                }
+            }
+        };
+    }
+}
@@ -3,12 +3,14 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.AuthRequest;
 import com.example.bankcards.dto.AuthResponse;
+import com.example.bankcards.dto.RefreshTokenRequest;
 import com.example.bankcards.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
@@ -18,7 +20,7 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
-@Tag(name = "Аутентификация", description = "Методы для входа и регистрации пользователей")
+@Tag(name = "Аутентификация", description = "Методы для входа, регистрации, обновления токенов и выхода пользователей")
 public class AuthController {
 
     private final AuthService authService;
@@ -26,29 +28,31 @@ public class AuthController {
     @PostMapping("/login")
     @Operation(
             summary = "Вход в систему",
-            description = "Авторизует пользователя и возвращает JWT токен. " +
+            description = "Авторизует пользователя и возвращает JWT и refresh токены. " +
                     "Токен также добавляется в заголовок `Authorization`.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Успешная авторизация",
                             content = @Content(schema = @Schema(implementation = AuthResponse.class))),
-                    @ApiResponse(responseCode = "401", description = "Неверный логин или пароль")
+                    @ApiResponse(responseCode = "401", description = "Неверный логин или пароль"),
+                    @ApiResponse(responseCode = "429", description = "Вход временно заблокирован после неудачных попыток")
             }
     )
     public ResponseEntity<AuthResponse> login(@io.swagger.v3.oas.annotations.parameters.RequestBody(
             description = "Данные для входа (логин и пароль)",
             required = true,
-            content = @Content(schema = @Schema(implementation = AuthRequest.class)))@RequestBody @Valid AuthRequest authRequest) {
+            content = @Content(schema = @Schema(implementation = AuthRequest.class)))@RequestBody @Valid AuthRequest authRequest,
+                                              HttpServletRequest request) {
 
-        String token = authService.login(authRequest);
+        AuthResponse tokens = authService.login(authRequest, request.getRemoteAddr());
         return ResponseEntity.ok()
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                .body(new AuthResponse(token));
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens.getToken())
+                .body(tokens);
     }
 
     @PostMapping("/register")
     @Operation(
             summary = "Регистрация нового пользователя",
-            description = "Создает нового пользователя и возвращает JWT токен. " +
+            description = "Создает нового пользователя и возвращает JWT и refresh токены. " +
                     "Токен также добавляется в заголовок `Authorization`.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Пользователь успешно зарегистрирован",
@@ -60,9 +64,48 @@ public class AuthController {
             description = "Данные для регистрации (логин и пароль)",
             required = true,
             content = @Content(schema = @Schema(implementation = AuthRequest.class)))@RequestBody @Valid AuthRequest authRequest) {
-        String token = authService.register(authRequest);
+        AuthResponse tokens = authService.register(authRequest);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens.getToken())
+                .body(tokens);
+    }
+
+    @PostMapping("/refresh")
+    @Operation(
+            summary = "Обновление токенов",
+            description = "Обменивает refresh токен на новую пару JWT и refresh токенов без проверки пароля. " +
+                    "Refresh токен одноразовый: повторное использование отзывает все refresh токены пользователя.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Токены обновлены",
+                            content = @Content(schema = @Schema(implementation = AuthResponse.class))),
+                    @ApiResponse(responseCode = "401", description = "Refresh токен невалиден, просрочен или уже использован")
+            }
+    )
+    public ResponseEntity<AuthResponse> refresh(@io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "Refresh токен",
+            required = true,
+            content = @Content(schema = @Schema(implementation = RefreshTokenRequest.class)))@RequestBody @Valid RefreshTokenRequest request) {
+        AuthResponse tokens = authService.refresh(request.getRefreshToken());
         return ResponseEntity.ok()
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                .body(new AuthResponse(token));
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens.getToken())
+                .body(tokens);
+    }
+
+    @PostMapping("/logout")
+    @Operation(
+            summary = "Выход из системы",
+            description = "Отзывает JWT токен из заголовка `Authorization` до истечения его срока и удаляет переданный refresh токен.",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Токены отозваны"),
+                    @ApiResponse(responseCode = "401", description = "JWT токен невалиден или уже отозван")
+            }
+    )
+    public ResponseEntity<Void> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                       @RequestBody(required = false) RefreshTokenRequest request) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring("Bearer ".length())
+                : null;
+        authService.logout(accessToken, request == null ? null : request.getRefreshToken());
+        return ResponseEntity.noContent().build();
     }
 }
@@ -2,11 +2,14 @@ package com.example.bankcards.controller;
 
 
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardLedgerDto;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UpdateCardRequest;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.service.CardService;
 import com.example.bankcards.util.CardNumberUtils;
 import io.swagger.v3.oas.annotations.Operation;
@@ -19,13 +22,14 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -34,6 +38,8 @@ import java.util.Map;
 @RequiredArgsConstructor
 @Tag(name = "Карты", description = "Методы управления банковскими картами")
 public class CardController {
+    private static final int MAX_LEDGER_PAGE_SIZE = 100;
+
     private final CardService cardService;
 
 
@@ -75,6 +81,23 @@ public class CardController {
         return ResponseEntity.ok(cardService.getAllCards(pageable, cardStatus, ownerUsername));
     }
 
+    @GetMapping("/all/slice")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+            summary = "Получить список всех карт без подсчета общего количества",
+            description = "Возвращает страницу карт без запроса COUNT(*). По запросу добавляет приблизительное " +
+                    "общее количество по статистике БД. Доступно только для администратора."
+    )
+    public ResponseEntity<SliceDto<CardDto>> getAllCardsSlice(
+            Pageable pageable,
+            @Parameter(description = "Статус карты", example = "ACTIVE") @RequestParam(name = "status", required = false) String cardStatus,
+            @Parameter(description = "Имя владельца карты") @RequestParam(name = "username", required = false) String ownerUsername,
+            @Parameter(description = "Вернуть приблизительное общее количество по статистике БД")
+            @RequestParam(name = "estimateTotal", defaultValue = "false") boolean estimateTotal) {
+
+        return ResponseEntity.ok(cardService.getAllCardsSlice(pageable, cardStatus, ownerUsername, estimateTotal));
+    }
+
     @GetMapping("/my")
     @Operation(
             summary = "Получить свои карты",
@@ -82,10 +105,9 @@ public class CardController {
     )
     public ResponseEntity<Page<CardDto>> getMyCards(
             Pageable pageable,
-            @Parameter(description = "Статус карты", example = "BLOCKED") @RequestParam(name = "status", required = false) String cardStatus,
-            Authentication authentication) {
+            @Parameter(description = "Статус карты", example = "BLOCKED") @RequestParam(name = "status", required = false) String cardStatus) {
 
-        return ResponseEntity.ok(cardService.getMyCards(pageable, cardStatus, authentication.getName()));
+        return ResponseEntity.ok(cardService.getMyCards(pageable, cardStatus));
 
     }
 
@@ -106,20 +128,42 @@ public class CardController {
     @GetMapping("/{cardId}/balance")
     @Operation(
             summary = "Получить баланс карты",
-            description = "Возвращает текущий баланс по карте."
+            description = "Возвращает текущий баланс по карте или баланс на указанный момент времени по выписке."
     )
-    public ResponseEntity<BigDecimal> getCardBalance(@Parameter(description = "ID карты", example = "15") @PathVariable(name = "cardId") Long cardId) {
+    public ResponseEntity<BigDecimal> getCardBalance(@Parameter(description = "ID карты", example = "15") @PathVariable(name = "cardId") Long cardId,
+                                                     @Parameter(description = "Момент времени, на который нужен баланс", example = "2025-08-15T14:30:00")
+                                                     @RequestParam(name = "at", required = false)
+                                                     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        if (at != null) {
+            return ResponseEntity.ok(cardService.getCardBalanceAt(cardId, at));
+        }
         return ResponseEntity.ok(cardService.getCardBalance(cardId));
     }
 
+    @GetMapping("/{cardId}/ledger")
+    @Operation(
+            summary = "Получить выписку по карте",
+            description = "Возвращает проводки по карте от новых к старым. Следующая страница запрашивается " +
+                    "с параметром before из ответа предыдущей."
+    )
+    public ResponseEntity<CardLedgerDto> getCardLedger(@Parameter(description = "ID карты", example = "15") @PathVariable(name = "cardId") Long cardId,
+                                                       @Parameter(description = "Вернуть проводки с id меньше указанного", example = "35")
+                                                       @RequestParam(name = "before", required = false) Long before,
+                                                       @Parameter(description = "Размер страницы, от 1 до " + MAX_LEDGER_PAGE_SIZE, example = "20")
+                                                       @RequestParam(name = "size", defaultValue = "20") int size) {
+        if (size < 1 || size > MAX_LEDGER_PAGE_SIZE) {
+            throw new BadRequestException("Размер страницы должен быть от 1 до " + MAX_LEDGER_PAGE_SIZE);
+        }
+        return ResponseEntity.ok(cardService.getCardLedger(cardId, before, size));
+    }
+
     @PatchMapping("/{cardId}/block")
     @Operation(
             summary = "Заблокировать карту",
             description = "Блокирует карту пользователя."
     )
-    public ResponseEntity<CardDto> blockCard(@Parameter(description = "ID карты", example = "12") @PathVariable(name = "cardId") Long cardId,
-                                             Authentication authentication) {
-        return ResponseEntity.ok(cardService.blockUserCard(cardId, authentication.getName()));
+    public ResponseEntity<CardDto> blockCard(@Parameter(description = "ID карты", example = "12") @PathVariable(name = "cardId") Long cardId) {
+        return ResponseEntity.ok(cardService.blockUserCard(cardId));
     }
 
     @PatchMapping("/{cardId}")
@@ -1,10 +1,22 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.SliceDto;
+import com.example.bankcards.dto.TransferBatchResult;
+import com.example.bankcards.dto.TransferCursorPageDto;
 import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.dto.TransferStatsDto;
+import com.example.bankcards.entity.TransferStatus;
 import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.service.StatsGranularity;
+import com.example.bankcards.service.TransferBatchService;
+import com.example.bankcards.service.TransferExportFormat;
+import com.example.bankcards.service.TransferExportService;
 import com.example.bankcards.service.TransferService;
+import com.example.bankcards.service.TransferStatsService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,11 +25,23 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 
 @RestController
@@ -26,26 +50,89 @@ import java.util.List;
 @Tag(name = "Переводы", description = "Методы для создания и получения переводов")
 public class TransferController {
 
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final String RESPOND_ASYNC = "respond-async";
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
     private final TransferService transferService;
+    private final TransferBatchService transferBatchService;
+    private final TransferExportService transferExportService;
+    private final TransferStatsService transferStatsService;
 
     @PostMapping()
     @Operation(
             summary = "Создать перевод",
             description = "Создает новый перевод между картами. " +
-                    "Пользователь должен быть авторизован.",
+                    "Пользователь должен быть авторизован. С заголовком Prefer: respond-async перевод " +
+                    "ставится в очередь на проведение, его статус можно получить по id.",
             responses = {
                     @ApiResponse(responseCode = "201", description = "Перевод успешно создан",
                             content = @Content(schema = @Schema(implementation = TransferDto.class))),
+                    @ApiResponse(responseCode = "202", description = "Перевод принят в обработку",
+                            content = @Content(schema = @Schema(implementation = TransferDto.class))),
                     @ApiResponse(responseCode = "400", description = "Некорректные данные перевода"),
                     @ApiResponse(responseCode = "401", description = "Пользователь не авторизован"),
-                    @ApiResponse(responseCode = "403", description = "Нет доступа для выполнения перевода")
+                    @ApiResponse(responseCode = "403", description = "Нет доступа для выполнения перевода"),
+                    @ApiResponse(responseCode = "409", description = "Перевод с таким ключом идемпотентности уже выполняется")
             }
     )
     public ResponseEntity<TransferDto> transfer(@io.swagger.v3.oas.annotations.parameters.RequestBody(
             description = "Данные для создания перевода",
             required = true,
-            content = @Content(schema = @Schema(implementation = CreateTransferRequest.class)))@RequestBody @Valid CreateTransferRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(transferService.createTransfer(request));
+            content = @Content(schema = @Schema(implementation = CreateTransferRequest.class)))@RequestBody @Valid CreateTransferRequest request,
+            @Parameter(description = "Ключ идемпотентности: повторный запрос с тем же ключом вернет ранее созданный перевод")
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(description = "respond-async - поставить перевод в очередь и вернуть 202 без ожидания проведения")
+            @RequestHeader(name = "Prefer", required = false) String prefer) {
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new BadRequestException("Ключ идемпотентности должен содержать от 1 до " + MAX_IDEMPOTENCY_KEY_LENGTH + " символов");
+        }
+        if (prefer != null && Arrays.stream(prefer.split(",")).map(String::trim).anyMatch(RESPOND_ASYNC::equalsIgnoreCase)) {
+            TransferDto transfer = transferService.submitTransfer(request, idempotencyKey);
+            if (transfer.getTransferStatus() != TransferStatus.IN_PROGRESS) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(transfer);
+            }
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/transfers/" + transfer.getId()))
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(transfer);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(transferService.createTransfer(request, idempotencyKey));
+    }
+
+    @GetMapping("/{transferId}")
+    @Operation(
+            summary = "Получить перевод по id",
+            description = "Возвращает перевод и его текущий статус. Используется для отслеживания переводов, " +
+                    "принятых в асинхронном режиме. Пользователь видит только свои переводы, администратор - все.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Перевод найден",
+                            content = @Content(schema = @Schema(implementation = TransferDto.class))),
+                    @ApiResponse(responseCode = "403", description = "Нет доступа к переводу"),
+                    @ApiResponse(responseCode = "404", description = "Перевод не найден")
+            }
+    )
+    public ResponseEntity<TransferDto> getTransfer(@Parameter(description = "ID перевода", example = "1") @PathVariable(name = "transferId") Long transferId) {
+        return ResponseEntity.ok(transferService.getTransfer(transferId));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+            summary = "Создать пакет переводов",
+            description = "Принимает поток переводов в формате NDJSON (одна заявка на строку) и возвращает поток результатов " +
+                    "в том же порядке. Переводы выполняются порциями, каждая порция - в отдельной транзакции.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Поток результатов по каждой строке",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = TransferBatchResult.class))),
+                    @ApiResponse(responseCode = "401", description = "Пользователь не авторизован")
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> transferBatch(InputStream body) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        StreamingResponseBody responseBody = output -> transferBatchService.processBatch(body, output, username);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(responseBody);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -64,6 +151,94 @@ public class TransferController {
         return ResponseEntity.ok(transferService.getAllTransfers(pageable));
     }
 
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/all/slice")
+    @Operation(
+            summary = "Получить все переводы без подсчета общего количества (только для администратора)",
+            description = "Возвращает страницу переводов без запроса COUNT(*). По запросу добавляет приблизительное " +
+                    "общее количество по статистике БД.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Страница переводов",
+                            content = @Content(schema = @Schema(implementation = SliceDto.class))),
+                    @ApiResponse(responseCode = "403", description = "Нет прав доступа")
+            }
+    )
+    public ResponseEntity<SliceDto<TransferDto>> getAllTransfersSlice(
+            Pageable pageable,
+            @Parameter(description = "Вернуть приблизительное общее количество по статистике БД")
+            @RequestParam(name = "estimateTotal", defaultValue = "false") boolean estimateTotal) {
+        return ResponseEntity.ok(transferService.getAllTransfersSlice(pageable, estimateTotal));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/export")
+    @Operation(
+            summary = "Выгрузить переводы (только для администратора)",
+            description = "Отдает потоком все переводы за период в формате CSV или NDJSON, от старых к новым. " +
+                    "Все строки берутся из одного согласованного снимка БД.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Поток переводов",
+                            content = {@Content(mediaType = "text/csv"),
+                                    @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE)}),
+                    @ApiResponse(responseCode = "400", description = "Некорректный формат или период"),
+                    @ApiResponse(responseCode = "403", description = "Нет прав доступа")
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> exportTransfers(
+            @Parameter(description = "Формат выгрузки: csv или ndjson", example = "csv")
+            @RequestParam(name = "format", defaultValue = "csv") String format,
+            @Parameter(description = "Начало периода включительно", example = "2025-08-01T00:00:00")
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Конец периода не включительно", example = "2025-09-01T00:00:00")
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        TransferExportFormat exportFormat = Arrays.stream(TransferExportFormat.values())
+                .filter(value -> value.name().equalsIgnoreCase(format))
+                .findFirst()
+                .orElseThrow(() -> new BadRequestException("Формат выгрузки должен быть csv или ndjson"));
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new BadRequestException("Начало периода должно быть раньше его конца");
+        }
+
+        StreamingResponseBody responseBody = output -> transferExportService.exportTransfers(from, to, exportFormat, output);
+        String filename = "transfers." + exportFormat.name().toLowerCase();
+        return ResponseEntity.ok()
+                .contentType(exportFormat == TransferExportFormat.CSV ? TEXT_CSV : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(responseBody);
+    }
+
+    @GetMapping("/stats")
+    @Operation(
+            summary = "Получить статистику переводов",
+            description = "Возвращает количество и сумму входящих и исходящих переводов по дням или месяцам " +
+                    "для всех карт пользователя или для одной карты. Без параметров - по картам авторизованного " +
+                    "пользователя за последние 30 дней. Статистику других пользователей может запрашивать только администратор.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Статистика переводов",
+                            content = @Content(schema = @Schema(implementation = TransferStatsDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Некорректный шаг группировки или период"),
+                    @ApiResponse(responseCode = "403", description = "Нет доступа к статистике"),
+                    @ApiResponse(responseCode = "404", description = "Карта не найдена")
+            }
+    )
+    public ResponseEntity<TransferStatsDto> getTransferStats(
+            @Parameter(description = "ID пользователя (только для администратора)", example = "1")
+            @RequestParam(name = "userId", required = false) Long userId,
+            @Parameter(description = "ID карты", example = "1")
+            @RequestParam(name = "cardId", required = false) Long cardId,
+            @Parameter(description = "Шаг группировки: day или month", example = "day")
+            @RequestParam(name = "granularity", defaultValue = "day") String granularity,
+            @Parameter(description = "Начало периода включительно", example = "2025-08-01")
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Конец периода включительно", example = "2025-08-31")
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        StatsGranularity statsGranularity = Arrays.stream(StatsGranularity.values())
+                .filter(value -> value.name().equalsIgnoreCase(granularity))
+                .findFirst()
+                .orElseThrow(() -> new BadRequestException("Шаг группировки должен быть day или month"));
+        return ResponseEntity.ok(transferStatsService.getStats(userId, cardId, statsGranularity, from, to));
+    }
+
     @GetMapping("/my")
     @Operation(
             summary = "Получить мои переводы",
@@ -77,4 +252,51 @@ public class TransferController {
     public ResponseEntity<Page<TransferDto>> getMyTransfers(Pageable pageable) {
         return ResponseEntity.ok(transferService.getMyTransfers(pageable));
     }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/all/cursor")
+    @Operation(
+            summary = "Получить все переводы по курсору (только для администратора)",
+            description = "Возвращает переводы от новых к старым. Следующая страница запрашивается с курсором " +
+                    "из ответа предыдущей, и ее стоимость не зависит от глубины листания.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Страница переводов",
+                            content = @Content(schema = @Schema(implementation = TransferCursorPageDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы"),
+                    @ApiResponse(responseCode = "403", description = "Нет прав доступа")
+            }
+    )
+    public ResponseEntity<TransferCursorPageDto> getAllTransfersByCursor(
+            @Parameter(description = "Курсор из ответа предыдущей страницы") @RequestParam(name = "cursor", required = false) String cursor,
+            @Parameter(description = "Размер страницы, от 1 до " + MAX_CURSOR_PAGE_SIZE, example = "20")
+            @RequestParam(name = "size", defaultValue = "20") int size) {
+        checkCursorPageSize(size);
+        return ResponseEntity.ok(transferService.getAllTransfers(cursor, size));
+    }
+
+    @GetMapping("/my/cursor")
+    @Operation(
+            summary = "Получить мои переводы по курсору",
+            description = "Возвращает переводы авторизованного пользователя от новых к старым. Следующая страница " +
+                    "запрашивается с курсором из ответа предыдущей.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Страница переводов пользователя",
+                            content = @Content(schema = @Schema(implementation = TransferCursorPageDto.class))),
+                    @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы"),
+                    @ApiResponse(responseCode = "401", description = "Пользователь не авторизован")
+            }
+    )
+    public ResponseEntity<TransferCursorPageDto> getMyTransfersByCursor(
+            @Parameter(description = "Курсор из ответа предыдущей страницы") @RequestParam(name = "cursor", required = false) String cursor,
+            @Parameter(description = "Размер страницы, от 1 до " + MAX_CURSOR_PAGE_SIZE, example = "20")
+            @RequestParam(name = "size", defaultValue = "20") int size) {
+        checkCursorPageSize(size);
+        return ResponseEntity.ok(transferService.getMyTransfers(cursor, size));
+    }
+
+    private void checkCursorPageSize(int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new BadRequestException("Размер страницы должен быть от 1 до " + MAX_CURSOR_PAGE_SIZE);
+        }
+    }
 }
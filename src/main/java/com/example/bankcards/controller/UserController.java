@@ -1,8 +1,10 @@
 package com.example.bankcards.controller;
 
 
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.dto.UserResponse;
+import com.example.bankcards.dto.UserSummaryDto;
 import com.example.bankcards.dto.UserUpdateDto;
 import com.example.bankcards.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -56,6 +58,41 @@ public class UserController {
         return ResponseEntity.ok(userService.getAllUsers(pageable));
     }
 
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/slice")
+    @Operation(
+            summary = "Получить список всех пользователей без подсчета общего количества",
+            description = "Возвращает страницу пользователей без запроса COUNT(*). По запросу добавляет приблизительное " +
+                    "общее количество по статистике БД. Доступно только для администраторов.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Страница пользователей",
+                            content = @Content(schema = @Schema(implementation = SliceDto.class))),
+                    @ApiResponse(responseCode = "403", description = "Нет прав доступа")
+            }
+    )
+    public ResponseEntity<SliceDto<UserResponse>> getAllUsersSlice(
+            Pageable pageable,
+            @Parameter(description = "Вернуть приблизительное общее количество по статистике БД")
+            @RequestParam(name = "estimateTotal", defaultValue = "false") boolean estimateTotal) {
+        return ResponseEntity.ok(userService.getAllUsersSlice(pageable, estimateTotal));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/summary")
+    @Operation(
+            summary = "Получить краткий список пользователей",
+            description = "Возвращает постраничный список пользователей с количеством карт и суммарным балансом без " +
+                    "загрузки самих карт. Доступно только для администраторов.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Страница пользователей",
+                            content = @Content(schema = @Schema(implementation = Page.class))),
+                    @ApiResponse(responseCode = "403", description = "Нет прав доступа")
+            }
+    )
+    public ResponseEntity<Page<UserSummaryDto>> getUserSummaries(Pageable pageable) {
+        return ResponseEntity.ok(userService.getUserSummaries(pageable));
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("{userId}")
     @Operation(
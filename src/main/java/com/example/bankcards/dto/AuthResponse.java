@@ -6,11 +6,17 @@ import lombok.Data;
 
 @Data
 @AllArgsConstructor
-@Schema(description = "Ответ с JWT токеном после успешной аутентификации или регистрации")
+@Schema(description = "Ответ с JWT и refresh токенами после успешной аутентификации, регистрации или обновления токена")
 public class AuthResponse {
     @Schema(
             description = "JWT токен, используемый для авторизации последующих запросов",
             example = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9..."
     )
     private String token;
+
+    @Schema(
+            description = "Одноразовый refresh токен для получения новой пары токенов без повторного входа",
+            example = "3q2-7wX1mZ0Kx9cVb6nR8tYu4oPa5sDf7gHj2kLzXcV"
+    )
+    private String refreshToken;
 }
@@ -0,0 +1,21 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Страница выписки по карте, от новых проводок к старым")
+public class CardLedgerDto {
+    @Schema(description = "Проводки страницы")
+    private List<LedgerEntryDto> entries;
+    @Schema(description = "Значение параметра before для следующей страницы. Не заполняется на последней странице", example = "35")
+    private Long nextBefore;
+}
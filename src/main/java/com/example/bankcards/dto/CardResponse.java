@@ -2,14 +2,18 @@ package com.example.bankcards.dto;
 
 import com.example.bankcards.entity.CardStatus;
 import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 @Schema(description = "Ответ с информацией о карте")
 public class CardResponse {
     @Schema(description = "Уникальный идентификатор карты", example = "1")
@@ -0,0 +1,31 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.LedgerEntryType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Проводка по карте")
+public class LedgerEntryDto {
+    @Schema(description = "ID проводки", example = "42")
+    private Long id;
+    @Schema(description = "ID перевода, к которому относится проводка. Для начального остатка не заполняется", example = "7")
+    private Long transferId;
+    @Schema(description = "Тип проводки", example = "DEBIT")
+    private LedgerEntryType entryType;
+    @Schema(description = "Сумма проводки", example = "1500.50")
+    private BigDecimal amount;
+    @Schema(description = "Баланс карты после проводки", example = "3200.00")
+    private BigDecimal balanceAfter;
+    @Schema(description = "Дата и время проводки", example = "2025-08-15T14:30:00")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,22 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Запрос с refresh токеном")
+public class RefreshTokenRequest {
+
+    @NotBlank(message = "Refresh токен не может быть пустым")
+    @Schema(
+            description = "Refresh токен, полученный при входе, регистрации или предыдущем обновлении",
+            example = "3q2-7wX1mZ0Kx9cVb6nR8tYu4oPa5sDf7gHj2kLzXcV",
+            requiredMode = Schema.RequiredMode.REQUIRED
+    )
+    private String refreshToken;
+}
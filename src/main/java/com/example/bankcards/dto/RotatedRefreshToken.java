@@ -0,0 +1,11 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RotatedRefreshToken {
+    private Long userId;
+    private String refreshToken;
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Страница списка без точного подсчета общего количества элементов")
+public class SliceDto<T> {
+    @Schema(description = "Элементы страницы")
+    private List<T> content;
+    @Schema(description = "Номер страницы, начиная с 0", example = "0")
+    private int page;
+    @Schema(description = "Размер страницы", example = "20")
+    private int size;
+    @Schema(description = "Есть ли следующая страница", example = "true")
+    private boolean hasNext;
+    @Schema(description = "Приблизительное общее количество элементов по статистике планировщика БД. " +
+            "Заполняется, только если запрошено", example = "1250000")
+    private Long estimatedTotal;
+
+    public static <T> SliceDto<T> of(Slice<T> slice, Long estimatedTotal) {
+        return SliceDto.<T>builder()
+                .content(slice.getContent())
+                .page(slice.getNumber())
+                .size(slice.getSize())
+                .hasNext(slice.hasNext())
+                .estimatedTotal(estimatedTotal)
+                .build();
+    }
+}
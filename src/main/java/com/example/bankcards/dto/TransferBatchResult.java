@@ -0,0 +1,25 @@
+package com.example.bankcards.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Результат обработки одной строки пакета переводов")
+public class TransferBatchResult {
+    @Schema(description = "Номер строки во входном потоке", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    private long line;
+
+    @Schema(description = "Созданный перевод, если строка обработана успешно")
+    private TransferDto transfer;
+
+    @Schema(description = "Сообщение об ошибке, если перевод не выполнен", example = "Недостаточно средств для перевода")
+    private String error;
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Страница переводов от новых к старым с курсором на следующую страницу")
+public class TransferCursorPageDto {
+    @Schema(description = "Переводы страницы")
+    private List<TransferDto> transfers;
+    @Schema(description = "Курсор следующей страницы. Не заполняется на последней странице", example = "MjAyNS0wOC0xNVQxNDozMDowMHw0Mg")
+    private String nextCursor;
+}
@@ -1,15 +1,22 @@
 package com.example.bankcards.dto;
 import com.example.bankcards.entity.TransferStatus;
 import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 @Schema(description = "DTO для информации о переводе между картами")
 public class TransferDto {
+    @Schema(description = "ID перевода", example = "1")
+    private Long id;
+
     @Schema(description = "Информация о карте отправителя", requiredMode = Schema.RequiredMode.REQUIRED)
     private CardResponse fromCard;
 
@@ -27,4 +34,7 @@ public class TransferDto {
 
     @Schema(description = "Статус перевода", example = "COMPLETED", requiredMode = Schema.RequiredMode.REQUIRED)
     private TransferStatus transferStatus;
+
+    @Schema(description = "Причина отклонения перевода", example = "Недостаточно средств для перевода")
+    private String rejectReason;
 }
@@ -0,0 +1,28 @@
+package com.example.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Итоги переводов за день или месяц")
+public class TransferStatsBucketDto {
+    @Schema(description = "День или первый день месяца", example = "2025-08-01")
+    private LocalDate period;
+    @Schema(description = "Количество исходящих переводов", example = "12")
+    private long outgoingCount;
+    @Schema(description = "Сумма исходящих переводов", example = "15000.50")
+    private BigDecimal outgoingAmount;
+    @Schema(description = "Количество входящих переводов", example = "3")
+    private long incomingCount;
+    @Schema(description = "Сумма входящих переводов", example = "2500.00")
+    private BigDecimal incomingAmount;
+}
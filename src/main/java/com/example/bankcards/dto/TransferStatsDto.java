@@ -0,0 +1,33 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.service.StatsGranularity;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Статистика переводов пользователя или карты за период")
+public class TransferStatsDto {
+    @Schema(description = "ID пользователя, если статистика по всем его картам", example = "1")
+    private Long userId;
+    @Schema(description = "ID карты, если статистика по одной карте", example = "1")
+    private Long cardId;
+    @Schema(description = "Шаг группировки", example = "DAY")
+    private StatsGranularity granularity;
+    @Schema(description = "Начало периода включительно", example = "2025-08-01")
+    private LocalDate from;
+    @Schema(description = "Конец периода включительно", example = "2025-08-31")
+    private LocalDate to;
+    @Schema(description = "Итоги по дням или месяцам, в которых были переводы")
+    private List<TransferStatsBucketDto> buckets;
+}
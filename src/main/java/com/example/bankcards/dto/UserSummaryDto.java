@@ -0,0 +1,32 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.Role;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Краткая информация о пользователе и его картах")
+public class UserSummaryDto {
+    @Schema(description = "ID пользователя", example = "1")
+    private Long id;
+
+    @Schema(description = "Имя пользователя", example = "ALKN8Z")
+    private String username;
+
+    @Schema(description = "Роль пользователя", example = "USER")
+    private Role role;
+
+    @Schema(description = "Количество карт пользователя", example = "3")
+    private long cardCount;
+
+    @Schema(description = "Суммарный баланс карт пользователя", example = "15300.50")
+    private BigDecimal totalBalance;
+}
@@ -0,0 +1,18 @@
+package com.example.bankcards.dto.projection;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface CardView {
+    Long getId();
+
+    String getNumber();
+
+    LocalDateTime getExpiryDate();
+
+    BigDecimal getBalance();
+
+    CardStatus getCardStatus();
+}
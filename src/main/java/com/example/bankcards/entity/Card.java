@@ -39,4 +39,8 @@ public class Card {
     @Enumerated(EnumType.STRING)
     private CardStatus cardStatus;
 
+    @Version
+    @Column(nullable = false, name = "version")
+    private Long version;
+
 }
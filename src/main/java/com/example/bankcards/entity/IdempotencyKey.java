@@ -0,0 +1,41 @@
+package com.example.bankcards.entity;
+
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "t_idempotency_key")
+public class IdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "idempotency_key")
+    private String idempotencyKey;
+
+    @Column(nullable = false, name = "owner_id")
+    private Long ownerId;
+
+    @Column(nullable = false, name = "request_hash")
+    private String requestHash;
+
+    @Column(nullable = false, name = "response", columnDefinition = "TEXT")
+    private String response;
+
+    @Column(nullable = false, name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false, name = "expires_at")
+    private LocalDateTime expiresAt;
+}
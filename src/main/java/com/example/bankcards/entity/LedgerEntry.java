@@ -0,0 +1,44 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "t_ledger_entry")
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "card_id", referencedColumnName = "id")
+    private Card card;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "transfer_id", referencedColumnName = "id")
+    private Transfer transfer;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, name = "entry_type")
+    private LedgerEntryType entryType;
+
+    @Column(nullable = false, name = "amount")
+    private BigDecimal amount;
+
+    @Column(nullable = false, name = "balance_after")
+    private BigDecimal balanceAfter;
+
+    @Column(nullable = false, name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,5 @@
+package com.example.bankcards.entity;
+
+public enum LedgerEntryType {
+    OPENING, DEBIT, CREDIT
+}
@@ -0,0 +1,32 @@
+package com.example.bankcards.entity;
+
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "t_revoked_token")
+public class RevokedToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "jti")
+    private String jti;
+
+    @Column(nullable = false, name = "revoked_at")
+    private LocalDateTime revokedAt;
+
+    @Column(nullable = false, name = "expires_at")
+    private LocalDateTime expiresAt;
+}
@@ -43,4 +43,7 @@ public class Transfer {
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, name = "status")
     private TransferStatus transferStatus;
+
+    @Column(name = "reject_reason")
+    private String rejectReason;
 }
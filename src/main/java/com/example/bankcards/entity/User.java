@@ -5,7 +5,10 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -32,6 +35,16 @@ public class User {
     @Column(nullable = false, name = "role")
     private Role role;
 
+    // Увеличивается при смене имени, пароля или роли: токены с прежней версией в claims перестают приниматься
+    @Column(nullable = false, name = "token_version")
+    private int tokenVersion;
+
+    // Карты пользователей страницы подгружаются одним запросом на пачку, а не запросом на каждого.
+    // Коллекция исключена из equals/hashCode: хеш карты включает владельца, и при пакетной загрузке
+    // хеширование карты снова обращалось бы к еще не загруженной коллекции
+    @BatchSize(size = 100)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "owner")
     private Set<Card> cards = new HashSet<>();
 
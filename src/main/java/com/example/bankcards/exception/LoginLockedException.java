@@ -0,0 +1,13 @@
+package com.example.bankcards.exception;
+
+import lombok.Getter;
+
+@Getter
+public class LoginLockedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public LoginLockedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
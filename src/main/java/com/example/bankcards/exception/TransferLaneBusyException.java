@@ -0,0 +1,7 @@
+package com.example.bankcards.exception;
+
+public class TransferLaneBusyException extends RuntimeException {
+    public TransferLaneBusyException(String message) {
+        super(message);
+    }
+}
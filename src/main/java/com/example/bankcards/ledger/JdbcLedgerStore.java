@@ -0,0 +1,119 @@
+package com.example.bankcards.ledger;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerEntryType;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.TransferRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class JdbcLedgerStore implements LedgerStore {
+
+    private static final String SELECT_ACCOUNTS = "select id, owner_id, number, expiry_date, balance, status from t_card";
+
+    private static final RowMapper<LedgerAccount> ACCOUNT_MAPPER = (rs, rowNum) -> LedgerAccount.builder()
+            .id(rs.getLong("id"))
+            .ownerId(rs.getLong("owner_id"))
+            .number(rs.getString("number"))
+            .expiryDate(rs.getTimestamp("expiry_date").toLocalDateTime())
+            .balanceMinor(rs.getBigDecimal("balance").setScale(2).unscaledValue().longValueExact())
+            .cardStatus(CardStatus.valueOf(rs.getString("status")))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferRepository transferRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+
+    @Override
+    public List<LedgerAccount> loadAccounts() {
+        return jdbcTemplate.query(SELECT_ACCOUNTS, ACCOUNT_MAPPER);
+    }
+
+    @Override
+    public Optional<LedgerAccount> loadAccount(long cardId) {
+        return jdbcTemplate.query(SELECT_ACCOUNTS + " where id = ?", ACCOUNT_MAPPER, cardId).stream().findFirst();
+    }
+
+    @Override
+    public long loadCheckpointSequence() {
+        Long sequence = jdbcTemplate.queryForObject("select last_sequence from t_ledger_checkpoint where id = 1", Long.class);
+        return sequence == null ? 0 : sequence;
+    }
+
+    @Override
+    public void writeCheckpoint(LedgerCheckpoint checkpoint) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!checkpoint.transfers().isEmpty()) {
+                List<Transfer> transfers = checkpoint.transfers().stream()
+                        .map(record -> Transfer.builder()
+                                .id(record.transferId())
+                                .fromCard(Card.builder().id(record.fromCardId()).build())
+                                .toCard(Card.builder().id(record.toCardId()).build())
+                                .owner(User.builder().id(record.ownerId()).build())
+                                .amount(BigDecimal.valueOf(record.amountMinor(), 2))
+                                .createdAt(LedgerEngine.toLocalDateTime(record.createdAtMillis()))
+                                .transferStatus(TransferStatus.COMPLETED)
+                                .build())
+                        .toList();
+                transferRepository.insertAll(transfers);
+                ledgerEntryRepository.insertAll(ledgerEntries(checkpoint, transfers));
+            }
+            jdbcTemplate.batchUpdate("update t_card set balance = ?, version = version + 1 where id = ?",
+                    checkpoint.balances(), checkpoint.balances().size(), (ps, balance) -> {
+                        ps.setBigDecimal(1, BigDecimal.valueOf(balance.balanceMinor(), 2));
+                        ps.setLong(2, balance.cardId());
+                    });
+            jdbcTemplate.update("update t_ledger_checkpoint set last_sequence = ?, updated_at = ? where id = 1",
+                    checkpoint.sequence(), Timestamp.valueOf(LocalDateTime.now()));
+        });
+    }
+
+    /**
+     * Балансы после каждого перевода восстанавливаются обратным проходом от итоговых балансов контрольной точки:
+     * все карты из переводов контрольной точки входят в нее как измененные.
+     */
+    private List<LedgerEntry> ledgerEntries(LedgerCheckpoint checkpoint, List<Transfer> transfers) {
+        Map<Long, Long> balances = new HashMap<>();
+        checkpoint.balances().forEach(balance -> balances.put(balance.cardId(), balance.balanceMinor()));
+
+        LedgerEntry[] entries = new LedgerEntry[transfers.size() * 2];
+        for (int i = transfers.size() - 1; i >= 0; i--) {
+            JournalRecord record = checkpoint.transfers().get(i);
+            Transfer transfer = transfers.get(i);
+            long toBalanceAfter = balances.merge(record.toCardId(), -record.amountMinor(), Long::sum) + record.amountMinor();
+            long fromBalanceAfter = balances.merge(record.fromCardId(), record.amountMinor(), Long::sum) - record.amountMinor();
+            entries[i * 2] = ledgerEntry(transfer, transfer.getFromCard(), LedgerEntryType.DEBIT, fromBalanceAfter);
+            entries[i * 2 + 1] = ledgerEntry(transfer, transfer.getToCard(), LedgerEntryType.CREDIT, toBalanceAfter);
+        }
+        return Arrays.asList(entries);
+    }
+
+    private static LedgerEntry ledgerEntry(Transfer transfer, Card card, LedgerEntryType entryType, long balanceAfterMinor) {
+        return LedgerEntry.builder()
+                .card(card)
+                .transfer(transfer)
+                .entryType(entryType)
+                .amount(transfer.getAmount())
+                .balanceAfter(BigDecimal.valueOf(balanceAfterMinor, 2))
+                .createdAt(transfer.getCreatedAt())
+                .build();
+    }
+}
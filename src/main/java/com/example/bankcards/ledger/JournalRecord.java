@@ -0,0 +1,9 @@
+package com.example.bankcards.ledger;
+
+/**
+ * @param transferId id перевода, заранее выделенный из последовательности t_transfer: под ним перевод
+ *                   попадает в БД на контрольной точке и сразу возвращается клиенту
+ */
+public record JournalRecord(long sequence, long transferId, long fromCardId, long toCardId, long ownerId,
+                            long amountMinor, long createdAtMillis) {
+}
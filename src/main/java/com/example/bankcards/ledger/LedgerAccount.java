@@ -0,0 +1,24 @@
+package com.example.bankcards.ledger;
+
+import com.example.bankcards.entity.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerAccount {
+    private long id;
+    private long ownerId;
+    private String number;
+    private LocalDateTime expiryDate;
+    private long balanceMinor;
+    private CardStatus cardStatus;
+    private boolean dirty;
+    private boolean removed;
+}
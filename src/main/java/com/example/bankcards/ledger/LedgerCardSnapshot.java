@@ -0,0 +1,17 @@
+package com.example.bankcards.ledger;
+
+import com.example.bankcards.dto.projection.CardView;
+import com.example.bankcards.entity.CardStatus;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Value
+public class LedgerCardSnapshot implements CardView {
+    Long id;
+    String number;
+    LocalDateTime expiryDate;
+    BigDecimal balance;
+    CardStatus cardStatus;
+}
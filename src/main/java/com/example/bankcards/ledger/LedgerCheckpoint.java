@@ -0,0 +1,9 @@
+package com.example.bankcards.ledger;
+
+import java.util.List;
+
+public record LedgerCheckpoint(long sequence, List<AccountBalance> balances, List<JournalRecord> transfers) {
+
+    public record AccountBalance(long cardId, long balanceMinor) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.ledger;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.transfer.concurrency-mode", havingValue = "LEDGER")
+public class LedgerCheckpointScheduler {
+
+    private final LedgerEngine ledgerEngine;
+
+    @Scheduled(fixedDelayString = "${app.transfer.ledger.checkpoint-interval-ms:1000}")
+    public void checkpoint() {
+        try {
+            ledgerEngine.checkpoint();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось записать контрольную точку баланса: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.bankcards.ledger;
+
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.exception.AccessToResourceDeniedException;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.util.LongObjectHashMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Балансы карт в памяти. Перевод проверяется и применяется под одной блокировкой, записывается в
+ * {@link TransferJournal} и подтверждается только после сброса журнала на диск. Контрольная точка
+ * переносит измененные балансы и накопленные переводы в БД одной транзакцией вместе с номером
+ * последней учтенной записи журнала, поэтому при восстановлении повторно применяются только записи после него.
+ * Карта, которой еще нет в памяти, читается из БД вне блокировки, после чего перевод начинается заново.
+ * Изменения карт в БД движок сам не перечитывает: их передает {@code CardServiceImpl} после коммита
+ * через {@link #updateAccount}, {@link #removeAccount} и {@link #restoreAccount}.
+ */
+public class LedgerEngine implements Closeable {
+
+    private static final int SCALE = 2;
+
+    private final LedgerStore store;
+    private final TransferJournal journal;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Object checkpointLock = new Object();
+    private final LongObjectHashMap<LedgerAccount> accounts = new LongObjectHashMap<>(1024);
+    private final List<LedgerAccount> dirtyAccounts = new ArrayList<>();
+    private final List<JournalRecord> pendingTransfers = new ArrayList<>();
+
+    private long lastSequence;
+    // Растет при каждом изменении карты извне: карта, прочитанная из БД до изменения, в память не попадает
+    private volatile long accountChanges;
+
+    public LedgerEngine(LedgerStore store, TransferJournal journal) {
+        this.store = store;
+        this.journal = journal;
+    }
+
+    public void recover() {
+        lock.lock();
+        try {
+            store.loadAccounts().forEach(account -> accounts.put(account.getId(), account));
+            long checkpointSequence = store.loadCheckpointSequence();
+            if (journal.getBaseSequence() > checkpointSequence) {
+                throw new IllegalStateException("Журнал переводов начинается после записи " + journal.getBaseSequence()
+                        + ", а контрольная точка сохранена на записи " + checkpointSequence);
+            }
+
+            long lastJournalSequence = journal.getBaseSequence();
+            for (JournalRecord record : journal.readAll()) {
+                lastJournalSequence = record.sequence();
+                if (record.sequence() > checkpointSequence) {
+                    LedgerAccount from = recoveredAccount(record.fromCardId());
+                    LedgerAccount to = recoveredAccount(record.toCardId());
+                    from.setBalanceMinor(from.getBalanceMinor() - record.amountMinor());
+                    to.setBalanceMinor(to.getBalanceMinor() + record.amountMinor());
+                    markDirty(from);
+                    markDirty(to);
+                    pendingTransfers.add(record);
+                }
+            }
+
+            lastSequence = Math.max(checkpointSequence, lastJournalSequence);
+            if (lastJournalSequence < lastSequence) {
+                journal.reset(lastSequence);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public LedgerTransferResult transfer(long transferId, long fromCardId, long toCardId, long ownerId, BigDecimal amount) {
+        long amountMinor = toMinor(amount);
+        while (true) {
+            JournalRecord record = null;
+            LedgerCardSnapshot fromSnapshot = null;
+            LedgerCardSnapshot toSnapshot = null;
+            int position = 0;
+            long unloadedCardId = 0;
+
+            lock.lock();
+            try {
+                LedgerAccount from = account(fromCardId, "Карта отправителя не найдена");
+                LedgerAccount to = account(toCardId, "Карта получателя не найдена");
+
+                if (from == null || to == null) {
+                    unloadedCardId = from == null ? fromCardId : toCardId;
+                } else if (journal.hasRoom()) {
+                    checkTransfer(from, to, ownerId, amountMinor);
+                    record = new JournalRecord(lastSequence + 1, transferId, fromCardId, toCardId, ownerId,
+                            amountMinor, System.currentTimeMillis());
+                    position = journal.append(record);
+                    lastSequence = record.sequence();
+
+                    from.setBalanceMinor(from.getBalanceMinor() - amountMinor);
+                    to.setBalanceMinor(to.getBalanceMinor() + amountMinor);
+                    markDirty(from);
+                    markDirty(to);
+                    pendingTransfers.add(record);
+
+                    fromSnapshot = snapshot(from);
+                    toSnapshot = snapshot(to);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (unloadedCardId != 0) {
+                loadAccount(unloadedCardId, unloadedCardId == fromCardId
+                        ? "Карта отправителя не найдена" : "Карта получателя не найдена");
+                continue;
+            }
+            if (record == null) {
+                rotateJournal();
+                continue;
+            }
+            journal.sync(position);
+            return new LedgerTransferResult(record, fromSnapshot, toSnapshot);
+        }
+    }
+
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            LedgerCheckpoint checkpoint;
+            int position;
+            lock.lock();
+            try {
+                checkpoint = takeCheckpoint();
+                position = journal.position();
+            } finally {
+                lock.unlock();
+            }
+            if (checkpoint != null) {
+                journal.sync(position);
+                writeCheckpoint(checkpoint);
+            }
+        }
+    }
+
+    /**
+     * Закрывает карту для новых переводов перед ее удалением из БД. Возвращает false, если по карте есть
+     * переводы, еще не перенесенные в БД контрольной точкой: после удаления карты их вставка нарушила бы
+     * внешний ключ. Если удаление карты затем откатится, ее нужно открыть снова через {@link #restoreAccount}.
+     */
+    public boolean removeAccount(long cardId) {
+        LedgerAccount loaded = null;
+        long changes = 0;
+        while (true) {
+            lock.lock();
+            try {
+                LedgerAccount account = accounts.get(cardId);
+                if (account == null && loaded != null && changes == accountChanges) {
+                    accounts.put(cardId, loaded);
+                    account = loaded;
+                }
+                if (account != null) {
+                    for (JournalRecord record : pendingTransfers) {
+                        if (record.fromCardId() == cardId || record.toCardId() == cardId) {
+                            return false;
+                        }
+                    }
+                    account.setRemoved(true);
+                    accountChanges++;
+                    return true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // Карта загружается и закрывается в памяти, чтобы параллельный перевод не прочитал ее из БД до удаления
+            changes = accountChanges;
+            Optional<LedgerAccount> stored = store.loadAccount(cardId);
+            if (stored.isEmpty()) {
+                return true;
+            }
+            loaded = stored.get();
+        }
+    }
+
+    /**
+     * Снова открывает карту, закрытую {@link #removeAccount}, если ее удаление из БД откатилось.
+     */
+    public void restoreAccount(long cardId) {
+        lock.lock();
+        try {
+            LedgerAccount account = accounts.get(cardId);
+            if (account != null) {
+                account.setRemoved(false);
+            }
+            accountChanges++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Переносит в память владельца, срок и статус карты, сохраненные в БД. Баланс не трогается: им владеет движок.
+     * Карта, которой еще нет в памяти, будет прочитана из БД при первом переводе.
+     */
+    public void updateAccount(long cardId, long ownerId, LocalDateTime expiryDate, CardStatus cardStatus) {
+        lock.lock();
+        try {
+            LedgerAccount account = accounts.get(cardId);
+            if (account != null) {
+                account.setOwnerId(ownerId);
+                account.setExpiryDate(expiryDate);
+                account.setCardStatus(cardStatus);
+            }
+            accountChanges++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public BigDecimal getBalance(long cardId) {
+        lock.lock();
+        try {
+            LedgerAccount account = accounts.get(cardId);
+            return account == null || account.isRemoved() ? null : BigDecimal.valueOf(account.getBalanceMinor(), SCALE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            checkpoint();
+        } finally {
+            journal.close();
+        }
+    }
+
+    private void rotateJournal() {
+        synchronized (checkpointLock) {
+            LedgerCheckpoint checkpoint;
+            lock.lock();
+            try {
+                if (journal.hasRoom()) {
+                    return;
+                }
+                checkpoint = takeCheckpoint();
+            } finally {
+                lock.unlock();
+            }
+            if (checkpoint != null) {
+                journal.sync(journal.position());
+                writeCheckpoint(checkpoint);
+            }
+
+            lock.lock();
+            try {
+                if (pendingTransfers.isEmpty()) {
+                    journal.reset(lastSequence);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private LedgerCheckpoint takeCheckpoint() {
+        if (dirtyAccounts.isEmpty() && pendingTransfers.isEmpty()) {
+            return null;
+        }
+        List<LedgerCheckpoint.AccountBalance> balances = new ArrayList<>(dirtyAccounts.size());
+        for (LedgerAccount account : dirtyAccounts) {
+            balances.add(new LedgerCheckpoint.AccountBalance(account.getId(), account.getBalanceMinor()));
+            account.setDirty(false);
+        }
+        dirtyAccounts.clear();
+        return new LedgerCheckpoint(lastSequence, balances, List.copyOf(pendingTransfers));
+    }
+
+    private void writeCheckpoint(LedgerCheckpoint checkpoint) {
+        try {
+            store.writeCheckpoint(checkpoint);
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                for (LedgerCheckpoint.AccountBalance balance : checkpoint.balances()) {
+                    markDirty(accounts.get(balance.cardId()));
+                }
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            pendingTransfers.subList(0, checkpoint.transfers().size()).clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает null, если карта еще не загружена в память: чтение из БД идет вне блокировки в {@link #loadAccount}.
+     */
+    private LedgerAccount account(long cardId, String notFoundMessage) {
+        LedgerAccount account = accounts.get(cardId);
+        if (account != null && account.isRemoved()) {
+            throw new CardNotFoundException(notFoundMessage);
+        }
+        return account;
+    }
+
+    private void loadAccount(long cardId, String notFoundMessage) {
+        long changes = accountChanges;
+        LedgerAccount loaded = store.loadAccount(cardId).orElseThrow(() -> new CardNotFoundException(notFoundMessage));
+        lock.lock();
+        try {
+            if (accounts.get(cardId) == null && changes == accountChanges) {
+                accounts.put(cardId, loaded);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void checkTransfer(LedgerAccount from, LedgerAccount to, long ownerId, long amountMinor) {
+        if (from.getOwnerId() != ownerId || to.getOwnerId() != ownerId) {
+            throw new AccessToResourceDeniedException("Переводы доступны только между своими картами");
+        }
+
+        if (from.getBalanceMinor() < amountMinor) {
+            throw new BadRequestException("Недостаточно средств для перевода");
+        }
+
+        if (to.getCardStatus() != CardStatus.ACTIVE) {
+            throw new BadRequestException("Карта получателя неактивна");
+        }
+
+        if (from.getCardStatus() != CardStatus.ACTIVE) {
+            throw new BadRequestException("Карта отправителя неактивна");
+        }
+    }
+
+    private LedgerAccount recoveredAccount(long cardId) {
+        LedgerAccount account = accounts.get(cardId);
+        if (account == null) {
+            throw new IllegalStateException("Карта " + cardId + " из журнала переводов не найдена в БД");
+        }
+        return account;
+    }
+
+    private void markDirty(LedgerAccount account) {
+        if (!account.isDirty()) {
+            account.setDirty(true);
+            dirtyAccounts.add(account);
+        }
+    }
+
+    private static LedgerCardSnapshot snapshot(LedgerAccount account) {
+        return new LedgerCardSnapshot(account.getId(), account.getNumber(), account.getExpiryDate(),
+                BigDecimal.valueOf(account.getBalanceMinor(), SCALE), account.getCardStatus());
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        try {
+            return amount.setScale(SCALE).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new BadRequestException("Сумма перевода должна содержать не более " + SCALE + " знаков после запятой");
+        }
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.bankcards.ledger;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface LedgerStore {
+    List<LedgerAccount> loadAccounts();
+
+    Optional<LedgerAccount> loadAccount(long cardId);
+
+    long loadCheckpointSequence();
+
+    void writeCheckpoint(LedgerCheckpoint checkpoint);
+}
@@ -0,0 +1,6 @@
+package com.example.bankcards.ledger;
+
+import com.example.bankcards.dto.projection.CardView;
+
+public record LedgerTransferResult(JournalRecord record, CardView fromCard, CardView toCard) {
+}
@@ -0,0 +1,169 @@
+package com.example.bankcards.ledger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал переводов в отображенном в память файле фиксированного размера.
+ * Заголовок хранит номер последовательности, с которого начинается журнал, записи идут следом
+ * и защищены CRC32C. При чтении журнал обрывается на первой записи с неверной контрольной суммой
+ * или с разрывом в последовательности - так отбрасываются недописанный хвост и остатки записей
+ * до последнего сброса журнала.
+ */
+public class TransferJournal implements Closeable {
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 64;
+
+    private static final int HEADER_MAGIC = 0x42524A4C;
+    private static final int RECORD_MARKER = 0x5452;
+    private static final int VERSION = 2;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Object syncLock = new Object();
+
+    private long baseSequence;
+    private volatile int writePosition;
+    private volatile int durablePosition;
+
+    public TransferJournal(Path path, int capacityBytes) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int capacity = HEADER_SIZE + (capacityBytes - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (buffer.getInt(0) != HEADER_MAGIC) {
+            reset(0);
+        } else {
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Неподдерживаемая версия журнала: " + buffer.getInt(4));
+            }
+            baseSequence = buffer.getLong(8);
+            writePosition = HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Читает все целые записи подряд, начиная с заголовка, и ставит позицию записи сразу за последней из них.
+     */
+    public List<JournalRecord> readAll() {
+        List<JournalRecord> records = new ArrayList<>();
+        int position = HEADER_SIZE;
+        long expectedSequence = baseSequence + 1;
+        while (position + RECORD_SIZE <= buffer.capacity()) {
+            JournalRecord record = read(position);
+            if (record == null || record.sequence() != expectedSequence) {
+                break;
+            }
+            records.add(record);
+            position += RECORD_SIZE;
+            expectedSequence++;
+        }
+        writePosition = position;
+        durablePosition = position;
+        return records;
+    }
+
+    public long getBaseSequence() {
+        return baseSequence;
+    }
+
+    public boolean hasRoom() {
+        return writePosition + RECORD_SIZE <= buffer.capacity();
+    }
+
+    /**
+     * Дописывает запись в отображенную память и возвращает позицию ее конца для {@link #sync(int)}.
+     * Вызывающий код обеспечивает единственного писателя.
+     */
+    public int append(JournalRecord record) {
+        if (!hasRoom()) {
+            throw new IllegalStateException("Журнал переводов заполнен");
+        }
+        int position = writePosition;
+        buffer.putInt(position, RECORD_MARKER);
+        buffer.putLong(position + 4, record.sequence());
+        buffer.putLong(position + 12, record.transferId());
+        buffer.putLong(position + 20, record.fromCardId());
+        buffer.putLong(position + 28, record.toCardId());
+        buffer.putLong(position + 36, record.ownerId());
+        buffer.putLong(position + 44, record.amountMinor());
+        buffer.putLong(position + 52, record.createdAtMillis());
+        buffer.putInt(position + 60, checksum(position));
+        writePosition = position + RECORD_SIZE;
+        return writePosition;
+    }
+
+    /**
+     * Гарантирует, что журнал сброшен на диск как минимум до указанной позиции.
+     * Потоки, ожидающие синхронизации, пока другой поток выполняет force, обычно обнаруживают,
+     * что их записи уже попали на диск вместе с чужими, - так получается групповой fsync.
+     */
+    public void sync(int position) {
+        if (durablePosition >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durablePosition >= position) {
+                return;
+            }
+            int target = writePosition;
+            buffer.force();
+            durablePosition = target;
+        }
+    }
+
+    public int position() {
+        return writePosition;
+    }
+
+    /**
+     * Начинает журнал заново после контрольной точки: следующая запись должна иметь номер baseSequence + 1.
+     */
+    public void reset(long baseSequence) {
+        synchronized (syncLock) {
+            this.baseSequence = baseSequence;
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.putInt(0, HEADER_MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, baseSequence);
+            buffer.force();
+            writePosition = HEADER_SIZE;
+            durablePosition = HEADER_SIZE;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private JournalRecord read(int position) {
+        if (buffer.getInt(position) != RECORD_MARKER || buffer.getInt(position + 60) != checksum(position)) {
+            return null;
+        }
+        return new JournalRecord(
+                buffer.getLong(position + 4),
+                buffer.getLong(position + 12),
+                buffer.getLong(position + 20),
+                buffer.getLong(position + 28),
+                buffer.getLong(position + 36),
+                buffer.getLong(position + 44),
+                buffer.getLong(position + 52));
+    }
+
+    private int checksum(int position) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer record = buffer.slice(position, RECORD_SIZE - 4);
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+}
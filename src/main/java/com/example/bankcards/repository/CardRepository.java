@@ -1,18 +1,78 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.projection.CardView;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
-import com.example.bankcards.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
-    Page<Card> findAllByOwnerAndCardStatus(User owner, CardStatus cardStatus, Pageable pageable);
+    // Списки карт сразу подгружают владельца, которого читает CardMapper; количество считается отдельным запросом без join
+    @Query(value = "select c from Card c join fetch c.owner",
+            countQuery = "select count(c) from Card c")
+    Page<Card> findAllWithOwner(Pageable pageable);
+
+    @Query(value = "select c from Card c join fetch c.owner where c.cardStatus = :cardStatus",
+            countQuery = "select count(c) from Card c where c.cardStatus = :cardStatus")
+    Page<Card> findAllWithOwnerByCardStatus(@Param("cardStatus") CardStatus cardStatus, Pageable pageable);
+
+    @Query(value = "select c from Card c join fetch c.owner where c.owner.id = :ownerId",
+            countQuery = "select count(c) from Card c where c.owner.id = :ownerId")
+    Page<Card> findAllWithOwnerByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    @Query(value = "select c from Card c join fetch c.owner where c.owner.id = :ownerId and c.cardStatus = :cardStatus",
+            countQuery = "select count(c) from Card c where c.owner.id = :ownerId and c.cardStatus = :cardStatus")
+    Page<Card> findAllWithOwnerByOwnerIdAndCardStatus(@Param("ownerId") Long ownerId, @Param("cardStatus") CardStatus cardStatus,
+                                                    Pageable pageable);
+
+    @Query("select c from Card c join fetch c.owner where c.owner.id = :ownerId and c.cardStatus = :cardStatus")
+    Slice<Card> findSliceWithOwnerByOwnerIdAndCardStatus(@Param("ownerId") Long ownerId, @Param("cardStatus") CardStatus cardStatus,
+                                                       Pageable pageable);
+
+    @Query("select c from Card c join fetch c.owner where c.owner.id = :ownerId")
+    Slice<Card> findSliceWithOwnerByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+
+    @Query("select c from Card c join fetch c.owner where c.cardStatus = :cardStatus")
+    Slice<Card> findSliceWithOwnerByCardStatus(@Param("cardStatus") CardStatus cardStatus, Pageable pageable);
+
+    @Query("select c from Card c join fetch c.owner")
+    Slice<Card> findAllAsSlice(Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findByIdForUpdate(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "select set_config('lock_timeout', :timeout, true)", nativeQuery = true)
+    String setLockTimeout(@Param("timeout") String timeout);
 
-    Page<Card> findAllByOwner(User owner, Pageable pageable);
+    @Query(value = """
+            update t_card set balance = balance - :amount, version = version + 1
+            where id = :id and owner_id = :ownerId and status = 'ACTIVE' and balance >= :amount
+            returning id, number, expiry_date as "expiryDate", balance, status as "cardStatus"
+            """, nativeQuery = true)
+    Optional<CardView> debitIfAllowed(@Param("id") Long id, @Param("ownerId") Long ownerId, @Param("amount") BigDecimal amount);
 
-    Page<Card> findAllByCardStatus(CardStatus cardStatus, Pageable pageable);
+    @Query(value = """
+            update t_card set balance = balance + :amount, version = version + 1
+            where id = :id and owner_id = :ownerId and status = 'ACTIVE'
+            returning id, number, expiry_date as "expiryDate", balance, status as "cardStatus"
+            """, nativeQuery = true)
+    Optional<CardView> creditIfAllowed(@Param("id") Long id, @Param("ownerId") Long ownerId, @Param("amount") BigDecimal amount);
 }
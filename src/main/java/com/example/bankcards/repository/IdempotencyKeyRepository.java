@@ -0,0 +1,34 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+    Optional<IdempotencyKey> findByOwnerIdAndIdempotencyKeyAndExpiresAtAfter(Long ownerId, String idempotencyKey, LocalDateTime now);
+
+    Optional<IdempotencyKey> findByOwnerIdAndIdempotencyKey(Long ownerId, String idempotencyKey);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.ownerId = :ownerId and k.idempotencyKey = :idempotencyKey and k.response = :response")
+    int deleteByOwnerIdAndIdempotencyKeyAndResponse(@Param("ownerId") Long ownerId,
+                                                   @Param("idempotencyKey") String idempotencyKey,
+                                                   @Param("response") String response);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.ownerId = :ownerId and k.idempotencyKey = :idempotencyKey and k.expiresAt <= :now")
+    int deleteExpired(@Param("ownerId") Long ownerId,
+                      @Param("idempotencyKey") String idempotencyKey,
+                      @Param("now") LocalDateTime now);
+}
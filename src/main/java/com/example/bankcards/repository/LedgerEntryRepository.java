@@ -0,0 +1,31 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>, LedgerEntryRepositoryCustom {
+
+    @Query("select e from LedgerEntry e where e.card.id = :cardId order by e.id desc")
+    List<LedgerEntry> findLatestByCardId(@Param("cardId") Long cardId, Limit limit);
+
+    @Query("select e from LedgerEntry e where e.card.id = :cardId and e.id < :beforeId order by e.id desc")
+    List<LedgerEntry> findByCardIdBefore(@Param("cardId") Long cardId, @Param("beforeId") Long beforeId, Limit limit);
+
+    @Query(value = """
+            select balance_after from t_ledger_entry
+            where card_id = :cardId and created_at <= :at
+            order by created_at desc, id desc
+            limit 1
+            """, nativeQuery = true)
+    Optional<BigDecimal> findBalanceAt(@Param("cardId") Long cardId, @Param("at") LocalDateTime at);
+}
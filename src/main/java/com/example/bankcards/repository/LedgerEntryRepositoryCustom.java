@@ -0,0 +1,9 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerEntry;
+
+import java.util.List;
+
+public interface LedgerEntryRepositoryCustom {
+    void insertAll(List<LedgerEntry> entries);
+}
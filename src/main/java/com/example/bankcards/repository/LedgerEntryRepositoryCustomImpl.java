@@ -0,0 +1,38 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class LedgerEntryRepositoryCustomImpl implements LedgerEntryRepositoryCustom {
+
+    private static final String INSERT_LEDGER_ENTRY = """
+            insert into t_ledger_entry (card_id, transfer_id, entry_type, amount, balance_after, created_at)
+            values (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransferRollupRepository transferRollupRepository;
+
+    @Override
+    public void insertAll(List<LedgerEntry> entries) {
+        jdbcTemplate.batchUpdate(INSERT_LEDGER_ENTRY, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getCard().getId());
+            if (entry.getTransfer() != null) {
+                ps.setLong(2, entry.getTransfer().getId());
+            } else {
+                ps.setNull(2, Types.BIGINT);
+            }
+            ps.setString(3, entry.getEntryType().name());
+            ps.setBigDecimal(4, entry.getAmount());
+            ps.setBigDecimal(5, entry.getBalanceAfter());
+            ps.setTimestamp(6, Timestamp.valueOf(entry.getCreatedAt()));
+        });
+        transferRollupRepository.addAll(entries);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+    @Modifying
+    @Query(value = """
+            insert into t_revoked_token (jti, revoked_at, expires_at) values (:jti, :revokedAt, :expiresAt)
+            on conflict (jti) do nothing
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("jti") String jti, @Param("revokedAt") LocalDateTime revokedAt,
+                       @Param("expiresAt") LocalDateTime expiresAt);
+
+    boolean existsByJtiAndExpiresAtAfter(String jti, LocalDateTime now);
+
+    @Query("select t.jti from RevokedToken t where t.revokedAt >= :since and t.expiresAt > :now")
+    List<String> findJtisRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -2,13 +2,65 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.dto.TransferDto;
 import com.example.bankcards.entity.Transfer;
-import com.example.bankcards.entity.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface TransferRepository extends JpaRepository<Transfer, Long> {
-    Page<Transfer> findAllByOwner(User owner, Pageable pageable);
+public interface TransferRepository extends JpaRepository<Transfer, Long>, TransferRepositoryCustom {
+    // Запросы для выдачи переводов сразу подгружают карты и владельца, которые читает TransferMapper
+    @Override
+    @EntityGraph(attributePaths = {"fromCard", "toCard", "owner"})
+    Optional<Transfer> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = {"fromCard", "toCard", "owner"})
+    Page<Transfer> findAll(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"fromCard", "toCard", "owner"})
+    Page<Transfer> findAllByOwnerId(Long ownerId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"fromCard", "toCard", "owner"})
+    @Query("select t from Transfer t")
+    Slice<Transfer> findAllAsSlice(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"fromCard", "toCard", "owner"})
+    @Query("select t from Transfer t order by t.createdAt desc, t.id desc")
+    List<Transfer> findLatest(Limit limit);
+
+    @EntityGraph(attributePaths = {"fromCard", "toCard", "owner"})
+    @Query("select t from Transfer t where (t.createdAt, t.id) < (:createdAt, :id) order by t.createdAt desc, t.id desc")
+    List<Transfer> findLatestBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    @EntityGraph(attributePaths = {"fromCard", "toCard", "owner"})
+    @Query("select t from Transfer t where t.owner.id = :ownerId order by t.createdAt desc, t.id desc")
+    List<Transfer> findLatestByOwnerId(@Param("ownerId") Long ownerId, Limit limit);
+
+    @EntityGraph(attributePaths = {"fromCard", "toCard", "owner"})
+    @Query("""
+            select t from Transfer t
+            where t.owner.id = :ownerId and (t.createdAt, t.id) < (:createdAt, :id)
+            order by t.createdAt desc, t.id desc
+            """)
+    List<Transfer> findLatestByOwnerIdBefore(@Param("ownerId") Long ownerId, @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id, Limit limit);
+
+    @Query(value = """
+            select * from t_transfer
+            where status = 'IN_PROGRESS'
+            order by id
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<Transfer> findInProgressForUpdate(@Param("limit") int limit);
 }
@@ -0,0 +1,15 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transfer;
+
+import java.util.List;
+
+public interface TransferRepositoryCustom {
+    /**
+     * Вставляет переводы пакетом. Переводам без id номера выдаются из последовательности t_transfer,
+     * заранее выделенные через {@link #allocateIds(int)} сохраняются как есть.
+     */
+    void insertAll(List<Transfer> transfers);
+
+    List<Long> allocateIds(int count);
+}
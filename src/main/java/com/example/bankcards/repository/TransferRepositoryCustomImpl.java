@@ -0,0 +1,51 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transfer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class TransferRepositoryCustomImpl implements TransferRepositoryCustom {
+
+    private static final String INSERT_TRANSFER = """
+            insert into t_transfer (id, from_card_id, to_card_id, owner_id, amount, created_at, status)
+            values (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String NEXT_TRANSFER_IDS =
+            "select nextval(pg_get_serial_sequence('t_transfer', 'id')) from generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<Transfer> transfers) {
+        int missingIds = (int) transfers.stream().filter(transfer -> transfer.getId() == null).count();
+        if (missingIds > 0) {
+            Iterator<Long> ids = allocateIds(missingIds).iterator();
+            for (Transfer transfer : transfers) {
+                if (transfer.getId() == null) {
+                    transfer.setId(ids.next());
+                }
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_TRANSFER, transfers, transfers.size(), (ps, transfer) -> {
+            ps.setLong(1, transfer.getId());
+            ps.setLong(2, transfer.getFromCard().getId());
+            ps.setLong(3, transfer.getToCard().getId());
+            ps.setLong(4, transfer.getOwner().getId());
+            ps.setBigDecimal(5, transfer.getAmount());
+            ps.setTimestamp(6, Timestamp.valueOf(transfer.getCreatedAt()));
+            ps.setString(7, transfer.getTransferStatus().name());
+        });
+    }
+
+    @Override
+    public List<Long> allocateIds(int count) {
+        return jdbcTemplate.queryForList(NEXT_TRANSFER_IDS, Long.class, count);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.TransferStatsBucketDto;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerEntryType;
+import com.example.bankcards.service.StatsGranularity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Дневные итоги переводов по картам. Итоги обновляются в той же транзакции, что и проводки,
+ * и перед записью сворачиваются в памяти до одной строки на карту и день. Строки обновляются
+ * в порядке (карта, день), чтобы параллельные транзакции не блокировали друг друга взаимно.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransferRollupRepository {
+
+    private static final String UPSERT_ROLLUP = """
+            insert into t_card_daily_rollup
+                (card_id, rollup_date, outgoing_count, outgoing_amount, incoming_count, incoming_amount)
+            values (?, ?, ?, ?, ?, ?)
+            on conflict (card_id, rollup_date) do update set
+                outgoing_count = t_card_daily_rollup.outgoing_count + excluded.outgoing_count,
+                outgoing_amount = t_card_daily_rollup.outgoing_amount + excluded.outgoing_amount,
+                incoming_count = t_card_daily_rollup.incoming_count + excluded.incoming_count,
+                incoming_amount = t_card_daily_rollup.incoming_amount + excluded.incoming_amount
+            """;
+
+    private static final String SELECT_STATS = """
+            select %s as period,
+                   sum(r.outgoing_count) as outgoing_count, sum(r.outgoing_amount) as outgoing_amount,
+                   sum(r.incoming_count) as incoming_count, sum(r.incoming_amount) as incoming_amount
+            from t_card_daily_rollup r
+            %s
+            where %s and r.rollup_date between ? and ?
+            group by 1
+            order by 1
+            """;
+
+    private static final RowMapper<TransferStatsBucketDto> BUCKET_MAPPER = (rs, rowNum) -> TransferStatsBucketDto.builder()
+            .period(rs.getDate("period").toLocalDate())
+            .outgoingCount(rs.getLong("outgoing_count"))
+            .outgoingAmount(rs.getBigDecimal("outgoing_amount"))
+            .incomingCount(rs.getLong("incoming_count"))
+            .incomingAmount(rs.getBigDecimal("incoming_amount"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void addAll(List<LedgerEntry> entries) {
+        Map<RollupKey, Rollup> rollups = new TreeMap<>(Comparator.comparingLong(RollupKey::cardId).thenComparing(RollupKey::date));
+        for (LedgerEntry entry : entries) {
+            if (entry.getEntryType() == LedgerEntryType.OPENING) {
+                continue;
+            }
+            Rollup rollup = rollups.computeIfAbsent(
+                    new RollupKey(entry.getCard().getId(), entry.getCreatedAt().toLocalDate()), key -> new Rollup());
+            if (entry.getEntryType() == LedgerEntryType.DEBIT) {
+                rollup.outgoingCount++;
+                rollup.outgoingAmount = rollup.outgoingAmount.add(entry.getAmount());
+            } else {
+                rollup.incomingCount++;
+                rollup.incomingAmount = rollup.incomingAmount.add(entry.getAmount());
+            }
+        }
+        if (rollups.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<RollupKey, Rollup>> rows = new ArrayList<>(rollups.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getKey().cardId());
+            ps.setDate(2, Date.valueOf(row.getKey().date()));
+            ps.setLong(3, row.getValue().outgoingCount);
+            ps.setBigDecimal(4, row.getValue().outgoingAmount);
+            ps.setLong(5, row.getValue().incomingCount);
+            ps.setBigDecimal(6, row.getValue().incomingAmount);
+        });
+    }
+
+    public List<TransferStatsBucketDto> findCardStats(Long cardId, StatsGranularity granularity, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(SELECT_STATS.formatted(period(granularity), "", "r.card_id = ?"),
+                BUCKET_MAPPER, cardId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    public List<TransferStatsBucketDto> findOwnerStats(Long ownerId, StatsGranularity granularity, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(SELECT_STATS.formatted(period(granularity), "join t_card c on c.id = r.card_id", "c.owner_id = ?"),
+                BUCKET_MAPPER, ownerId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    private static String period(StatsGranularity granularity) {
+        return granularity == StatsGranularity.MONTH ? "cast(date_trunc('month', r.rollup_date) as date)" : "r.rollup_date";
+    }
+
+    private record RollupKey(long cardId, LocalDate date) {
+    }
+
+    private static class Rollup {
+        private long outgoingCount;
+        private BigDecimal outgoingAmount = BigDecimal.ZERO;
+        private long incomingCount;
+        private BigDecimal incomingAmount = BigDecimal.ZERO;
+    }
+}
@@ -1,14 +1,46 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.UserSummaryDto;
+import com.example.bankcards.dto.UserTokenVersionDto;
 import com.example.bankcards.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
 
+    @Modifying
+    @Query("update User u set u.password = :password where u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
+
     boolean existsUserByUsername(String username);
+
+    @Query("select u from User u")
+    Slice<User> findAllAsSlice(Pageable pageable);
+
+    @Query(value = """
+            select new com.example.bankcards.dto.UserSummaryDto(u.id, u.username, u.role, count(c.id), coalesce(sum(c.balance), 0))
+            from User u left join u.cards c
+            group by u.id, u.username, u.role
+            """,
+            countQuery = "select count(u) from User u")
+    Page<UserSummaryDto> findAllSummaries(Pageable pageable);
+
+    @Query("select new com.example.bankcards.dto.UserTokenVersionDto(u.id, u.tokenVersion) from User u order by u.id")
+    List<UserTokenVersionDto> findAllTokenVersions();
+
+    // Последнее выданное значение последовательности id, включая id уже удаленных пользователей
+    @Query(value = "select coalesce(pg_sequence_last_value(pg_get_serial_sequence('t_user', 'id')::regclass), 0)",
+            nativeQuery = true)
+    long findLastIssuedUserId();
 }
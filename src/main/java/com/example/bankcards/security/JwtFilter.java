@@ -1,6 +1,9 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.JwtValidationException;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,6 +24,10 @@ public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtProvider jwtProvider;
 
+    private final TokenVersionRegistry tokenVersionRegistry;
+
+    private final RevokedTokenRegistry revokedTokenRegistry;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException, JwtValidationException {
         String header = request.getHeader("Authorization");
@@ -30,9 +37,12 @@ public class JwtFilter extends OncePerRequestFilter {
         }
         String token = header.replace("Bearer ", "");
         try {
-            jwtProvider.validateToken(token);
+            Claims claims = jwtProvider.verify(token);
+            if (claims.getId() != null && revokedTokenRegistry.isRevoked(claims.getId())) {
+                throw new JwtValidationException("JWT токен отозван");
+            }
 
-            MyUserDetails myUserDetails = (MyUserDetails) myUserDetailsService.loadUserByUsername(jwtProvider.extractUsername(token));
+            MyUserDetails myUserDetails = principal(claims);
 
             UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
                     myUserDetails, null, myUserDetails.getAuthorities());
@@ -47,4 +57,21 @@ public class JwtFilter extends OncePerRequestFilter {
             response.getWriter().write("{\"error\": \"" + e.getMessage() + "\"}");
         }
     }
+
+    private MyUserDetails principal(Claims claims) {
+        Number userId = claims.get(JwtProvider.CLAIM_USER_ID, Number.class);
+        if (userId == null || !tokenVersionRegistry.isReady()) {
+            return (MyUserDetails) myUserDetailsService.loadUserByUsername(claims.getSubject());
+        }
+        int tokenVersion = claims.get(JwtProvider.CLAIM_TOKEN_VERSION, Number.class).intValue();
+        if (!tokenVersionRegistry.isCurrent(userId.longValue(), tokenVersion)) {
+            throw new JwtValidationException("JWT токен отозван");
+        }
+        return new MyUserDetails(User.builder()
+                .id(userId.longValue())
+                .username(claims.getSubject())
+                .role(Role.valueOf(claims.get(JwtProvider.CLAIM_ROLE, String.class)))
+                .tokenVersion(tokenVersion)
+                .build());
+    }
 }
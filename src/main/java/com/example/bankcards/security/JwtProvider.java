@@ -1,10 +1,16 @@
 package com.example.bankcards.security;
 
 
-import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.JwtValidationException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.example.bankcards.entity.User;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -14,12 +20,26 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Выпуск и проверка JWT. Токен разбирается одним переиспользуемым парсером, а проверенные токены
+ * кэшируются по SHA-256 от токена до момента истечения их срока, поэтому повторный запрос с тем же
+ * токеном не вычисляет подпись заново.
+ */
 @Component
 @RequiredArgsConstructor
 public class JwtProvider {
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
     @Value("${jwt.secret}")
     private String secret;
 
@@ -29,46 +49,109 @@ public class JwtProvider {
     @Value("${jwt.issuer}")
     private String issuer;
 
+    @Value("${jwt.verifiedCacheSize:10000}")
+    private long verifiedCacheSize;
+
+    @Value("${app.security.claims-auth.enabled:false}")
+    private boolean claimsAuthEnabled;
+
     SecretKey key;
 
+    private JwtParser parser;
+
+    private Cache<TokenDigest, VerifiedToken> verifiedTokens;
+
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .requireIssuer(issuer)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<TokenDigest, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(TokenDigest key, VerifiedToken value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.expiresAtMillis() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(TokenDigest key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
 
-    public String generateToken(String username) {
-        return Jwts.builder()
-                .setSubject(username)
+    /**
+     * В режиме аутентификации по claims в токен дополнительно подписываются id, роль и версия токена
+     * пользователя, чтобы фильтр мог построить пользователя без обращения к БД. Идентификатор токена (jti)
+     * позволяет отозвать его до истечения срока.
+     */
+    public String generateToken(User user) {
+        JwtBuilder builder = Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(user.getUsername())
                 .setIssuedAt(new Date())
                 .setIssuer(issuer)
-                .setExpiration(new Date(System.currentTimeMillis() + expiresIn))
-                .signWith(key, SignatureAlgorithm.HS256)
-                .compact();
+                .setExpiration(new Date(System.currentTimeMillis() + expiresIn));
+        if (claimsAuthEnabled && user.getId() != null) {
+            builder.claim(CLAIM_USER_ID, user.getId())
+                    .claim(CLAIM_ROLE, user.getRole().name())
+                    .claim(CLAIM_TOKEN_VERSION, user.getTokenVersion());
+        }
+        return builder.signWith(key, SignatureAlgorithm.HS256).compact();
     }
 
-    public String extractUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .requireIssuer(issuer)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
-    }
+    /**
+     * Проверяет подпись, издателя и срок действия токена и возвращает его claims.
+     */
+    public Claims verify(String token) throws JwtValidationException {
+        TokenDigest digest = TokenDigest.of(token);
+        VerifiedToken verified = verifiedTokens.getIfPresent(digest);
+        if (verified != null && verified.expiresAtMillis() > System.currentTimeMillis()) {
+            return verified.claims();
+        }
 
-    public void validateToken(String token) throws JwtValidationException {
+        Claims claims;
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .requireIssuer(issuer)
-                    .build()
-                    .parseClaimsJws(token);
+            claims = parser.parseClaimsJws(token).getBody();
         } catch (ExpiredJwtException e) {
             throw new JwtValidationException("JWT токен просрочен ");
-        } catch (JwtException e){
+        } catch (JwtException | IllegalArgumentException e) {
             throw new JwtValidationException("JWT токен невалиден");
         }
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(digest, new VerifiedToken(claims, claims.getExpiration().getTime()));
+        }
+        return claims;
+    }
+
+    private record VerifiedToken(Claims claims, long expiresAtMillis) {
+    }
 
+    /**
+     * Первые 128 бит SHA-256 от токена: ключ кэша фиксированного размера вместо самого токена.
+     */
+    private record TokenDigest(long high, long low) {
+        private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        private static TokenDigest of(String token) {
+            ByteBuffer hash = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+            return new TokenDigest(hash.getLong(), hash.getLong());
+        }
     }
 }
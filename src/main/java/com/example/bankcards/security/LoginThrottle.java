@@ -0,0 +1,120 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.util.ExponentialLockout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Неудачные входы по паре "имя пользователя + IP-адрес" и отдельно по IP-адресу. Заблокированная попытка
+ * отклоняется до проверки пароля, поэтому перебор паролей не тратит процессор на bcrypt. Блокировка по паре
+ * не мешает владельцу учетной записи войти с другого адреса, а более высокий порог по IP-адресу
+ * останавливает перебор множества имен с одного адреса. Успешный вход сбрасывает счетчик пары.
+ */
+@Component
+@RequiredArgsConstructor
+public class LoginThrottle {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.security.login-throttling.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.security.login-throttling.stripes:64}")
+    private int stripes;
+
+    @Value("${app.security.login-throttling.max-keys:100000}")
+    private int maxKeys;
+
+    @Value("${app.security.login-throttling.user-ip.max-failures:5}")
+    private int userIpMaxFailures;
+
+    @Value("${app.security.login-throttling.ip.max-failures:50}")
+    private int ipMaxFailures;
+
+    @Value("${app.security.login-throttling.base-lockout-ms:1000}")
+    private long baseLockoutMillis;
+
+    @Value("${app.security.login-throttling.max-lockout-ms:900000}")
+    private long maxLockoutMillis;
+
+    @Value("${app.security.login-throttling.forget-after-ms:3600000}")
+    private long forgetAfterMillis;
+
+    private ExponentialLockout byUserAndIp;
+    private ExponentialLockout byIp;
+    private final AtomicInteger trackedKeys = new AtomicInteger();
+
+    private Counter failures;
+    private Counter lockouts;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        long base = TimeUnit.MILLISECONDS.toNanos(baseLockoutMillis);
+        long max = TimeUnit.MILLISECONDS.toNanos(maxLockoutMillis);
+        long forgetAfter = TimeUnit.MILLISECONDS.toNanos(forgetAfterMillis);
+        byUserAndIp = new ExponentialLockout(stripes, maxKeys, userIpMaxFailures, base, max, forgetAfter);
+        byIp = new ExponentialLockout(stripes, maxKeys, ipMaxFailures, base, max, forgetAfter);
+
+        failures = Counter.builder("auth.login.failures").register(meterRegistry);
+        lockouts = Counter.builder("auth.login.lockouts").register(meterRegistry);
+        rejected = Counter.builder("auth.login.rejected").register(meterRegistry);
+        Gauge.builder("auth.login.tracked.keys", trackedKeys, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Возвращает 0, если попытку входа можно проверять, иначе оставшееся время блокировки в наносекундах.
+     */
+    public long lockedFor(String username, String ip) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long lockedNanos = Math.max(byIp.lockedFor(ip, now), byUserAndIp.lockedFor(key(username, ip), now));
+        if (lockedNanos > 0) {
+            rejected.increment();
+        }
+        return lockedNanos;
+    }
+
+    public void recordFailure(String username, String ip) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        failures.increment();
+        long userIpLockout = byUserAndIp.recordFailure(key(username, ip), now);
+        long ipLockout = byIp.recordFailure(ip, now);
+        if (userIpLockout > 0 || ipLockout > 0) {
+            lockouts.increment();
+        }
+    }
+
+    public void recordSuccess(String username, String ip) {
+        if (enabled) {
+            byUserAndIp.reset(key(username, ip));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.login-throttling.sweep-interval-ms:60000}")
+    public void sweep() {
+        if (enabled) {
+            long now = System.nanoTime();
+            trackedKeys.set(byUserAndIp.sweep(now) + byIp.sweep(now));
+        }
+    }
+
+    // IP-адрес не содержит '|', поэтому ключ однозначен при любом имени пользователя
+    private static String key(String username, String ip) {
+        return ip + '|' + username;
+    }
+}
@@ -1,10 +1,14 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.UserNotFoundException;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
@@ -17,6 +21,29 @@ import java.util.stream.Collectors;
 public class MyUserDetails implements UserDetails {
     private final User user;
 
+    /**
+     * Пользователь текущего запроса, уже найденный JwtFilter: id и роль доступны без повторного чтения t_user.
+     */
+    public static MyUserDetails current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof MyUserDetails principal)) {
+            throw new UserNotFoundException("Пользователь не аутентифицирован");
+        }
+        return principal;
+    }
+
+    public Long getId() {
+        return user.getId();
+    }
+
+    public Role getRole() {
+        return user.getRole();
+    }
+
+    public boolean isAdmin() {
+        return user.getRole() == Role.ADMIN;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole().toString()));
@@ -2,28 +2,96 @@ package com.example.bankcards.security;
 
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.Optional;
+import java.time.Duration;
 
+/**
+ * Данные пользователя для аутентификации кэшируются по имени на короткое время, чтобы запрос с токеном
+ * не читал t_user. При изменении или удалении пользователя запись удаляется из кэша после фиксации транзакции.
+ * Хеш пароля, вычисленный с меньшей стоимостью, чем настроенная, при успешном входе пересчитывается и сохраняется.
+ */
 @Service
 @RequiredArgsConstructor
-public class MyUserDetailsService implements UserDetailsService {
+public class MyUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.security.user-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.security.user-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private Cache<String, MyUserDetails> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+    }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Optional<User> user = userRepository.findByUsername(username);
+        return cache.get(username, this::load);
+    }
 
-        if (user.isPresent()) {
-            return new MyUserDetails(user.get());
-        }
-        else{
-            throw new UsernameNotFoundException("Пользователь с именем - " + username + ", не найден");
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        evict(user.getUsername());
+        User current = ((MyUserDetails) user).getUser();
+        return new MyUserDetails(User.builder()
+                .id(current.getId())
+                .username(current.getUsername())
+                .password(newPassword)
+                .role(current.getRole())
+                .tokenVersion(current.getTokenVersion())
+                .build());
+    }
+
+    public void evict(String username) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(username);
+                }
+            });
+        } else {
+            cache.invalidate(username);
         }
     }
+
+    private MyUserDetails load(String username) {
+        User user = userRepository.findByUsername(username).orElseThrow(
+                () -> new UsernameNotFoundException("Пользователь с именем - " + username + ", не найден"));
+        // В кэш попадает отсоединенная копия без ленивой коллекции карт
+        return new MyUserDetails(User.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .password(user.getPassword())
+                .role(user.getRole())
+                .tokenVersion(user.getTokenVersion())
+                .build());
+    }
 }
@@ -0,0 +1,71 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.dto.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничивает частоту создания переводов (по пользователю и по IP-адресу) и входа и регистрации
+ * (по IP-адресу). Стоит после {@link JwtFilter}, чтобы пользователь уже был известен.
+ */
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String TRANSFERS_PATH = "/api/transfers";
+    private static final String AUTH_PATH = "/api/auth/";
+
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!rateLimiter.isEnabled() || !HttpMethod.POST.matches(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith(AUTH_PATH) && !path.equals(TRANSFERS_PATH) && !path.startsWith(TRANSFERS_PATH + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        long waitNanos;
+        if (path.startsWith(AUTH_PATH)) {
+            waitNanos = rateLimiter.acquireAuthByIp(request.getRemoteAddr());
+        } else {
+            waitNanos = rateLimiter.acquireTransferByIp(request.getRemoteAddr());
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (waitNanos == 0 && authentication != null && authentication.isAuthenticated()) {
+                waitNanos = rateLimiter.acquireTransferByUser(authentication.getName());
+            }
+        }
+
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            objectMapper.writeValue(response.getWriter(), new ErrorResponse(HttpStatus.TOO_MANY_REQUESTS.value(),
+                    "Слишком много запросов, повторите через " + retryAfterSeconds + " с", LocalDateTime.now()));
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
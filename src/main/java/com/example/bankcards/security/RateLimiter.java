@@ -0,0 +1,120 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.util.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Корзины токенов по ключам (пользователь или IP-адрес) в {@link ConcurrentHashMap}: чтение без блокировок,
+ * запись корзины - один CAS. Периодическая очистка удаляет заполнившиеся корзины - заполненная корзина
+ * равна новой, поэтому удаление ничего не меняет. Число ключей ограничено; если очистка не освободила места,
+ * новые ключи делят одну общую корзину.
+ */
+@Slf4j
+@Component
+public class RateLimiter {
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rate-limit.max-keys:100000}")
+    private int maxKeys;
+
+    @Value("${app.rate-limit.transfer-user.capacity:50}")
+    private int transferUserCapacity;
+
+    @Value("${app.rate-limit.transfer-user.per-second:20}")
+    private double transferUserPerSecond;
+
+    @Value("${app.rate-limit.transfer-ip.capacity:200}")
+    private int transferIpCapacity;
+
+    @Value("${app.rate-limit.transfer-ip.per-second:100}")
+    private double transferIpPerSecond;
+
+    @Value("${app.rate-limit.auth-ip.capacity:10}")
+    private int authIpCapacity;
+
+    @Value("${app.rate-limit.auth-ip.per-second:1}")
+    private double authIpPerSecond;
+
+    private Buckets transferUserBuckets;
+    private Buckets transferIpBuckets;
+    private Buckets authIpBuckets;
+
+    @PostConstruct
+    public void init() {
+        transferUserBuckets = new Buckets(transferUserCapacity, transferUserPerSecond);
+        transferIpBuckets = new Buckets(transferIpCapacity, transferIpPerSecond);
+        authIpBuckets = new Buckets(authIpCapacity, authIpPerSecond);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Возвращают 0, если запрос разрешен, иначе время в наносекундах до появления токена.
+     */
+    public long acquireTransferByUser(String username) {
+        return transferUserBuckets.acquire(username);
+    }
+
+    public long acquireTransferByIp(String ip) {
+        return transferIpBuckets.acquire(ip);
+    }
+
+    public long acquireAuthByIp(String ip) {
+        return authIpBuckets.acquire(ip);
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        transferUserBuckets.sweep(now);
+        transferIpBuckets.sweep(now);
+        authIpBuckets.sweep(now);
+    }
+
+    private class Buckets {
+        private final int capacity;
+        private final double perSecond;
+        private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+        private final TokenBucket overflow;
+
+        private Buckets(int capacity, double perSecond) {
+            this.capacity = capacity;
+            this.perSecond = perSecond;
+            this.overflow = new TokenBucket(capacity, perSecond, System.nanoTime());
+        }
+
+        private long acquire(String key) {
+            long now = System.nanoTime();
+            TokenBucket bucket = buckets.get(key);
+            if (bucket == null) {
+                if (buckets.size() >= maxKeys) {
+                    sweep(now);
+                }
+                if (buckets.size() >= maxKeys) {
+                    bucket = overflow;
+                } else {
+                    bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, perSecond, now));
+                }
+            }
+            return bucket.tryAcquire(now);
+        }
+
+        private void sweep(long now) {
+            int before = buckets.size();
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+            if (buckets.size() >= maxKeys) {
+                log.warn("Превышено число корзин ограничения запросов: {}, новые ключи используют общую корзину", before);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.util.BloomFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Отозванные до истечения срока JWT. Список хранится в t_revoked_token, а идентификаторы (jti) отозванных
+ * токенов копируются в фильтр Блума. Для подавляющего большинства токенов фильтр отвечает "точно не отозван"
+ * без обращения к БД, и только при положительном ответе фильтра отзыв подтверждается запросом.
+ * Фильтр дополняется записями, отозванными с момента прошлого чтения (с запасом overlap-ms на транзакции,
+ * зафиксированные позже, чем было проставлено время отзыва), и периодически строится заново, чтобы
+ * из него выпали истекшие токены. Отзыв на этом узле попадает в фильтр сразу после фиксации транзакции.
+ */
+@Component
+@RequiredArgsConstructor
+public class RevokedTokenRegistry {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${app.security.revocation.expected-tokens:100000}")
+    private int expectedTokens;
+
+    @Value("${app.security.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.security.revocation.overlap-ms:10000}")
+    private long overlapMillis;
+
+    @Value("${app.security.revocation.rebuild-interval-ms:3600000}")
+    private long rebuildIntervalMillis;
+
+    private volatile BloomFilter filter;
+
+    // Поля ниже защищены блокировкой на this
+    private LocalDateTime loadedAt;
+    private long rebuiltAtMillis;
+    private int insertions;
+    private List<String> rebuildBacklog;
+
+    /**
+     * До первой загрузки фильтра каждый токен проверяется по БД.
+     */
+    public boolean isRevoked(String jti) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(jti)) {
+            return false;
+        }
+        return revokedTokenRepository.existsByJtiAndExpiresAtAfter(jti, LocalDateTime.now());
+    }
+
+    @Transactional
+    public void revoke(String jti, LocalDateTime expiresAt) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!expiresAt.isAfter(now)) {
+            return;
+        }
+        // Повторный отзыв того же токена параллельным запросом ничего не меняет
+        revokedTokenRepository.insertIfAbsent(jti, now, expiresAt);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(jti);
+                }
+            });
+        } else {
+            add(jti);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation.refresh-interval-ms:5000}")
+    public void refresh() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime since;
+        synchronized (this) {
+            if (filter == null || insertions > expectedTokens
+                    || System.currentTimeMillis() - rebuiltAtMillis >= rebuildIntervalMillis) {
+                rebuildBacklog = new ArrayList<>();
+                since = null;
+            } else {
+                since = loadedAt.minusNanos(overlapMillis * 1_000_000);
+            }
+        }
+
+        if (since == null) {
+            rebuild(startedAt);
+            return;
+        }
+        List<String> jtis = revokedTokenRepository.findJtisRevokedSince(since, startedAt);
+        synchronized (this) {
+            jtis.forEach(filter::put);
+            insertions += jtis.size();
+            loadedAt = startedAt;
+        }
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.security.revocation.sweep-interval-ms:600000}")
+    public int deleteExpired() {
+        return revokedTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private void rebuild(LocalDateTime startedAt) {
+        List<String> jtis;
+        try {
+            jtis = revokedTokenRepository.findJtisRevokedSince(LocalDateTime.of(1970, 1, 1, 0, 0), startedAt);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                rebuildBacklog = null;
+            }
+            throw e;
+        }
+        BloomFilter next = new BloomFilter(expectedTokens, falsePositiveRate);
+        jtis.forEach(next::put);
+        synchronized (this) {
+            rebuildBacklog.forEach(next::put);
+            filter = next;
+            insertions = jtis.size() + rebuildBacklog.size();
+            rebuildBacklog = null;
+            loadedAt = startedAt;
+            rebuiltAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    private synchronized void add(String jti) {
+        if (filter != null) {
+            filter.put(jti);
+            insertions++;
+        }
+        if (rebuildBacklog != null) {
+            rebuildBacklog.add(jti);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.dto.UserTokenVersionDto;
+import com.example.bankcards.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Текущие версии токенов пользователей для аутентификации по claims без обращения к t_user.
+ * Снимок хранится в двух отсортированных по id массивах и периодически перечитывается из БД, изменения
+ * на этом узле применяются сразу после фиксации транзакции. Перечитанный снимок заменяет текущий целиком,
+ * поверх него применяются только изменения, зафиксированные на этом узле после начала чтения: версии растут,
+ * поэтому для каждого пользователя берется большая.
+ * Граница снимка - последнее выданное значение последовательности id t_user, прочитанное до строк.
+ * Пользователь с id больше нее зарегистрирован после загрузки снимка, для него действительна только начальная
+ * версия. Неизвестный id не больше границы принадлежит удаленному пользователю.
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenVersionRegistry {
+
+    // Версия удаленного пользователя: ни один выпущенный токен с ней не совпадет
+    private static final int REVOKED = Integer.MAX_VALUE;
+
+    private final UserRepository userRepository;
+
+    @Value("${app.security.claims-auth.enabled:false}")
+    private boolean enabled;
+
+    private final Object refreshLock = new Object();
+
+    private volatile Snapshot snapshot;
+
+    // Изменения, примененные во время чтения снимка из БД; null, пока чтение не идет
+    private Map<Long, Integer> appliedDuringRead;
+
+    /**
+     * Снимок загружен и токены с claims можно проверять без БД.
+     */
+    public boolean isReady() {
+        return enabled && snapshot != null;
+    }
+
+    public boolean isCurrent(long userId, int tokenVersion) {
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.userIds, userId);
+        if (index >= 0) {
+            return current.versions[index] == tokenVersion;
+        }
+        return userId > current.maxUserId && tokenVersion == 0;
+    }
+
+    public void update(long userId, int tokenVersion) {
+        afterCommit(userId, tokenVersion);
+    }
+
+    public void revoke(long userId) {
+        afterCommit(userId, REVOKED);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.claims-auth.refresh-interval-ms:5000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (refreshLock) {
+            synchronized (this) {
+                appliedDuringRead = new HashMap<>();
+            }
+            try {
+                long maxUserId = userRepository.findLastIssuedUserId();
+                Snapshot loaded = load(userRepository.findAllTokenVersions(), maxUserId);
+                synchronized (this) {
+                    for (Map.Entry<Long, Integer> change : appliedDuringRead.entrySet()) {
+                        loaded = with(loaded, change.getKey(), change.getValue());
+                    }
+                    snapshot = loaded;
+                }
+            } finally {
+                synchronized (this) {
+                    appliedDuringRead = null;
+                }
+            }
+        }
+    }
+
+    private void afterCommit(long userId, int tokenVersion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(userId, tokenVersion);
+                }
+            });
+        } else {
+            apply(userId, tokenVersion);
+        }
+    }
+
+    private synchronized void apply(long userId, int tokenVersion) {
+        if (appliedDuringRead != null) {
+            appliedDuringRead.merge(userId, tokenVersion, Math::max);
+        }
+        if (snapshot != null) {
+            snapshot = with(snapshot, userId, tokenVersion);
+        }
+    }
+
+    private static Snapshot with(Snapshot current, long userId, int tokenVersion) {
+        int index = Arrays.binarySearch(current.userIds, userId);
+        if (index >= 0) {
+            int[] versions = current.versions.clone();
+            versions[index] = Math.max(versions[index], tokenVersion);
+            return new Snapshot(current.userIds, versions, current.maxUserId);
+        }
+        int insertAt = -index - 1;
+        long[] userIds = new long[current.userIds.length + 1];
+        int[] versions = new int[userIds.length];
+        System.arraycopy(current.userIds, 0, userIds, 0, insertAt);
+        System.arraycopy(current.versions, 0, versions, 0, insertAt);
+        userIds[insertAt] = userId;
+        versions[insertAt] = tokenVersion;
+        System.arraycopy(current.userIds, insertAt, userIds, insertAt + 1, current.userIds.length - insertAt);
+        System.arraycopy(current.versions, insertAt, versions, insertAt + 1, current.versions.length - insertAt);
+        return new Snapshot(userIds, versions, current.maxUserId);
+    }
+
+    /**
+     * Строки БД идут по возрастанию id.
+     */
+    private static Snapshot load(List<UserTokenVersionDto> rows, long maxUserId) {
+        long[] userIds = new long[rows.size()];
+        int[] versions = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            userIds[i] = rows.get(i).getUserId();
+            versions[i] = rows.get(i).getTokenVersion();
+        }
+        return new Snapshot(userIds, versions, maxUserId);
+    }
+
+    private record Snapshot(long[] userIds, int[] versions, long maxUserId) {
+    }
+}
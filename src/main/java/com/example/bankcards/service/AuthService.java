@@ -1,9 +1,11 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.AuthRequest;
-import com.example.bankcards.security.MyUserDetails;
+import com.example.bankcards.dto.AuthResponse;
 
 public interface AuthService {
-    String login(AuthRequest authRequest);
-    String register(AuthRequest authRequest);
+    AuthResponse login(AuthRequest authRequest, String clientIp);
+    AuthResponse register(AuthRequest authRequest);
+    AuthResponse refresh(String refreshToken);
+    void logout(String accessToken, String refreshToken);
 }
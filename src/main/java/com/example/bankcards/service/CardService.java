@@ -1,21 +1,27 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardLedgerDto;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UpdateCardRequest;
 import com.example.bankcards.entity.CardStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 public interface CardService {
     CardDto createCard(CreateCardRequest request);
     Page<CardDto> getAllCards(Pageable pageable, String cardStatus, String ownerUsername);
-    Page<CardDto> getMyCards(Pageable pageable, String cardStatus, String ownerUsername);
+    SliceDto<CardDto> getAllCardsSlice(Pageable pageable, String cardStatus, String ownerUsername, boolean estimateTotal);
+    Page<CardDto> getMyCards(Pageable pageable, String cardStatus);
     CardDto getCard(Long id);
-    CardDto blockUserCard(Long cardId, String ownerUsername);
+    CardDto blockUserCard(Long cardId);
     CardDto updateCard(UpdateCardRequest request, Long id);
     void deleteCard(Long id);
     BigDecimal getCardBalance(Long id);
+    BigDecimal getCardBalanceAt(Long id, LocalDateTime at);
+    CardLedgerDto getCardLedger(Long id, Long before, int size);
 }
@@ -0,0 +1,15 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.TransferDto;
+
+import java.util.Optional;
+
+public interface IdempotencyService {
+    Optional<TransferDto> findTransfer(Long ownerId, String idempotencyKey, CreateTransferRequest request);
+    void saveTransfer(Long ownerId, String idempotencyKey, CreateTransferRequest request, TransferDto transfer);
+    void claimTransfer(Long ownerId, String idempotencyKey, CreateTransferRequest request);
+    void completeTransfer(Long ownerId, String idempotencyKey, TransferDto transfer);
+    void releaseTransfer(Long ownerId, String idempotencyKey);
+    int deleteExpiredKeys();
+}
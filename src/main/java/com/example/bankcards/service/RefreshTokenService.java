@@ -0,0 +1,11 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.RotatedRefreshToken;
+
+public interface RefreshTokenService {
+    String issue(Long userId);
+    RotatedRefreshToken rotate(String refreshToken);
+    void revoke(String refreshToken);
+    void revokeAll(Long userId);
+    int deleteExpiredTokens();
+}
@@ -0,0 +1,6 @@
+package com.example.bankcards.service;
+
+public interface RowCountEstimateService {
+    long estimateTableRows(String table);
+    long estimateQueryRows(String sql, Object... args);
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface TransferBatchService {
+    void processBatch(InputStream input, OutputStream output, String username) throws IOException;
+}
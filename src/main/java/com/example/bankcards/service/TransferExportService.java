@@ -0,0 +1,9 @@
+package com.example.bankcards.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface TransferExportService {
+    long exportTransfers(LocalDateTime from, LocalDateTime to, TransferExportFormat format, OutputStream output) throws IOException;
+}
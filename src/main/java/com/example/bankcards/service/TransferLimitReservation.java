@@ -0,0 +1,57 @@
+package com.example.bankcards.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сумма перевода, учтенная в суточных лимитах владельца и карты отправителя. Снимается не более одного раза.
+ */
+public class TransferLimitReservation {
+
+    private final long ownerId;
+    private final long fromCardId;
+    private final long amountMinor;
+    private final long reservedAtMillis;
+    private final long generation;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    public TransferLimitReservation(long ownerId, long fromCardId, long amountMinor, long reservedAtMillis,
+                                    long generation) {
+        this.ownerId = ownerId;
+        this.fromCardId = fromCardId;
+        this.amountMinor = amountMinor;
+        this.reservedAtMillis = reservedAtMillis;
+        this.generation = generation;
+    }
+
+    public long getOwnerId() {
+        return ownerId;
+    }
+
+    public long getFromCardId() {
+        return fromCardId;
+    }
+
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public long getReservedAtMillis() {
+        return reservedAtMillis;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public boolean markReleased() {
+        return released.compareAndSet(false, true);
+    }
+
+    /**
+     * Закрепляет сумму в лимитах: последующие попытки снять резерв, в том числе при откате транзакции,
+     * ничего не делают.
+     */
+    public void markConfirmed() {
+        released.set(true);
+    }
+}
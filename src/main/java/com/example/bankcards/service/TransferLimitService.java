@@ -0,0 +1,12 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.User;
+
+import java.math.BigDecimal;
+
+public interface TransferLimitService {
+    TransferLimitReservation reserve(User owner, Long fromCardId, BigDecimal amount);
+    void release(TransferLimitReservation reservation);
+    void confirm(TransferLimitReservation reservation);
+    void reconcile();
+}
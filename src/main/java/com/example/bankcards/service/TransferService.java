@@ -1,6 +1,9 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.SliceDto;
+import com.example.bankcards.dto.TransferBatchResult;
+import com.example.bankcards.dto.TransferCursorPageDto;
 import com.example.bankcards.dto.TransferDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -9,7 +12,14 @@ import java.math.BigDecimal;
 import java.util.List;
 
 public interface TransferService {
-    TransferDto createTransfer(CreateTransferRequest request);
+    TransferDto createTransfer(CreateTransferRequest request, String idempotencyKey);
+    TransferDto submitTransfer(CreateTransferRequest request, String idempotencyKey);
+    List<TransferBatchResult> createTransfers(List<CreateTransferRequest> requests, String username);
+    int settlePendingTransfers(int limit);
+    TransferDto getTransfer(Long id);
     Page<TransferDto> getAllTransfers(Pageable pageable);
+    SliceDto<TransferDto> getAllTransfersSlice(Pageable pageable, boolean estimateTotal);
     Page<TransferDto> getMyTransfers(Pageable pageable);
+    TransferCursorPageDto getAllTransfers(String cursor, int size);
+    TransferCursorPageDto getMyTransfers(String cursor, int size);
 }
@@ -0,0 +1,9 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferStatsDto;
+
+import java.time.LocalDate;
+
+public interface TransferStatsService {
+    TransferStatsDto getStats(Long userId, Long cardId, StatsGranularity granularity, LocalDate from, LocalDate to);
+}
@@ -1,7 +1,9 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.dto.UserResponse;
+import com.example.bankcards.dto.UserSummaryDto;
 import com.example.bankcards.dto.UserUpdateDto;
 import com.example.bankcards.entity.User;
 import org.springframework.data.domain.Page;
@@ -10,6 +12,8 @@ import org.springframework.data.domain.Pageable;
 public interface UserService {
     UserResponse getMyUserInfo();
     Page<UserResponse> getAllUsers(Pageable pageable);
+    SliceDto<UserResponse> getAllUsersSlice(Pageable pageable, boolean estimateTotal);
+    Page<UserSummaryDto> getUserSummaries(Pageable pageable);
     UserResponse getUserById(Long id);
     UserResponse updateUser(UserUpdateDto request, Long id);
     void deleteUser(Long id);
@@ -1,21 +1,36 @@
 package com.example.bankcards.service.impl;
 
 import com.example.bankcards.dto.AuthRequest;
+import com.example.bankcards.dto.AuthResponse;
+import com.example.bankcards.dto.RotatedRefreshToken;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
+import com.example.bankcards.exception.LoginLockedException;
 import com.example.bankcards.exception.UsernameAlreadyTakenException;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtProvider;
+import com.example.bankcards.security.LoginThrottle;
 import com.example.bankcards.security.MyUserDetails;
+import com.example.bankcards.security.RevokedTokenRegistry;
+import com.example.bankcards.security.TokenVersionRegistry;
 import com.example.bankcards.service.AuthService;
+import com.example.bankcards.service.RefreshTokenService;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
@@ -27,36 +42,90 @@ public class AuthServiceImpl implements AuthService {
 
     private final JwtProvider jwtProvider;
 
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordEncoder passwordEncoder;
+
+    private final RefreshTokenService refreshTokenService;
+
+    private final RevokedTokenRegistry revokedTokenRegistry;
+
+    private final LoginThrottle loginThrottle;
+
+    private final TokenVersionRegistry tokenVersionRegistry;
 
+    // Проверка пароля идет без открытой транзакции, refresh токен сохраняется в собственной
     @Override
-    public String login(AuthRequest authRequest) {
-        Authentication authentication = authenticationManager
-                .authenticate(new UsernamePasswordAuthenticationToken(
-                        authRequest.getUsername(),
-                        authRequest.getPassword()
-        ));
-
-        return jwtProvider.generateToken(((MyUserDetails) authentication.getPrincipal()).getUsername());
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public AuthResponse login(AuthRequest authRequest, String clientIp) {
+        long lockedNanos = loginThrottle.lockedFor(authRequest.getUsername(), clientIp);
+        if (lockedNanos > 0) {
+            long retryAfterSeconds = Math.max(1, (lockedNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            throw new LoginLockedException("Слишком много неудачных попыток входа, повторите через "
+                    + retryAfterSeconds + " с", retryAfterSeconds);
+        }
+
+        Authentication authentication;
+        try {
+            authentication = authenticationManager
+                    .authenticate(new UsernamePasswordAuthenticationToken(
+                            authRequest.getUsername(),
+                            authRequest.getPassword()
+            ));
+        } catch (AuthenticationException e) {
+            loginThrottle.recordFailure(authRequest.getUsername(), clientIp);
+            throw e;
+        }
+        loginThrottle.recordSuccess(authRequest.getUsername(), clientIp);
+
+        return issueTokens(((MyUserDetails) authentication.getPrincipal()).getUser());
     }
 
     @Override
     @Transactional
-    public String register(AuthRequest authRequest) {
+    public AuthResponse register(AuthRequest authRequest) {
         if (userRepository.existsUserByUsername(authRequest.getUsername())) {
             throw new UsernameAlreadyTakenException("Данное имя пользователя уже занято");
         }
         else{
             User newUser = User.builder()
                     .username(authRequest.getUsername())
-                    .password(bCryptPasswordEncoder.encode(authRequest.getPassword()))
+                    .password(passwordEncoder.encode(authRequest.getPassword()))
                     .role(Role.USER)
                     .build();
             userRepository.save(newUser);
+            // Снимок, прочитанный между выдачей id и фиксацией, не содержит пользователя и не считает его новым
+            tokenVersionRegistry.update(newUser.getId(), newUser.getTokenVersion());
 
-            return jwtProvider.generateToken(newUser.getUsername());
+            return issueTokens(newUser);
         }
     }
 
+    @Override
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public AuthResponse refresh(String refreshToken) {
+        RotatedRefreshToken rotated = refreshTokenService.rotate(refreshToken);
+        User user = userRepository.findById(rotated.getUserId()).orElseThrow(
+                () -> new InvalidRefreshTokenException("Refresh токен невалиден")
+        );
+        return new AuthResponse(jwtProvider.generateToken(user), rotated.getRefreshToken());
+    }
+
+    @Override
+    @Transactional
+    public void logout(String accessToken, String refreshToken) {
+        if (accessToken != null) {
+            Claims claims = jwtProvider.verify(accessToken);
+            if (claims.getId() != null) {
+                revokedTokenRegistry.revoke(claims.getId(),
+                        LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault()));
+            }
+        }
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken);
+        }
+    }
+
+    private AuthResponse issueTokens(User user) {
+        return new AuthResponse(jwtProvider.generateToken(user), refreshTokenService.issue(user.getId()));
+    }
 
 }
@@ -1,31 +1,46 @@
 package com.example.bankcards.service.impl;
 
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardLedgerDto;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.LedgerEntryDto;
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UpdateCardRequest;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
-import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerEntryType;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.AccessToResourceDeniedException;
+import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.ledger.LedgerEngine;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.MyUserDetails;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.RowCountEstimateService;
 import com.example.bankcards.util.CardMapper;
 import com.example.bankcards.util.CardNumberUtils;
+import com.example.bankcards.util.LedgerEntryMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -36,6 +51,10 @@ public class CardServiceImpl implements CardService {
     private final UserRepository userRepository;
     private final CardNumberUtils cardNumberUtils;
     private final CardMapper cardMapper;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerEntryMapper ledgerEntryMapper;
+    private final RowCountEstimateService rowCountEstimateService;
+    private final ObjectProvider<LedgerEngine> ledgerEngineProvider;
 
     @Value("${app.security.card-expiration-years:2}")
     private int cardExpirationYears;
@@ -57,8 +76,17 @@ public class CardServiceImpl implements CardService {
                     .balance(request.getBalance())
                     .expiryDate(LocalDateTime.now().plusYears(cardExpirationYears))
                     .build();
+            cardRepository.save(card);
 
-            return cardMapper.toCardDto(cardRepository.save(card));
+            ledgerEntryRepository.save(LedgerEntry.builder()
+                    .card(card)
+                    .entryType(LedgerEntryType.OPENING)
+                    .amount(card.getBalance())
+                    .balanceAfter(card.getBalance())
+                    .createdAt(LocalDateTime.now())
+                    .build());
+
+            return cardMapper.toCardDto(card);
         }
 
     }
@@ -73,29 +101,66 @@ public class CardServiceImpl implements CardService {
         Page<Card> cards;
 
         if (owner != null && cardStatus != null) {
-            cards = cardRepository.findAllByOwnerAndCardStatus(owner, CardStatus.valueOf(cardStatus.toUpperCase()), pageable);
+            cards = cardRepository.findAllWithOwnerByOwnerIdAndCardStatus(owner.getId(), CardStatus.valueOf(cardStatus.toUpperCase()), pageable);
         } else if (owner != null) {
-            cards = cardRepository.findAllByOwner(owner, pageable);
+            cards = cardRepository.findAllWithOwnerByOwnerId(owner.getId(), pageable);
         } else if (cardStatus != null) {
-            cards = cardRepository.findAllByCardStatus(CardStatus.valueOf(cardStatus.toUpperCase()), pageable);
+            cards = cardRepository.findAllWithOwnerByCardStatus(CardStatus.valueOf(cardStatus.toUpperCase()), pageable);
         } else {
-            cards = cardRepository.findAll(pageable);
+            cards = cardRepository.findAllWithOwner(pageable);
         }
 
         return cards.map(cardMapper::toCardDto);
     }
 
     @Override
-    public Page<CardDto> getMyCards(Pageable pageable, String cardStatus, String ownerUsername) {
-        User owner = userRepository.findByUsername(ownerUsername).orElseThrow(
-                () -> new UserNotFoundException("Пользователь " + ownerUsername + " не найден")
-        );
+    public SliceDto<CardDto> getAllCardsSlice(Pageable pageable, String cardStatus, String ownerUsername, boolean estimateTotal) {
+        User owner = null;
+        if (ownerUsername != null) {
+            owner = userRepository.findByUsername(ownerUsername).orElseThrow(
+                    () -> new UserNotFoundException("Пользователь с именем " + ownerUsername + " не найден"));
+        }
+        CardStatus status = cardStatus != null ? CardStatus.valueOf(cardStatus.toUpperCase()) : null;
+        Slice<Card> cards;
+        Long estimatedTotal = null;
+
+        if (owner != null && status != null) {
+            cards = cardRepository.findSliceWithOwnerByOwnerIdAndCardStatus(owner.getId(), status, pageable);
+            if (estimateTotal) {
+                estimatedTotal = rowCountEstimateService.estimateQueryRows(
+                        "select 1 from t_card where owner_id = ? and status = ?", owner.getId(), status.name());
+            }
+        } else if (owner != null) {
+            cards = cardRepository.findSliceWithOwnerByOwnerId(owner.getId(), pageable);
+            if (estimateTotal) {
+                estimatedTotal = rowCountEstimateService.estimateQueryRows(
+                        "select 1 from t_card where owner_id = ?", owner.getId());
+            }
+        } else if (status != null) {
+            cards = cardRepository.findSliceWithOwnerByCardStatus(status, pageable);
+            if (estimateTotal) {
+                estimatedTotal = rowCountEstimateService.estimateQueryRows(
+                        "select 1 from t_card where status = ?", status.name());
+            }
+        } else {
+            cards = cardRepository.findAllAsSlice(pageable);
+            if (estimateTotal) {
+                estimatedTotal = rowCountEstimateService.estimateTableRows("t_card");
+            }
+        }
+
+        return SliceDto.of(cards.map(cardMapper::toCardDto), estimatedTotal);
+    }
+
+    @Override
+    public Page<CardDto> getMyCards(Pageable pageable, String cardStatus) {
+        Long ownerId = MyUserDetails.current().getId();
         Page<Card> cards;
 
         if (cardStatus != null) {
-            cards = cardRepository.findAllByOwnerAndCardStatus(owner, CardStatus.valueOf(cardStatus), pageable);
+            cards = cardRepository.findAllWithOwnerByOwnerIdAndCardStatus(ownerId, CardStatus.valueOf(cardStatus), pageable);
         } else{
-            cards = cardRepository.findAllByOwner(owner, pageable);
+            cards = cardRepository.findAllWithOwnerByOwnerId(ownerId, pageable);
         }
 
         return cards.map(cardMapper::toCardDto);
@@ -114,16 +179,18 @@ public class CardServiceImpl implements CardService {
 
     @Override
     @Transactional
-    public CardDto blockUserCard(Long cardId, String ownerUsername) {
+    public CardDto blockUserCard(Long cardId) {
         Card card = cardRepository.findById(cardId).orElseThrow(
                 () -> new CardNotFoundException("Карта с id - " + cardId + " не найдена")
         );
 
-        if (!card.getOwner().getUsername().equals(ownerUsername)) {
+        if (!card.getOwner().getId().equals(MyUserDetails.current().getId())) {
             throw new AccessToResourceDeniedException("Вы не имеете доступа к этой карте");
         }
         card.setCardStatus(CardStatus.BLOCKED);
-        return cardMapper.toCardDto(cardRepository.save(card));
+        Card saved = cardRepository.save(card);
+        updateLedgerAccount(saved);
+        return cardMapper.toCardDto(saved);
     }
 
     @Override
@@ -136,7 +203,9 @@ public class CardServiceImpl implements CardService {
         card.setCardStatus(request.getCardStatus());
         card.setExpiryDate(request.getExpiryDate());
 
-        return cardMapper.toCardDto(cardRepository.save(card));
+        Card saved = cardRepository.save(card);
+        updateLedgerAccount(saved);
+        return cardMapper.toCardDto(saved);
     }
 
     @Override
@@ -145,9 +214,51 @@ public class CardServiceImpl implements CardService {
         Card card = cardRepository.findById(id).orElseThrow(
                 () -> new CardNotFoundException("Карта с id - " + id + " не найдена")
         );
+        LedgerEngine ledgerEngine = ledgerEngineProvider.getIfAvailable();
+        if (ledgerEngine != null) {
+            if (!ledgerEngine.removeAccount(id)) {
+                throw new BadRequestException("По карте есть переводы, еще не сохраненные в БД, повторите удаление позже");
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            ledgerEngine.restoreAccount(id);
+                        }
+                    }
+                });
+            }
+        }
         cardRepository.delete(card);
     }
 
+    /**
+     * В режиме LEDGER статус карты для переводов берется из памяти движка, поэтому изменения карты
+     * передаются ему после коммита.
+     */
+    private void updateLedgerAccount(Card card) {
+        LedgerEngine ledgerEngine = ledgerEngineProvider.getIfAvailable();
+        if (ledgerEngine == null) {
+            return;
+        }
+        long cardId = card.getId();
+        long ownerId = card.getOwner().getId();
+        LocalDateTime expiryDate = card.getExpiryDate();
+        CardStatus cardStatus = card.getCardStatus();
+        Runnable update = () -> ledgerEngine.updateAccount(cardId, ownerId, expiryDate, cardStatus);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
     @Override
     public BigDecimal getCardBalance(Long id) {
         Card card = cardRepository.findById(id).orElseThrow(
@@ -157,14 +268,37 @@ public class CardServiceImpl implements CardService {
         return card.getBalance();
     }
 
+    @Override
+    public BigDecimal getCardBalanceAt(Long id, LocalDateTime at) {
+        Card card = cardRepository.findById(id).orElseThrow(
+                () -> new CardNotFoundException("Карта с id - " + id + " не найдена")
+        );
+        checkAccessToCard(card);
+        return ledgerEntryRepository.findBalanceAt(id, at).orElse(BigDecimal.ZERO);
+    }
 
-    public void checkAccessToCard(Card card){
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByUsername(username).orElseThrow(
-                () -> new UserNotFoundException("Пользователь с именем" + username + " не найден")
+    @Override
+    public CardLedgerDto getCardLedger(Long id, Long before, int size) {
+        Card card = cardRepository.findById(id).orElseThrow(
+                () -> new CardNotFoundException("Карта с id - " + id + " не найдена")
         );
+        checkAccessToCard(card);
+
+        List<LedgerEntry> entries = before == null
+                ? ledgerEntryRepository.findLatestByCardId(id, Limit.of(size))
+                : ledgerEntryRepository.findByCardIdBefore(id, before, Limit.of(size));
+        List<LedgerEntryDto> entryDtos = entries.stream().map(ledgerEntryMapper::toLedgerEntryDto).toList();
 
-        if (!user.getRole().equals(Role.ADMIN) && !username.equals(card.getOwner().getUsername())) {
+        return CardLedgerDto.builder()
+                .entries(entryDtos)
+                .nextBefore(entryDtos.size() == size ? entryDtos.get(size - 1).getId() : null)
+                .build();
+    }
+
+
+    public void checkAccessToCard(Card card){
+        MyUserDetails currentUser = MyUserDetails.current();
+        if (!currentUser.isAdmin() && !currentUser.getId().equals(card.getOwner().getId())) {
             throw new AccessToResourceDeniedException("Вы не имеете доступа к этой карте");
         }
     }
@@ -0,0 +1,206 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.entity.IdempotencyKey;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.service.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    /**
+     * Ответ ключа, занятого {@link #claimTransfer}: перевод по нему еще выполняется.
+     */
+    private static final String PENDING_RESPONSE = "";
+
+    @Value("${app.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${app.idempotency.cache-size:10000}")
+    private long cacheSize;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+
+    private Cache<String, StoredTransfer> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    @Override
+    public Optional<TransferDto> findTransfer(Long ownerId, String idempotencyKey, CreateTransferRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        String cacheKey = ownerId + ":" + idempotencyKey;
+
+        StoredTransfer stored = cache.getIfPresent(cacheKey);
+        if (stored == null || !stored.expiresAt().isAfter(now)) {
+            Optional<IdempotencyKey> key = idempotencyKeyRepository
+                    .findByOwnerIdAndIdempotencyKeyAndExpiresAtAfter(ownerId, idempotencyKey, now);
+            if (key.isEmpty()) {
+                return Optional.empty();
+            }
+            if (PENDING_RESPONSE.equals(key.get().getResponse())) {
+                checkRequestHash(key.get().getRequestHash(), request);
+                throw new IdempotencyKeyConflictException("Перевод с таким ключом идемпотентности уже выполняется");
+            }
+            stored = new StoredTransfer(key.get().getRequestHash(), readTransfer(key.get().getResponse()), key.get().getExpiresAt());
+            cache.put(cacheKey, stored);
+        }
+
+        checkRequestHash(stored.requestHash(), request);
+        return Optional.of(stored.transfer());
+    }
+
+    @Override
+    @Transactional
+    public void saveTransfer(Long ownerId, String idempotencyKey, CreateTransferRequest request, TransferDto transfer) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyKey key = IdempotencyKey.builder()
+                .ownerId(ownerId)
+                .idempotencyKey(idempotencyKey)
+                .requestHash(hash(request))
+                .response(writeTransfer(transfer))
+                .createdAt(now)
+                .expiresAt(now.plusMinutes(ttlMinutes))
+                .build();
+
+        insert(key);
+        cacheAfterCommit(ownerId, idempotencyKey, new StoredTransfer(key.getRequestHash(), transfer, key.getExpiresAt()));
+    }
+
+    /**
+     * Занимает ключ в отдельной транзакции до выполнения перевода, который нельзя откатить вместе с текущей
+     * транзакцией. Пока ключ не завершен {@link #completeTransfer} или не освобожден {@link #releaseTransfer},
+     * повторные запросы с ним получают {@link IdempotencyKeyConflictException}. Если приложение остановится
+     * между занятием и завершением, ключ остается занятым до истечения срока хранения.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void claimTransfer(Long ownerId, String idempotencyKey, CreateTransferRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        insert(IdempotencyKey.builder()
+                .ownerId(ownerId)
+                .idempotencyKey(idempotencyKey)
+                .requestHash(hash(request))
+                .response(PENDING_RESPONSE)
+                .createdAt(now)
+                .expiresAt(now.plusMinutes(ttlMinutes))
+                .build());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void completeTransfer(Long ownerId, String idempotencyKey, TransferDto transfer) {
+        IdempotencyKey key = idempotencyKeyRepository.findByOwnerIdAndIdempotencyKey(ownerId, idempotencyKey).orElseThrow(
+                () -> new IllegalStateException("Ключ идемпотентности " + idempotencyKey + " не занят")
+        );
+        key.setResponse(writeTransfer(transfer));
+        idempotencyKeyRepository.saveAndFlush(key);
+        cacheAfterCommit(ownerId, idempotencyKey, new StoredTransfer(key.getRequestHash(), transfer, key.getExpiresAt()));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void releaseTransfer(Long ownerId, String idempotencyKey) {
+        idempotencyKeyRepository.deleteByOwnerIdAndIdempotencyKeyAndResponse(ownerId, idempotencyKey, PENDING_RESPONSE);
+    }
+
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.idempotency.sweep-interval-ms:600000}")
+    public int deleteExpiredKeys() {
+        return idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private void insert(IdempotencyKey key) {
+        // Истекший ключ остается в таблице до очистки и иначе нарушил бы уникальность (owner_id, idempotency_key)
+        idempotencyKeyRepository.deleteExpired(key.getOwnerId(), key.getIdempotencyKey(), key.getCreatedAt());
+        try {
+            idempotencyKeyRepository.saveAndFlush(key);
+        } catch (DataIntegrityViolationException e) {
+            throw new IdempotencyKeyConflictException("Перевод с таким ключом идемпотентности уже выполняется");
+        }
+    }
+
+    private void cacheAfterCommit(Long ownerId, String idempotencyKey, StoredTransfer stored) {
+        String cacheKey = ownerId + ":" + idempotencyKey;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.put(cacheKey, stored);
+                }
+            });
+        } else {
+            cache.put(cacheKey, stored);
+        }
+    }
+
+    private void checkRequestHash(String requestHash, CreateTransferRequest request) {
+        if (!requestHash.equals(hash(request))) {
+            throw new BadRequestException("Ключ идемпотентности уже использован для другого перевода");
+        }
+    }
+
+    private String hash(CreateTransferRequest request) {
+        String source = request.getFromCardId() + "|" + request.getToCardId() + "|"
+                + request.getAmount().stripTrailingZeros().toPlainString();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String writeTransfer(TransferDto transfer) {
+        try {
+            return objectMapper.writeValueAsString(transfer);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Не удалось сохранить результат перевода", e);
+        }
+    }
+
+    private TransferDto readTransfer(String response) {
+        try {
+            return objectMapper.readValue(response, TransferDto.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Не удалось прочитать сохраненный результат перевода", e);
+        }
+    }
+
+    private record StoredTransfer(String requestHash, TransferDto transfer, LocalDateTime expiresAt) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.RotatedRefreshToken;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.service.RefreshTokenService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Refresh токены - случайные строки, в БД хранится только их SHA-256. Каждый токен одноразовый: при обновлении
+ * он помечается использованным и выдается новый. Повторное предъявление уже использованного токена означает,
+ * что токен утек, поэтому отзываются все refresh токены пользователя.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    @Value("${jwt.refreshExpiresIn:2592000000}")
+    private long refreshExpiresIn;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Override
+    @Transactional
+    public String issue(Long userId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.save(RefreshToken.builder()
+                .userId(userId)
+                .tokenHash(hash(token))
+                .createdAt(now)
+                .expiresAt(now.plusNanos(refreshExpiresIn * 1_000_000))
+                .build());
+        return token;
+    }
+
+    @Override
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public RotatedRefreshToken rotate(String refreshToken) {
+        RefreshToken stored = refreshTokenRepository.findByTokenHashForUpdate(hash(refreshToken)).orElseThrow(
+                () -> new InvalidRefreshTokenException("Refresh токен невалиден")
+        );
+
+        if (stored.getUsedAt() != null) {
+            refreshTokenRepository.deleteAllByUserId(stored.getUserId());
+            throw new InvalidRefreshTokenException("Refresh токен уже использован, все сессии пользователя завершены");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (!stored.getExpiresAt().isAfter(now)) {
+            throw new InvalidRefreshTokenException("Refresh токен просрочен");
+        }
+
+        stored.setUsedAt(now);
+        return new RotatedRefreshToken(stored.getUserId(), issue(stored.getUserId()));
+    }
+
+    @Override
+    @Transactional
+    public void revoke(String refreshToken) {
+        refreshTokenRepository.deleteByTokenHash(hash(refreshToken));
+    }
+
+    @Override
+    @Transactional
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.deleteAllByUserId(userId);
+    }
+
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.security.refresh-tokens.sweep-interval-ms:600000}")
+    public int deleteExpiredTokens() {
+        return refreshTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
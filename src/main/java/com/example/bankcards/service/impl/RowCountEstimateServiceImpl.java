@@ -0,0 +1,66 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.service.RowCountEstimateService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Оценка количества строк без сканирования таблиц: для всей таблицы берется pg_class.reltuples,
+ * для запроса с фильтром - оценка строк из плана EXPLAIN. Оценки кэшируются на короткое время.
+ */
+@Service
+@RequiredArgsConstructor
+public class RowCountEstimateServiceImpl implements RowCountEstimateService {
+
+    @Value("${app.paging.estimate-ttl-seconds:60}")
+    private long estimateTtlSeconds;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    private Cache<String, Long> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(Duration.ofSeconds(estimateTtlSeconds))
+                .build();
+    }
+
+    @Override
+    public long estimateTableRows(String table) {
+        return cache.get(table, key -> {
+            Double reltuples = jdbcTemplate.queryForObject(
+                    "select reltuples::float8 from pg_class where oid = to_regclass(?)", Double.class, table);
+            if (reltuples == null || reltuples < 0) {
+                return explainRows("select 1 from " + table);
+            }
+            return Math.round(reltuples);
+        });
+    }
+
+    @Override
+    public long estimateQueryRows(String sql, Object... args) {
+        return cache.get(sql + Arrays.toString(args), key -> explainRows(sql, args));
+    }
+
+    private long explainRows(String sql, Object... args) {
+        String plan = jdbcTemplate.queryForObject("explain (format json) " + sql, String.class, args);
+        try {
+            return Math.round(objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows").asDouble());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось разобрать план запроса", e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.SliceDto;
+import com.example.bankcards.dto.TransferBatchResult;
+import com.example.bankcards.dto.TransferCursorPageDto;
+import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.exception.TransferLaneBusyException;
+import com.example.bankcards.service.TransferService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Сериализует переводы по картам в памяти: каждая карта закреплена за одной однопоточной полосой,
+ * поэтому переводы с общей картой не конкурируют за блокировку строки в БД.
+ * Перевод между картами разных полос сначала занимает полосу с меньшим номером, затем с большим -
+ * ожидание всегда идет только в сторону больших номеров, и взаимная блокировка полос невозможна.
+ * Очередь каждой полосы ограничена: при переполнении перевод сразу отклоняется. Перевод, не начавшийся
+ * за wait-timeout-ms, снимается с очереди и тоже отклоняется, поэтому полоса, ждущая соседнюю, не простаивает
+ * дольше этого времени. Уже начавшийся перевод дожидается завершения: его ограничивает таймаут блокировок БД.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "app.transfer.sharding.enabled", havingValue = "true")
+public class ShardedTransferService implements TransferService {
+
+    private final TransferService delegate;
+    private final ThreadPoolExecutor[] lanes;
+    private final Timer[] waitTimers;
+    private final Counter[] rejected;
+    private final long waitTimeoutMs;
+
+    public ShardedTransferService(@Qualifier("transferServiceImpl") TransferService delegate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.transfer.sharding.lanes:0}") int laneCount,
+                                  @Value("${app.transfer.sharding.queue-capacity:256}") int queueCapacity,
+                                  @Value("${app.transfer.sharding.wait-timeout-ms:5000}") long waitTimeoutMs) {
+        this.delegate = delegate;
+        this.waitTimeoutMs = waitTimeoutMs;
+        int size = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors();
+        this.lanes = new ThreadPoolExecutor[size];
+        this.waitTimers = new Timer[size];
+        this.rejected = new Counter[size];
+        for (int i = 0; i < size; i++) {
+            ThreadPoolExecutor lane = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                    new CustomizableThreadFactory("transfer-lane-" + i + "-"), new ThreadPoolExecutor.AbortPolicy());
+            lanes[i] = lane;
+            Gauge.builder("transfer.lane.queue.depth", lane, executor -> executor.getQueue().size())
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+            waitTimers[i] = Timer.builder("transfer.lane.wait")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+            rejected[i] = Counter.builder("transfer.lane.rejected")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public TransferDto createTransfer(CreateTransferRequest request, String idempotencyKey) {
+        int fromLane = laneOf(request.getFromCardId());
+        int toLane = laneOf(request.getToCardId());
+        Callable<TransferDto> transfer = DelegatingSecurityContextCallable.create(
+                () -> delegate.createTransfer(request, idempotencyKey), SecurityContextHolder.getContext());
+
+        int firstLane = Math.min(fromLane, toLane);
+        int secondLane = Math.max(fromLane, toLane);
+        Callable<TransferDto> task = firstLane == secondLane
+                ? transfer
+                : () -> await(secondLane, submit(secondLane, transfer));
+        return await(firstLane, submit(firstLane, task));
+    }
+
+    @Override
+    public TransferDto submitTransfer(CreateTransferRequest request, String idempotencyKey) {
+        return delegate.submitTransfer(request, idempotencyKey);
+    }
+
+    @Override
+    public List<TransferBatchResult> createTransfers(List<CreateTransferRequest> requests, String username) {
+        return delegate.createTransfers(requests, username);
+    }
+
+    @Override
+    public int settlePendingTransfers(int limit) {
+        return delegate.settlePendingTransfers(limit);
+    }
+
+    @Override
+    public TransferDto getTransfer(Long id) {
+        return delegate.getTransfer(id);
+    }
+
+    @Override
+    public Page<TransferDto> getAllTransfers(Pageable pageable) {
+        return delegate.getAllTransfers(pageable);
+    }
+
+    @Override
+    public SliceDto<TransferDto> getAllTransfersSlice(Pageable pageable, boolean estimateTotal) {
+        return delegate.getAllTransfersSlice(pageable, estimateTotal);
+    }
+
+    @Override
+    public Page<TransferDto> getMyTransfers(Pageable pageable) {
+        return delegate.getMyTransfers(pageable);
+    }
+
+    @Override
+    public TransferCursorPageDto getAllTransfers(String cursor, int size) {
+        return delegate.getAllTransfers(cursor, size);
+    }
+
+    @Override
+    public TransferCursorPageDto getMyTransfers(String cursor, int size) {
+        return delegate.getMyTransfers(cursor, size);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    int laneOf(Long cardId) {
+        return Math.floorMod(Long.hashCode(cardId) * 0x9E3779B9, lanes.length);
+    }
+
+    private Future<TransferDto> submit(int lane, Callable<TransferDto> task) {
+        long queuedAt = System.nanoTime();
+        try {
+            return lanes[lane].submit(() -> {
+                waitTimers[lane].record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return task.call();
+            });
+        } catch (RejectedExecutionException e) {
+            rejected[lane].increment();
+            throw new TransferLaneBusyException("Очередь переводов по карте переполнена, повторите попытку позже");
+        }
+    }
+
+    private TransferDto await(int lane, Future<TransferDto> future) {
+        try {
+            try {
+                return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Снятая с очереди задача уже не выполнится; начавшуюся нужно дождаться, чтобы вернуть ее результат
+                if (lanes[lane].remove((Runnable) future)) {
+                    rejected[lane].increment();
+                    throw new TransferLaneBusyException("Превышено время ожидания очереди переводов по карте, повторите попытку позже");
+                }
+                return future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание выполнения перевода прервано", e);
+        }
+    }
+}
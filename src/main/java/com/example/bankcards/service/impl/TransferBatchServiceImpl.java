@@ -0,0 +1,114 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.TransferBatchResult;
+import com.example.bankcards.service.TransferBatchService;
+import com.example.bankcards.service.TransferService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransferBatchServiceImpl implements TransferBatchService {
+
+    @Value("${app.transfer.batch.chunk-size:500}")
+    private int chunkSize;
+
+    private final TransferService transferService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Override
+    public void processBatch(InputStream input, OutputStream output, String username) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ObjectReader requestReader = objectMapper.readerFor(CreateTransferRequest.class);
+        ObjectWriter resultWriter = objectMapper.writerFor(TransferBatchResult.class);
+
+        List<TransferBatchResult> chunk = new ArrayList<>(chunkSize);
+        List<TransferBatchResult> pending = new ArrayList<>(chunkSize);
+        List<CreateTransferRequest> requests = new ArrayList<>(chunkSize);
+
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            TransferBatchResult result = TransferBatchResult.builder().line(lineNumber).build();
+            chunk.add(result);
+            try {
+                CreateTransferRequest request = requestReader.readValue(line);
+                String error = validate(request);
+                if (error != null) {
+                    result.setError(error);
+                } else {
+                    pending.add(result);
+                    requests.add(request);
+                }
+            } catch (JsonProcessingException e) {
+                result.setError("Некорректный формат строки");
+            }
+
+            if (chunk.size() >= chunkSize) {
+                executeChunk(requests, pending, username);
+                writeChunk(chunk, resultWriter, output);
+            }
+        }
+
+        executeChunk(requests, pending, username);
+        writeChunk(chunk, resultWriter, output);
+    }
+
+    private void executeChunk(List<CreateTransferRequest> requests, List<TransferBatchResult> pending, String username) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        try {
+            List<TransferBatchResult> results = transferService.createTransfers(requests, username);
+            for (int i = 0; i < pending.size(); i++) {
+                pending.get(i).setTransfer(results.get(i).getTransfer());
+                pending.get(i).setError(results.get(i).getError());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Пакет из {} переводов отклонен: {}", requests.size(), e.getMessage());
+            pending.forEach(result -> result.setError("Пакет переводов не выполнен, повторите попытку позже"));
+        }
+        requests.clear();
+        pending.clear();
+    }
+
+    private void writeChunk(List<TransferBatchResult> chunk, ObjectWriter resultWriter, OutputStream output) throws IOException {
+        for (TransferBatchResult result : chunk) {
+            output.write(resultWriter.writeValueAsBytes(result));
+            output.write('\n');
+        }
+        output.flush();
+        chunk.clear();
+    }
+
+    private String validate(CreateTransferRequest request) {
+        Set<ConstraintViolation<CreateTransferRequest>> violations = validator.validate(request);
+        return violations.isEmpty() ? null : violations.iterator().next().getMessage();
+    }
+}
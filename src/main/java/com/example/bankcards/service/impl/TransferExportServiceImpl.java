@@ -0,0 +1,173 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.service.TransferExportFormat;
+import com.example.bankcards.service.TransferExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Выгрузка переводов потоком: строки читаются серверным курсором порциями по fetch-size в одной
+ * транзакции REPEATABLE READ и сразу пишутся в ответ, поэтому память не зависит от объема выгрузки,
+ * а все строки берутся из одного снимка БД.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+public class TransferExportServiceImpl implements TransferExportService {
+
+    private static final String SELECT_TRANSFERS = """
+            select t.id, t.created_at, t.from_card_id, t.to_card_id, t.owner_id, u.username,
+                   t.amount, t.status, t.reject_reason
+            from t_transfer t
+            join t_user u on u.id = t.owner_id
+            """;
+
+    private static final String CSV_HEADER =
+            "id,created_at,from_card_id,to_card_id,owner_id,owner_username,amount,status,reject_reason\n";
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    @Value("${app.transfer.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public long exportTransfers(LocalDateTime from, LocalDateTime to, TransferExportFormat format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        JsonGenerator generator = format == TransferExportFormat.NDJSON ? objectMapper.getFactory().createGenerator(writer) : null;
+        if (generator != null) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            generator.setRootValueSeparator(null);
+        } else {
+            writer.write(CSV_HEADER);
+        }
+
+        long[] rows = new long[1];
+        try {
+            jdbcTemplate.query(selectTransfers(from, to), rs -> {
+                try {
+                    if (generator != null) {
+                        writeJson(rs, generator);
+                    } else {
+                        writeCsv(rs, writer);
+                    }
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("Выгрузка переводов прервана после {} строк: {}", rows[0], e.getMessage());
+            throw e.getCause();
+        }
+
+        if (generator != null) {
+            generator.flush();
+        }
+        writer.flush();
+        return rows[0];
+    }
+
+    private PreparedStatementCreator selectTransfers(LocalDateTime from, LocalDateTime to) {
+        StringBuilder sql = new StringBuilder(SELECT_TRANSFERS);
+        List<Timestamp> args = new ArrayList<>(2);
+        if (from != null) {
+            sql.append(args.isEmpty() ? "where " : "and ").append("t.created_at >= ? ");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(args.isEmpty() ? "where " : "and ").append("t.created_at < ? ");
+            args.add(Timestamp.valueOf(to));
+        }
+        sql.append("order by t.created_at, t.id");
+
+        return connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setTimestamp(i + 1, args.get(i));
+            }
+            return ps;
+        };
+    }
+
+    private void writeCsv(ResultSet rs, Writer writer) throws SQLException, IOException {
+        writer.write(Long.toString(rs.getLong(1)));
+        writer.write(',');
+        writer.write(rs.getTimestamp(2).toLocalDateTime().toString());
+        writer.write(',');
+        writer.write(Long.toString(rs.getLong(3)));
+        writer.write(',');
+        writer.write(Long.toString(rs.getLong(4)));
+        writer.write(',');
+        writer.write(Long.toString(rs.getLong(5)));
+        writer.write(',');
+        writeCsvText(rs.getString(6), writer);
+        writer.write(',');
+        writer.write(rs.getBigDecimal(7).toPlainString());
+        writer.write(',');
+        writer.write(rs.getString(8));
+        writer.write(',');
+        writeCsvText(rs.getString(9), writer);
+        writer.write('\n');
+    }
+
+    private void writeJson(ResultSet rs, JsonGenerator generator) throws SQLException, IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", rs.getLong(1));
+        generator.writeStringField("createdAt", rs.getTimestamp(2).toLocalDateTime().toString());
+        generator.writeNumberField("fromCardId", rs.getLong(3));
+        generator.writeNumberField("toCardId", rs.getLong(4));
+        generator.writeNumberField("ownerId", rs.getLong(5));
+        generator.writeStringField("ownerUsername", rs.getString(6));
+        generator.writeNumberField("amount", rs.getBigDecimal(7));
+        generator.writeStringField("transferStatus", rs.getString(8));
+        String rejectReason = rs.getString(9);
+        if (rejectReason != null) {
+            generator.writeStringField("rejectReason", rejectReason);
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeCsvText(String value, Writer writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.service.TransferLimitReservation;
+import com.example.bankcards.service.TransferLimitService;
+import com.example.bankcards.util.SlidingWindowCounter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Суточные лимиты переводов по владельцу и по карте отправителя. Проверка идет только по счетчикам в памяти:
+ * окно 24 часа из часовых интервалов. Счетчики заполняются из t_transfer при старте и периодически
+ * пересобираются заново, чтобы учесть отклоненные асинхронные переводы и переводы других экземпляров
+ * приложения. Сумма, учтенная в транзакции, которая затем откатилась, снимается со счетчиков, если резерв
+ * не был закреплен {@link #confirm}: перевод движка LEDGER становится необратимым еще до конца транзакции.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransferLimitServiceImpl implements TransferLimitService {
+
+    private static final int WINDOW_BUCKETS = 24;
+    private static final long BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int SCALE = 2;
+
+    private static final String SELECT_WINDOW_TOTALS = """
+            select owner_id, from_card_id, date_trunc('hour', created_at) as bucket, sum(amount) as amount
+            from t_transfer
+            where created_at >= ? and status <> 'REJECTED'
+            group by owner_id, from_card_id, date_trunc('hour', created_at)
+            """;
+
+    @Value("${app.transfer.limits.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.transfer.limits.stripes:64}")
+    private int stripes;
+
+    @Value("${app.transfer.limits.user.daily-per-user:1000000}")
+    private BigDecimal userDailyPerUser;
+
+    @Value("${app.transfer.limits.user.daily-per-card:500000}")
+    private BigDecimal userDailyPerCard;
+
+    @Value("${app.transfer.limits.admin.daily-per-user:5000000}")
+    private BigDecimal adminDailyPerUser;
+
+    @Value("${app.transfer.limits.admin.daily-per-card:2500000}")
+    private BigDecimal adminDailyPerCard;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private long userDailyPerUserMinor;
+    private long userDailyPerCardMinor;
+    private long adminDailyPerUserMinor;
+    private long adminDailyPerCardMinor;
+    private volatile Counters counters;
+
+    @PostConstruct
+    public void init() {
+        userDailyPerUserMinor = toMinor(userDailyPerUser);
+        userDailyPerCardMinor = toMinor(userDailyPerCard);
+        adminDailyPerUserMinor = toMinor(adminDailyPerUser);
+        adminDailyPerCardMinor = toMinor(adminDailyPerCard);
+        counters = new Counters(0, new SlidingWindowCounter(stripes, WINDOW_BUCKETS, BUCKET_MILLIS),
+                new SlidingWindowCounter(stripes, WINDOW_BUCKETS, BUCKET_MILLIS));
+        if (enabled) {
+            try {
+                reconcile();
+            } catch (RuntimeException e) {
+                log.warn("Не удалось загрузить суточные лимиты переводов из БД: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public TransferLimitReservation reserve(User owner, Long fromCardId, BigDecimal amount) {
+        if (!enabled) {
+            return null;
+        }
+        boolean admin = owner.getRole() == Role.ADMIN;
+        long amountMinor = toMinor(amount);
+        long now = System.currentTimeMillis();
+
+        Counters current = counters;
+        if (!current.byOwner().tryAdd(owner.getId(), amountMinor, admin ? adminDailyPerUserMinor : userDailyPerUserMinor, now)) {
+            throw new BadRequestException("Превышен суточный лимит переводов пользователя: "
+                    + (admin ? adminDailyPerUser : userDailyPerUser));
+        }
+        if (!current.byCard().tryAdd(fromCardId, amountMinor, admin ? adminDailyPerCardMinor : userDailyPerCardMinor, now)) {
+            current.byOwner().add(owner.getId(), -amountMinor, now);
+            throw new BadRequestException("Превышен суточный лимит переводов по карте: "
+                    + (admin ? adminDailyPerCard : userDailyPerCard));
+        }
+
+        TransferLimitReservation reservation = new TransferLimitReservation(owner.getId(), fromCardId, amountMinor, now,
+                current.generation());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(reservation);
+                    }
+                }
+            });
+        }
+        return reservation;
+    }
+
+    @Override
+    public void release(TransferLimitReservation reservation) {
+        if (reservation == null || !reservation.markReleased()) {
+            return;
+        }
+        Counters current = counters;
+        if (current.generation() != reservation.getGeneration()) {
+            return;
+        }
+        current.byOwner().add(reservation.getOwnerId(), -reservation.getAmountMinor(), reservation.getReservedAtMillis());
+        current.byCard().add(reservation.getFromCardId(), -reservation.getAmountMinor(), reservation.getReservedAtMillis());
+    }
+
+    @Override
+    public void confirm(TransferLimitReservation reservation) {
+        if (reservation != null) {
+            reservation.markConfirmed();
+        }
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${app.transfer.limits.reconcile-interval-ms:60000}",
+            fixedDelayString = "${app.transfer.limits.reconcile-interval-ms:60000}")
+    public synchronized void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        long windowStart = (Math.floorDiv(System.currentTimeMillis(), BUCKET_MILLIS) - WINDOW_BUCKETS + 1) * BUCKET_MILLIS;
+        SlidingWindowCounter byOwner = new SlidingWindowCounter(stripes, WINDOW_BUCKETS, BUCKET_MILLIS);
+        SlidingWindowCounter byCard = new SlidingWindowCounter(stripes, WINDOW_BUCKETS, BUCKET_MILLIS);
+        ZoneId zone = ZoneId.systemDefault();
+
+        jdbcTemplate.query(SELECT_WINDOW_TOTALS, rs -> {
+            long bucket = rs.getTimestamp("bucket").toLocalDateTime().atZone(zone).toInstant().toEpochMilli();
+            long amountMinor = toMinor(rs.getBigDecimal("amount"));
+            byOwner.add(rs.getLong("owner_id"), amountMinor, bucket);
+            byCard.add(rs.getLong("from_card_id"), amountMinor, bucket);
+        }, Timestamp.from(Instant.ofEpochMilli(windowStart)));
+
+        counters = new Counters(counters.generation() + 1, byOwner, byCard);
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Счетчики одной сборки. Учтенная сумма снимается только со счетчиков той сборки, в которой ее учли:
+     * в пересобранных из БД счетчиках откатившегося перевода нет.
+     */
+    private record Counters(long generation, SlidingWindowCounter byOwner, SlidingWindowCounter byCard) {
+    }
+}
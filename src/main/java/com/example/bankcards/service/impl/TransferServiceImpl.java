@@ -1,30 +1,60 @@
 package com.example.bankcards.service.impl;
 
 import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.SliceDto;
+import com.example.bankcards.dto.TransferBatchResult;
+import com.example.bankcards.dto.TransferCursorPageDto;
 import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.dto.projection.CardView;
 import com.example.bankcards.entity.*;
 import com.example.bankcards.exception.AccessToResourceDeniedException;
 import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.exception.TransferNotFoundException;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.ledger.LedgerEngine;
+import com.example.bankcards.ledger.LedgerTransferResult;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
 import com.example.bankcards.repository.TransferRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.MyUserDetails;
+import com.example.bankcards.service.IdempotencyService;
+import com.example.bankcards.service.RowCountEstimateService;
+import com.example.bankcards.service.TransferConcurrencyMode;
+import com.example.bankcards.service.TransferLimitReservation;
+import com.example.bankcards.service.TransferLimitService;
 import com.example.bankcards.service.TransferService;
+import com.example.bankcards.util.TransferCursor;
 import com.example.bankcards.util.TransferMapper;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
@@ -33,27 +63,248 @@ public class TransferServiceImpl implements TransferService {
     @Value("${app.security.max-transfer-amount:250000}")
     private BigDecimal maxTransferAmount;
 
+    @Value("${app.transfer.lock-timeout-ms:3000}")
+    private long lockTimeoutMs;
+
+    @Value("${app.transfer.concurrency-mode:PESSIMISTIC}")
+    private TransferConcurrencyMode concurrencyMode;
+
+    @Value("${app.transfer.ledger.id-block-size:1000}")
+    private int transferIdBlockSize;
+
     private final TransferRepository transferRepository;
     private final UserRepository userRepository;
     private final CardRepository cardRepository;
     private final TransferMapper transferMapper;
+    private final IdempotencyService idempotencyService;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final RowCountEstimateService rowCountEstimateService;
+    private final TransferLimitService transferLimitService;
+    private final ObjectProvider<LedgerEngine> ledgerEngineProvider;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Object transferIdLock = new Object();
+    private List<Long> transferIdBlock = List.of();
+    private int transferIdPosition;
+
+    /**
+     * Транзакция открывается только для режимов с балансами в БД: перевод в LEDGER не держит соединение,
+     * а ключ идемпотентности сохраняет в собственных транзакциях {@link IdempotencyService}.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Retryable(
+            retryFor = {OptimisticLockingFailureException.class, IdempotencyKeyConflictException.class},
+            maxAttemptsExpression = "${app.transfer.retry.max-attempts:5}",
+            backoff = @Backoff(
+                    delayExpression = "${app.transfer.retry.initial-backoff-ms:10}",
+                    maxDelayExpression = "${app.transfer.retry.max-backoff-ms:200}",
+                    multiplierExpression = "${app.transfer.retry.multiplier:2}",
+                    random = true),
+            listeners = "transferRetryListener")
+    public TransferDto createTransfer(CreateTransferRequest request, String idempotencyKey) {
+        if (concurrencyMode == TransferConcurrencyMode.LEDGER) {
+            return executeInLedger(request, idempotencyKey);
+        }
+        return transactionTemplate.execute(status -> executeIdempotently(request, idempotencyKey, currentUser ->
+                concurrencyMode == TransferConcurrencyMode.CONDITIONAL
+                        ? createTransferConditionally(request, currentUser)
+                        : createTransferWithCardEntities(request, currentUser)));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Retryable(retryFor = IdempotencyKeyConflictException.class, maxAttempts = 2)
+    public TransferDto submitTransfer(CreateTransferRequest request, String idempotencyKey) {
+        if (concurrencyMode == TransferConcurrencyMode.LEDGER) {
+            return executeInLedger(request, idempotencyKey);
+        }
+        return transactionTemplate.execute(status ->
+                executeIdempotently(request, idempotencyKey, currentUser -> enqueueTransfer(request, currentUser)));
+    }
 
     @Override
     @Transactional
-    public TransferDto createTransfer(CreateTransferRequest request) {
-        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByUsername(currentUsername).orElseThrow(
+    public List<TransferBatchResult> createTransfers(List<CreateTransferRequest> requests, String username) {
+        User currentUser = userRepository.findByUsername(username).orElseThrow(
                 () -> new UserNotFoundException("Пользователь не найден")
         );
-        Card fromCard = cardRepository.findById(request.getFromCardId()).orElseThrow(
-                () -> new CardNotFoundException("Карта отправителя не найдена")
-        );
+        if (concurrencyMode == TransferConcurrencyMode.LEDGER) {
+            return createTransfersInLedger(requests, currentUser);
+        }
+        // В режимах с балансами в БД пакет всегда берет PESSIMISTIC_WRITE: блокировка строк согласована и с
+        // проверкой @Version в OPTIMISTIC, и с условными UPDATE в CONDITIONAL
+        cardRepository.setLockTimeout(lockTimeoutMs + "ms");
 
-        Card toCard = cardRepository.findById(request.getToCardId()).orElseThrow(
-                () -> new CardNotFoundException("Карта получателя не найдена")
+        Set<Long> cardIds = new TreeSet<>();
+        for (CreateTransferRequest request : requests) {
+            cardIds.add(request.getFromCardId());
+            cardIds.add(request.getToCardId());
+        }
+        Map<Long, Card> cards = lockCards(cardIds);
+
+        List<TransferBatchResult> results = new ArrayList<>(requests.size());
+        List<TransferBatchResult> completed = new ArrayList<>(requests.size());
+        List<Transfer> transfers = new ArrayList<>(requests.size());
+        List<LedgerEntry> ledgerEntries = new ArrayList<>(requests.size() * 2);
+        for (CreateTransferRequest request : requests) {
+            TransferLimitReservation reservation = null;
+            try {
+                reservation = transferLimitService.reserve(currentUser, request.getFromCardId(), request.getAmount());
+                applyTransfer(request.getFromCardId(), request.getToCardId(), request.getAmount(), currentUser, cards);
+                Transfer transfer = Transfer.builder()
+                        .fromCard(cards.get(request.getFromCardId()))
+                        .toCard(cards.get(request.getToCardId()))
+                        .owner(currentUser)
+                        .amount(request.getAmount())
+                        .createdAt(LocalDateTime.now())
+                        .transferStatus(TransferStatus.COMPLETED)
+                        .build();
+                transfers.add(transfer);
+                ledgerEntries.addAll(ledgerEntries(transfer,
+                        transfer.getFromCard().getBalance(), transfer.getToCard().getBalance()));
+                TransferBatchResult result = new TransferBatchResult();
+                completed.add(result);
+                results.add(result);
+            } catch (BadRequestException | AccessToResourceDeniedException | CardNotFoundException e) {
+                transferLimitService.release(reservation);
+                results.add(TransferBatchResult.builder()
+                        .error(e.getMessage())
+                        .build());
+            }
+        }
+
+        if (!transfers.isEmpty()) {
+            transferRepository.insertAll(transfers);
+            ledgerEntryRepository.insertAll(ledgerEntries);
+        }
+        // id переводам выдает insertAll, поэтому DTO строятся только после вставки
+        for (int i = 0; i < transfers.size(); i++) {
+            completed.get(i).setTransfer(transferMapper.toTransferDto(transfers.get(i)));
+        }
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public int settlePendingTransfers(int limit) {
+        if (concurrencyMode == TransferConcurrencyMode.LEDGER) {
+            return 0;
+        }
+        List<Transfer> transfers = transferRepository.findInProgressForUpdate(limit);
+        if (transfers.isEmpty()) {
+            return 0;
+        }
+        cardRepository.setLockTimeout(lockTimeoutMs + "ms");
+
+        Set<Long> cardIds = new TreeSet<>();
+        for (Transfer transfer : transfers) {
+            cardIds.add(transfer.getFromCard().getId());
+            cardIds.add(transfer.getToCard().getId());
+        }
+        Map<Long, Card> cards = lockCards(cardIds);
+
+        List<LedgerEntry> ledgerEntries = new ArrayList<>(transfers.size() * 2);
+        for (Transfer transfer : transfers) {
+            try {
+                applyTransfer(transfer.getFromCard().getId(), transfer.getToCard().getId(), transfer.getAmount(),
+                        transfer.getOwner(), cards);
+                transfer.setTransferStatus(TransferStatus.COMPLETED);
+                ledgerEntries.addAll(ledgerEntries(transfer, cards.get(transfer.getFromCard().getId()).getBalance(),
+                        cards.get(transfer.getToCard().getId()).getBalance()));
+            } catch (BadRequestException | AccessToResourceDeniedException | CardNotFoundException e) {
+                transfer.setTransferStatus(TransferStatus.REJECTED);
+                transfer.setRejectReason(e.getMessage());
+            }
+        }
+
+        if (!ledgerEntries.isEmpty()) {
+            ledgerEntryRepository.insertAll(ledgerEntries);
+        }
+        return transfers.size();
+    }
+
+    @Override
+    public TransferDto getTransfer(Long id) {
+        Transfer transfer = transferRepository.findById(id).orElseThrow(
+                () -> new TransferNotFoundException("Перевод с id - " + id + " не найден")
         );
+        MyUserDetails currentUser = MyUserDetails.current();
+        if (!currentUser.isAdmin() && !transfer.getOwner().getId().equals(currentUser.getId())) {
+            throw new AccessToResourceDeniedException("Вы не имеете доступа к этому переводу");
+        }
+        return transferMapper.toTransferDto(transfer);
+    }
 
-        if (!fromCard.getOwner().equals(currentUser) || !toCard.getOwner().equals(currentUser)) {
+    @Override
+    public Page<TransferDto> getAllTransfers(Pageable pageable) {
+        return transferRepository.findAll(pageable).map(transferMapper.pageMapper());
+    }
+
+    @Override
+    public SliceDto<TransferDto> getAllTransfersSlice(Pageable pageable, boolean estimateTotal) {
+        return SliceDto.of(transferRepository.findAllAsSlice(pageable).map(transferMapper.pageMapper()),
+                estimateTotal ? rowCountEstimateService.estimateTableRows("t_transfer") : null);
+    }
+
+    @Override
+    public Page<TransferDto> getMyTransfers(Pageable pageable) {
+        return transferRepository.findAllByOwnerId(MyUserDetails.current().getId(), pageable).map(transferMapper.pageMapper());
+    }
+
+    @Override
+    public TransferCursorPageDto getAllTransfers(String cursor, int size) {
+        Limit limit = Limit.of(size + 1);
+        if (cursor == null) {
+            return toCursorPage(transferRepository.findLatest(limit), size);
+        }
+        TransferCursor position = TransferCursor.decode(cursor);
+        return toCursorPage(transferRepository.findLatestBefore(position.createdAt(), position.id(), limit), size);
+    }
+
+    @Override
+    public TransferCursorPageDto getMyTransfers(String cursor, int size) {
+        Long ownerId = MyUserDetails.current().getId();
+        Limit limit = Limit.of(size + 1);
+        if (cursor == null) {
+            return toCursorPage(transferRepository.findLatestByOwnerId(ownerId, limit), size);
+        }
+        TransferCursor position = TransferCursor.decode(cursor);
+        return toCursorPage(transferRepository.findLatestByOwnerIdBefore(
+                ownerId, position.createdAt(), position.id(), limit), size);
+    }
+
+    private TransferCursorPageDto toCursorPage(List<Transfer> transfers, int size) {
+        boolean hasNext = transfers.size() > size;
+        List<Transfer> page = hasNext ? transfers.subList(0, size) : transfers;
+        return TransferCursorPageDto.builder()
+                .transfers(page.stream().map(transferMapper.pageMapper()).toList())
+                .nextCursor(hasNext ? TransferCursor.of(page.get(size - 1)).encode() : null)
+                .build();
+    }
+
+    private TransferDto createTransferWithCardEntities(CreateTransferRequest request, User currentUser) {
+        Card fromCard;
+        Card toCard;
+        if (concurrencyMode == TransferConcurrencyMode.OPTIMISTIC) {
+            fromCard = cardRepository.findById(request.getFromCardId()).orElseThrow(
+                    () -> new CardNotFoundException("Карта отправителя не найдена")
+            );
+            toCard = cardRepository.findById(request.getToCardId()).orElseThrow(
+                    () -> new CardNotFoundException("Карта получателя не найдена")
+            );
+        } else {
+            cardRepository.setLockTimeout(lockTimeoutMs + "ms");
+            if (request.getFromCardId() <= request.getToCardId()) {
+                fromCard = lockCard(request.getFromCardId(), "Карта отправителя не найдена");
+                toCard = lockCard(request.getToCardId(), "Карта получателя не найдена");
+            } else {
+                toCard = lockCard(request.getToCardId(), "Карта получателя не найдена");
+                fromCard = lockCard(request.getFromCardId(), "Карта отправителя не найдена");
+            }
+        }
+
+        if (!fromCard.getOwner().getId().equals(currentUser.getId()) || !toCard.getOwner().getId().equals(currentUser.getId())) {
             throw new AccessToResourceDeniedException("Переводы доступны только между своими картами");
         }
 
@@ -66,11 +317,11 @@ public class TransferServiceImpl implements TransferService {
         }
 
         if (toCard.getCardStatus() != CardStatus.ACTIVE) {
-            throw new BadRequestException("Карта отправителя неактивна");
+            throw new BadRequestException("Карта получателя неактивна");
         }
 
         if (fromCard.getCardStatus() != CardStatus.ACTIVE) {
-            throw new BadRequestException("Карта получателя неактивна");
+            throw new BadRequestException("Карта отправителя неактивна");
         }
 
         fromCard.setBalance(fromCard.getBalance().subtract(request.getAmount()));
@@ -89,21 +340,303 @@ public class TransferServiceImpl implements TransferService {
                 .build();
 
         transferRepository.save(transfer);
+        ledgerEntryRepository.insertAll(ledgerEntries(transfer, fromCard.getBalance(), toCard.getBalance()));
 
         return transferMapper.toTransferDto(transfer);
     }
 
-    @Override
-    public Page<TransferDto> getAllTransfers(Pageable pageable) {
-        return transferRepository.findAll(pageable).map(transferMapper::toTransferDto);
+    private TransferDto createTransferConditionally(CreateTransferRequest request, User currentUser) {
+        if (request.getAmount().compareTo(maxTransferAmount) > 0) {
+            throw new BadRequestException("Максимальная сумма перевода: " + maxTransferAmount);
+        }
+
+        CardView fromCard;
+        CardView toCard;
+        if (request.getFromCardId() <= request.getToCardId()) {
+            fromCard = debit(request, currentUser);
+            toCard = credit(request, currentUser);
+        } else {
+            toCard = credit(request, currentUser);
+            fromCard = debit(request, currentUser);
+        }
+
+        Transfer transfer = Transfer.builder()
+                .fromCard(cardRepository.getReferenceById(request.getFromCardId()))
+                .toCard(cardRepository.getReferenceById(request.getToCardId()))
+                .owner(currentUser)
+                .amount(request.getAmount())
+                .createdAt(LocalDateTime.now())
+                .transferStatus(TransferStatus.COMPLETED)
+                .build();
+
+        transferRepository.save(transfer);
+        ledgerEntryRepository.insertAll(ledgerEntries(transfer, fromCard.getBalance(), toCard.getBalance()));
+
+        return transferMapper.toTransferDto(transfer, fromCard, toCard);
     }
 
-    @Override
-    public Page<TransferDto> getMyTransfers(Pageable pageable) {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User currentUser = userRepository.findByUsername(username).orElseThrow(
-                () -> new UserNotFoundException("Пользователь " + username + " не найден")
+    private TransferDto createTransferInLedger(CreateTransferRequest request, User currentUser, long transferId) {
+        if (request.getAmount().compareTo(maxTransferAmount) > 0) {
+            throw new BadRequestException("Максимальная сумма перевода: " + maxTransferAmount);
+        }
+
+        LedgerTransferResult result = ledgerEngineProvider.getObject().transfer(
+                transferId, request.getFromCardId(), request.getToCardId(), currentUser.getId(), request.getAmount());
+
+        Transfer transfer = Transfer.builder()
+                .id(transferId)
+                .fromCard(Card.builder().id(request.getFromCardId()).build())
+                .toCard(Card.builder().id(request.getToCardId()).build())
+                .owner(currentUser)
+                .amount(request.getAmount())
+                .createdAt(LedgerEngine.toLocalDateTime(result.record().createdAtMillis()))
+                .transferStatus(TransferStatus.COMPLETED)
+                .build();
+
+        return transferMapper.toTransferDto(transfer, result.fromCard(), result.toCard());
+    }
+
+    private List<TransferBatchResult> createTransfersInLedger(List<CreateTransferRequest> requests, User currentUser) {
+        List<TransferBatchResult> results = new ArrayList<>(requests.size());
+        List<Long> transferIds = transferRepository.allocateIds(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CreateTransferRequest request = requests.get(i);
+            TransferLimitReservation reservation = null;
+            try {
+                reservation = transferLimitService.reserve(currentUser, request.getFromCardId(), request.getAmount());
+                TransferDto transfer = createTransferInLedger(request, currentUser, transferIds.get(i));
+                transferLimitService.confirm(reservation);
+                results.add(TransferBatchResult.builder()
+                        .transfer(transfer)
+                        .build());
+            } catch (BadRequestException | AccessToResourceDeniedException | CardNotFoundException e) {
+                transferLimitService.release(reservation);
+                results.add(TransferBatchResult.builder()
+                        .error(e.getMessage())
+                        .build());
+            } catch (RuntimeException e) {
+                // Предыдущие строки уже проведены движком и не откатятся, поэтому пакет не прерывается исключением:
+                // иначе проведенные переводы были бы возвращены клиенту как невыполненные
+                log.warn("Пакет переводов остановлен на строке {} из {}: {}", i + 1, requests.size(), e.getMessage());
+                transferLimitService.release(reservation);
+                while (results.size() < requests.size()) {
+                    results.add(TransferBatchResult.builder()
+                            .error("Перевод не выполнен, повторите попытку позже")
+                            .build());
+                }
+                break;
+            }
+        }
+        return results;
+    }
+
+    private TransferDto executeIdempotently(CreateTransferRequest request, String idempotencyKey,
+                                            Function<User, TransferDto> operation) {
+        // Отсоединенная копия пользователя из JwtFilter: сохраняется в переводе как ссылка на владельца по id
+        User currentUser = MyUserDetails.current().getUser();
+
+        if (idempotencyKey != null) {
+            Optional<TransferDto> storedTransfer = idempotencyService.findTransfer(currentUser.getId(), idempotencyKey, request);
+            if (storedTransfer.isPresent()) {
+                return storedTransfer.get();
+            }
+        }
+
+        transferLimitService.reserve(currentUser, request.getFromCardId(), request.getAmount());
+        TransferDto transferDto = operation.apply(currentUser);
+
+        if (idempotencyKey != null) {
+            idempotencyService.saveTransfer(currentUser.getId(), idempotencyKey, request, transferDto);
+        }
+        return transferDto;
+    }
+
+    /**
+     * Движок LEDGER фиксирует перевод в журнале сразу, а не при коммите транзакции, поэтому вызов движка не должен
+     * повторяться при @Retryable и не должен откатываться. Ключ идемпотентности занимается в отдельной транзакции
+     * до вызова движка: параллельный запрос или повтор с тем же ключом получает конфликт и деньги не переводит.
+     * После успешного вызова движка резерв лимита закрепляется, а ошибка сохранения ответа по ключу только
+     * пишется в лог - клиент получает проведенный перевод. Внешней транзакции нет, поэтому резерв лимита
+     * при ошибке снимается явно.
+     */
+    private TransferDto executeInLedger(CreateTransferRequest request, String idempotencyKey) {
+        User currentUser = MyUserDetails.current().getUser();
+
+        if (idempotencyKey != null) {
+            Optional<TransferDto> storedTransfer = idempotencyService.findTransfer(currentUser.getId(), idempotencyKey, request);
+            if (storedTransfer.isPresent()) {
+                return storedTransfer.get();
+            }
+        }
+
+        TransferLimitReservation reservation = transferLimitService.reserve(currentUser, request.getFromCardId(), request.getAmount());
+        long transferId;
+        TransferDto transferDto;
+        try {
+            transferId = nextTransferId();
+            if (idempotencyKey != null) {
+                idempotencyService.claimTransfer(currentUser.getId(), idempotencyKey, request);
+            }
+            try {
+                transferDto = createTransferInLedger(request, currentUser, transferId);
+            } catch (RuntimeException e) {
+                if (idempotencyKey != null) {
+                    idempotencyService.releaseTransfer(currentUser.getId(), idempotencyKey);
+                }
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            transferLimitService.release(reservation);
+            throw e;
+        }
+        transferLimitService.confirm(reservation);
+
+        if (idempotencyKey != null) {
+            try {
+                idempotencyService.completeTransfer(currentUser.getId(), idempotencyKey, transferDto);
+            } catch (RuntimeException e) {
+                log.warn("Не удалось сохранить результат перевода {} по ключу идемпотентности: {}",
+                        transferId, e.getMessage());
+            }
+        }
+        return transferDto;
+    }
+
+    /**
+     * id переводов LEDGER берутся из последовательности t_transfer блоками, чтобы не обращаться к БД на каждый
+     * перевод. Невыданные id блока при остановке приложения теряются и остаются пропусками в нумерации.
+     */
+    private long nextTransferId() {
+        synchronized (transferIdLock) {
+            if (transferIdPosition == transferIdBlock.size()) {
+                transferIdBlock = transferRepository.allocateIds(transferIdBlockSize);
+                transferIdPosition = 0;
+            }
+            return transferIdBlock.get(transferIdPosition++);
+        }
+    }
+
+    private TransferDto enqueueTransfer(CreateTransferRequest request, User currentUser) {
+        if (request.getAmount().compareTo(maxTransferAmount) > 0) {
+            throw new BadRequestException("Максимальная сумма перевода: " + maxTransferAmount);
+        }
+
+        Card fromCard = cardRepository.findById(request.getFromCardId()).orElseThrow(
+                () -> new CardNotFoundException("Карта отправителя не найдена")
+        );
+        Card toCard = cardRepository.findById(request.getToCardId()).orElseThrow(
+                () -> new CardNotFoundException("Карта получателя не найдена")
+        );
+
+        if (!fromCard.getOwner().getId().equals(currentUser.getId()) || !toCard.getOwner().getId().equals(currentUser.getId())) {
+            throw new AccessToResourceDeniedException("Переводы доступны только между своими картами");
+        }
+
+        Transfer transfer = Transfer.builder()
+                .fromCard(fromCard)
+                .toCard(toCard)
+                .owner(currentUser)
+                .amount(request.getAmount())
+                .createdAt(LocalDateTime.now())
+                .transferStatus(TransferStatus.IN_PROGRESS)
+                .build();
+
+        transferRepository.save(transfer);
+
+        return transferMapper.toTransferDto(transfer);
+    }
+
+    private void applyTransfer(Long fromCardId, Long toCardId, BigDecimal amount, User owner, Map<Long, Card> cards) {
+        Card fromCard = cards.get(fromCardId);
+        if (fromCard == null) {
+            throw new CardNotFoundException("Карта отправителя не найдена");
+        }
+        Card toCard = cards.get(toCardId);
+        if (toCard == null) {
+            throw new CardNotFoundException("Карта получателя не найдена");
+        }
+
+        if (!fromCard.getOwner().getId().equals(owner.getId()) || !toCard.getOwner().getId().equals(owner.getId())) {
+            throw new AccessToResourceDeniedException("Переводы доступны только между своими картами");
+        }
+
+        if (amount.compareTo(maxTransferAmount) > 0) {
+            throw new BadRequestException("Максимальная сумма перевода: " + maxTransferAmount);
+        }
+
+        if (fromCard.getBalance().compareTo(amount) < 0) {
+            throw new BadRequestException("Недостаточно средств для перевода");
+        }
+
+        if (toCard.getCardStatus() != CardStatus.ACTIVE) {
+            throw new BadRequestException("Карта получателя неактивна");
+        }
+
+        if (fromCard.getCardStatus() != CardStatus.ACTIVE) {
+            throw new BadRequestException("Карта отправителя неактивна");
+        }
+
+        fromCard.setBalance(fromCard.getBalance().subtract(amount));
+        toCard.setBalance(toCard.getBalance().add(amount));
+    }
+
+    private List<LedgerEntry> ledgerEntries(Transfer transfer, BigDecimal fromBalanceAfter, BigDecimal toBalanceAfter) {
+        return List.of(
+                LedgerEntry.builder()
+                        .card(transfer.getFromCard())
+                        .transfer(transfer)
+                        .entryType(LedgerEntryType.DEBIT)
+                        .amount(transfer.getAmount())
+                        .balanceAfter(fromBalanceAfter)
+                        .createdAt(transfer.getCreatedAt())
+                        .build(),
+                LedgerEntry.builder()
+                        .card(transfer.getToCard())
+                        .transfer(transfer)
+                        .entryType(LedgerEntryType.CREDIT)
+                        .amount(transfer.getAmount())
+                        .balanceAfter(toBalanceAfter)
+                        .createdAt(transfer.getCreatedAt())
+                        .build());
+    }
+
+    private Map<Long, Card> lockCards(Set<Long> cardIds) {
+        return cardRepository.findAllByIdForUpdate(cardIds).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+    }
+
+    private CardView debit(CreateTransferRequest request, User currentUser) {
+        return cardRepository.debitIfAllowed(request.getFromCardId(), currentUser.getId(), request.getAmount())
+                .orElseThrow(() -> {
+                    Card card = cardRepository.findById(request.getFromCardId()).orElseThrow(
+                            () -> new CardNotFoundException("Карта отправителя не найдена")
+                    );
+                    if (!card.getOwner().getId().equals(currentUser.getId())) {
+                        return new AccessToResourceDeniedException("Переводы доступны только между своими картами");
+                    }
+                    if (card.getCardStatus() != CardStatus.ACTIVE) {
+                        return new BadRequestException("Карта отправителя неактивна");
+                    }
+                    return new BadRequestException("Недостаточно средств для перевода");
+                });
+    }
+
+    private CardView credit(CreateTransferRequest request, User currentUser) {
+        return cardRepository.creditIfAllowed(request.getToCardId(), currentUser.getId(), request.getAmount())
+                .orElseThrow(() -> {
+                    Card card = cardRepository.findById(request.getToCardId()).orElseThrow(
+                            () -> new CardNotFoundException("Карта получателя не найдена")
+                    );
+                    if (!card.getOwner().getId().equals(currentUser.getId())) {
+                        return new AccessToResourceDeniedException("Переводы доступны только между своими картами");
+                    }
+                    return new BadRequestException("Карта получателя неактивна");
+                });
+    }
+
+    private Card lockCard(Long cardId, String notFoundMessage) {
+        return cardRepository.findByIdForUpdate(cardId).orElseThrow(
+                () -> new CardNotFoundException(notFoundMessage)
         );
-        return transferRepository.findAllByOwner(currentUser, pageable).map(transferMapper::toTransferDto);
     }
 }
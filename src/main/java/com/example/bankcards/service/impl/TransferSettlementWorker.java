@@ -0,0 +1,60 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.service.TransferService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.transfer.settlement.enabled", havingValue = "true", matchIfMissing = true)
+public class TransferSettlementWorker {
+
+    @Value("${app.transfer.settlement.workers:2}")
+    private int workers;
+
+    @Value("${app.transfer.settlement.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.transfer.settlement.poll-interval-ms:200}")
+    private long pollIntervalMs;
+
+    private final TransferService transferService;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newScheduledThreadPool(workers, new CustomizableThreadFactory("transfer-settlement-"));
+        for (int i = 0; i < workers; i++) {
+            executor.scheduleWithFixedDelay(this::settle, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void settle() {
+        try {
+            int settled;
+            do {
+                settled = transferService.settlePendingTransfers(batchSize);
+            } while (settled == batchSize && !executor.isShutdown());
+        } catch (RuntimeException e) {
+            log.warn("Не удалось провести пакет переводов: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.TransferStatsBucketDto;
+import com.example.bankcards.dto.TransferStatsDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.AccessToResourceDeniedException;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRollupRepository;
+import com.example.bankcards.security.MyUserDetails;
+import com.example.bankcards.service.StatsGranularity;
+import com.example.bankcards.service.TransferStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TransferStatsServiceImpl implements TransferStatsService {
+
+    @Value("${app.transfer.stats.max-period-days:1830}")
+    private long maxPeriodDays;
+
+    private final TransferRollupRepository transferRollupRepository;
+    private final CardRepository cardRepository;
+
+    @Override
+    public TransferStatsDto getStats(Long userId, Long cardId, StatsGranularity granularity, LocalDate from, LocalDate to) {
+        LocalDate periodEnd = to != null ? to : LocalDate.now();
+        LocalDate periodStart = from != null ? from
+                : granularity == StatsGranularity.MONTH ? periodEnd.withDayOfMonth(1).minusMonths(11) : periodEnd.minusDays(29);
+        if (periodStart.isAfter(periodEnd)) {
+            throw new BadRequestException("Начало периода должно быть не позже его конца");
+        }
+        if (ChronoUnit.DAYS.between(periodStart, periodEnd) >= maxPeriodDays) {
+            throw new BadRequestException("Период статистики не может превышать " + maxPeriodDays + " дней");
+        }
+
+        MyUserDetails currentUser = MyUserDetails.current();
+        boolean admin = currentUser.isAdmin();
+
+        TransferStatsDto.TransferStatsDtoBuilder stats = TransferStatsDto.builder()
+                .granularity(granularity)
+                .from(periodStart)
+                .to(periodEnd);
+        List<TransferStatsBucketDto> buckets;
+        if (cardId != null) {
+            Card card = cardRepository.findById(cardId).orElseThrow(
+                    () -> new CardNotFoundException("Карта с id - " + cardId + " не найдена")
+            );
+            if (!admin && !card.getOwner().getId().equals(currentUser.getId())) {
+                throw new AccessToResourceDeniedException("Вы не имеете доступа к этой карте");
+            }
+            if (userId != null && !card.getOwner().getId().equals(userId)) {
+                throw new BadRequestException("Карта не принадлежит указанному пользователю");
+            }
+            stats.cardId(cardId);
+            buckets = transferRollupRepository.findCardStats(cardId, granularity, periodStart, periodEnd);
+        } else {
+            Long ownerId = userId != null ? userId : currentUser.getId();
+            if (!admin && !ownerId.equals(currentUser.getId())) {
+                throw new AccessToResourceDeniedException("Статистика других пользователей доступна только администратору");
+            }
+            stats.userId(ownerId);
+            buckets = transferRollupRepository.findOwnerStats(ownerId, granularity, periodStart, periodEnd);
+        }
+        return stats.buckets(buckets).build();
+    }
+}
@@ -1,18 +1,24 @@
 package com.example.bankcards.service.impl;
 
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UserDto;
 import com.example.bankcards.dto.UserResponse;
+import com.example.bankcards.dto.UserSummaryDto;
 import com.example.bankcards.dto.UserUpdateDto;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.MyUserDetails;
+import com.example.bankcards.security.MyUserDetailsService;
+import com.example.bankcards.security.TokenVersionRegistry;
+import com.example.bankcards.service.RefreshTokenService;
+import com.example.bankcards.service.RowCountEstimateService;
 import com.example.bankcards.service.UserService;
 import com.example.bankcards.util.UserMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,13 +28,17 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordEncoder passwordEncoder;
+    private final RowCountEstimateService rowCountEstimateService;
+    private final MyUserDetailsService myUserDetailsService;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final RefreshTokenService refreshTokenService;
 
     @Override
     public UserResponse getMyUserInfo() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepository.findByUsername(username).orElseThrow(
-                () -> new UserNotFoundException("Пользователь " + username + " не найден")
+        Long userId = MyUserDetails.current().getId();
+        User user = userRepository.findById(userId).orElseThrow(
+                () -> new UserNotFoundException("Пользователь с id - " + userId + " не найден")
         );
         return userMapper.toUserResponse(user);
     }
@@ -38,6 +48,17 @@ public class UserServiceImpl implements UserService {
         return userRepository.findAll(pageable).map(userMapper::toUserResponse);
     }
 
+    @Override
+    public SliceDto<UserResponse> getAllUsersSlice(Pageable pageable, boolean estimateTotal) {
+        return SliceDto.of(userRepository.findAllAsSlice(pageable).map(userMapper::toUserResponse),
+                estimateTotal ? rowCountEstimateService.estimateTableRows("t_user") : null);
+    }
+
+    @Override
+    public Page<UserSummaryDto> getUserSummaries(Pageable pageable) {
+        return userRepository.findAllSummaries(pageable);
+    }
+
     @Override
     public UserResponse getUserById(Long id) {
         return userRepository.findById(id).map(userMapper::toUserResponse).orElseThrow(
@@ -51,15 +72,21 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findById(userId).orElseThrow(
                 () -> new UserNotFoundException("Пользователь с id - " + userId + " не найден")
         );
+        myUserDetailsService.evict(user.getUsername());
         if (request.getUsername() != null) {
             user.setUsername(request.getUsername());
         }
         if (request.getPassword() != null) {
-            user.setPassword(bCryptPasswordEncoder.encode(request.getPassword()));
+            user.setPassword(passwordEncoder.encode(request.getPassword()));
         }
         if (request.getRole() != null) {
             user.setRole(request.getRole());
         }
+        if (request.getUsername() != null || request.getPassword() != null || request.getRole() != null) {
+            user.setTokenVersion(user.getTokenVersion() + 1);
+            tokenVersionRegistry.update(user.getId(), user.getTokenVersion());
+            refreshTokenService.revokeAll(user.getId());
+        }
         return userMapper.toUserResponse(userRepository.save(user));
     }
 
@@ -69,6 +96,9 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findById(id).orElseThrow(
                 () -> new UserNotFoundException("Пользователь с id - " + id + " не найден")
         );
+        myUserDetailsService.evict(user.getUsername());
+        tokenVersionRegistry.revoke(user.getId());
+        refreshTokenService.revokeAll(user.getId());
         userRepository.delete(user);
     }
 }
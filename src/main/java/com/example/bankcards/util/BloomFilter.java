@@ -0,0 +1,67 @@
+package com.example.bankcards.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума: отвечает "точно нет" или "возможно да". Число бит и хеш-функций подбирается по ожидаемому
+ * числу элементов и допустимой доле ложных срабатываний. Позиции бит получаются двойным хешированием
+ * из {@link String#hashCode()}, который строка кэширует, поэтому повторная проверка той же строки не читает
+ * ее символы. Добавление и проверка потокобезопасны, удаление не поддерживается.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long mask;
+    private final int hashes;
+
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        double optimalBits = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long bits = Math.max(64, Long.highestOneBit((long) Math.ceil(optimalBits) - 1) << 1);
+        this.words = new AtomicLongArray(Math.toIntExact(bits >>> 6));
+        this.mask = bits - 1;
+        this.hashes = Math.max(1, (int) Math.round(optimalBits / n * Math.log(2)));
+    }
+
+    public void put(String key) {
+        long h1 = mix(key.hashCode());
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & mask;
+            long bitMask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & bitMask) == 0) {
+                words.getAndAccumulate(word, bitMask, (current, added) -> current | added);
+            }
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long h1 = mix(key.hashCode());
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = (h1 + i * h2) & mask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return mask + 1;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
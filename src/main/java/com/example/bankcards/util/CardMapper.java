@@ -2,6 +2,7 @@ package com.example.bankcards.util;
 
 import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.projection.CardView;
 import com.example.bankcards.entity.Card;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -32,4 +33,13 @@ public class CardMapper {
                 .build();
     }
 
+    public CardResponse toCardResponse(CardView card) {
+        return CardResponse.builder()
+                .id(card.getId())
+                .number(cardNumberUtils.maskCardNumber(cardNumberUtils.decryptCardNumber(card.getNumber())))
+                .cardStatus(card.getCardStatus())
+                .expiryDate(card.getExpiryDate())
+                .balance(card.getBalance())
+                .build();
+    }
 }
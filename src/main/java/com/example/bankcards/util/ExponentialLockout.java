@@ -0,0 +1,142 @@
+package com.example.bankcards.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Счетчики неудачных попыток по строковым ключам с экспоненциально растущей блокировкой. Ключи разнесены
+ * по полосам, у каждой полосы своя блокировка. Начиная с maxFailures неудач каждая следующая блокирует ключ
+ * на baseLockout * 2^(n - maxFailures), но не дольше maxLockout. Неудачи забываются, если ключ не заблокирован
+ * и с последней из них прошло forgetAfter. Число ключей в полосе ограничено: новый ключ в заполненной полосе
+ * вытесняет ключ с наименьшим числом неудач (из равных - с самой давней неудачей), поэтому поток одиночных
+ * неудач с разных ключей не отключает учет, а вытесняет в первую очередь такие же одиночные записи.
+ */
+public class ExponentialLockout {
+
+    private final int maxFailures;
+    private final long baseLockoutNanos;
+    private final long maxLockoutNanos;
+    private final long forgetAfterNanos;
+    private final int keysPerStripe;
+    private final Stripe[] stripes;
+
+    public ExponentialLockout(int stripeCount, int maxKeys, int maxFailures,
+                              long baseLockoutNanos, long maxLockoutNanos, long forgetAfterNanos) {
+        this.maxFailures = Math.max(1, maxFailures);
+        this.baseLockoutNanos = baseLockoutNanos;
+        this.maxLockoutNanos = maxLockoutNanos;
+        this.forgetAfterNanos = forgetAfterNanos;
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(2, stripeCount) - 1) << 1];
+        this.keysPerStripe = Math.max(1, maxKeys / stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Оставшееся время блокировки ключа в наносекундах, 0 - ключ не заблокирован.
+     */
+    public long lockedFor(String key, long nowNanos) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(key);
+            return entry == null ? 0 : Math.max(0, entry.lockedUntil - nowNanos);
+        }
+    }
+
+    /**
+     * Учитывает неудачу и возвращает длительность наложенной блокировки, 0 - ключ не заблокирован.
+     */
+    public long recordFailure(String key, long nowNanos) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Entry entry = stripe.entries.get(key);
+            if (entry == null) {
+                if (stripe.entries.size() >= keysPerStripe) {
+                    stripe.removeExpired(nowNanos, forgetAfterNanos);
+                    if (stripe.entries.size() >= keysPerStripe) {
+                        stripe.evictWeakest();
+                    }
+                }
+                entry = new Entry();
+                stripe.entries.put(key, entry);
+            } else if (entry.isForgotten(nowNanos, forgetAfterNanos)) {
+                entry.failures = 0;
+            }
+
+            entry.failures++;
+            entry.lastFailure = nowNanos;
+            if (entry.failures < maxFailures) {
+                return 0;
+            }
+            long lockout = lockout(entry.failures - maxFailures);
+            entry.lockedUntil = nowNanos + lockout;
+            return lockout;
+        }
+    }
+
+    public void reset(String key) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.entries.remove(key);
+        }
+    }
+
+    /**
+     * Удаляет ключи, неудачи которых уже забыты, и возвращает число оставшихся ключей.
+     */
+    public int sweep(long nowNanos) {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.removeExpired(nowNanos, forgetAfterNanos);
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    private long lockout(int doublings) {
+        if (doublings >= Long.numberOfLeadingZeros(baseLockoutNanos) - 1) {
+            return maxLockoutNanos;
+        }
+        return Math.min(baseLockoutNanos << doublings, maxLockoutNanos);
+    }
+
+    private Stripe stripe(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static class Stripe {
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        private void removeExpired(long nowNanos, long forgetAfterNanos) {
+            entries.values().removeIf(entry -> entry.isForgotten(nowNanos, forgetAfterNanos));
+        }
+
+        private void evictWeakest() {
+            String weakestKey = null;
+            Entry weakest = null;
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                Entry entry = candidate.getValue();
+                if (weakest == null || entry.failures < weakest.failures
+                        || (entry.failures == weakest.failures && entry.lastFailure - weakest.lastFailure < 0)) {
+                    weakestKey = candidate.getKey();
+                    weakest = entry;
+                }
+            }
+            entries.remove(weakestKey);
+        }
+    }
+
+    private static class Entry {
+        private int failures;
+        private long lastFailure;
+        private long lockedUntil;
+
+        private boolean isForgotten(long nowNanos, long forgetAfterNanos) {
+            return lockedUntil - nowNanos <= 0 && nowNanos - lastFailure >= forgetAfterNanos;
+        }
+    }
+}
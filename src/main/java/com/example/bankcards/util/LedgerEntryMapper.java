@@ -0,0 +1,20 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.dto.LedgerEntryDto;
+import com.example.bankcards.entity.LedgerEntry;
+import org.springframework.stereotype.Component;
+
+@Component
+public class LedgerEntryMapper {
+
+    public LedgerEntryDto toLedgerEntryDto(LedgerEntry entry) {
+        return LedgerEntryDto.builder()
+                .id(entry.getId())
+                .transferId(entry.getTransfer() != null ? entry.getTransfer().getId() : null)
+                .entryType(entry.getEntryType())
+                .amount(entry.getAmount())
+                .balanceAfter(entry.getBalanceAfter())
+                .createdAt(entry.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.bankcards.util;
+
+import java.util.Arrays;
+
+/**
+ * Суммы по ключам за скользящее окно из нескольких интервалов фиксированной длины. Ключи разнесены
+ * по полосам, у каждой полосы своя блокировка, поэтому обращения к разным ключам почти не конкурируют.
+ * Интервал, вышедший за пределы окна, обнуляется при следующей записи в ту же ячейку.
+ */
+public class SlidingWindowCounter {
+
+    private final int buckets;
+    private final long bucketMillis;
+    private final Stripe[] stripes;
+
+    public SlidingWindowCounter(int stripeCount, int buckets, long bucketMillis) {
+        this.buckets = buckets;
+        this.bucketMillis = bucketMillis;
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(2, stripeCount) - 1) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public long sum(long key, long nowMillis) {
+        long bucket = bucketOf(nowMillis);
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Window window = stripe.windows.get(key);
+            return window == null ? 0 : window.sum(bucket);
+        }
+    }
+
+    /**
+     * Добавляет сумму в текущий интервал, если итог за окно вместе с ней не превысит лимит.
+     */
+    public boolean tryAdd(long key, long amount, long limit, long nowMillis) {
+        long bucket = bucketOf(nowMillis);
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Window window = stripe.window(key, buckets);
+            if (window.sum(bucket) + amount > limit) {
+                return false;
+            }
+            window.add(bucket, amount);
+            return true;
+        }
+    }
+
+    /**
+     * Добавляет сумму в интервал, к которому относится момент atMillis. Отрицательная сумма снимает
+     * ранее добавленную; если интервал уже вытеснен из окна, вызов ничего не меняет.
+     */
+    public void add(long key, long amount, long atMillis) {
+        long bucket = bucketOf(atMillis);
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.window(key, buckets).add(bucket, amount);
+        }
+    }
+
+    private long bucketOf(long millis) {
+        return Math.floorDiv(millis, bucketMillis);
+    }
+
+    private Stripe stripe(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h ^ (h >>> 32)) & (stripes.length - 1)];
+    }
+
+    private static class Stripe {
+        private final LongObjectHashMap<Window> windows = new LongObjectHashMap<>(64);
+
+        private Window window(long key, int buckets) {
+            Window window = windows.get(key);
+            if (window == null) {
+                window = new Window(buckets);
+                windows.put(key, window);
+            }
+            return window;
+        }
+    }
+
+    private static class Window {
+        private final long[] amounts;
+        private final long[] bucketNumbers;
+
+        private Window(int buckets) {
+            amounts = new long[buckets];
+            bucketNumbers = new long[buckets];
+            Arrays.fill(bucketNumbers, Long.MIN_VALUE);
+        }
+
+        private long sum(long currentBucket) {
+            long total = 0;
+            for (int i = 0; i < amounts.length; i++) {
+                if (bucketNumbers[i] > currentBucket - amounts.length && bucketNumbers[i] <= currentBucket) {
+                    total += amounts[i];
+                }
+            }
+            return total;
+        }
+
+        private void add(long bucket, long amount) {
+            int slot = (int) Math.floorMod(bucket, (long) amounts.length);
+            if (bucketNumbers[slot] != bucket) {
+                if (bucketNumbers[slot] > bucket) {
+                    return;
+                }
+                bucketNumbers[slot] = bucket;
+                amounts[slot] = 0;
+            }
+            amounts[slot] = Math.max(0, amounts[slot] + amount);
+        }
+    }
+}
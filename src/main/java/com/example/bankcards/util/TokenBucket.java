@@ -0,0 +1,57 @@
+package com.example.bankcards.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Корзина токенов без блокировок. Вместо числа токенов хранится теоретическое время прихода следующего
+ * запроса (GCRA): каждый запрос сдвигает его на интервал пополнения одного токена, и запрос пропускается,
+ * пока это время опережает текущее не больше чем на емкость корзины. Состояние - одно поле объекта, обновляемое CAS.
+ */
+public class TokenBucket {
+
+    private static final VarHandle THEORETICAL_ARRIVAL;
+
+    static {
+        try {
+            THEORETICAL_ARRIVAL = MethodHandles.lookup().findVarHandle(TokenBucket.class, "theoreticalArrival", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private volatile long theoreticalArrival;
+
+    public TokenBucket(int capacity, double tokensPerSecond, long nowNanos) {
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond));
+        this.capacityNanos = intervalNanos * capacity;
+        this.theoreticalArrival = nowNanos;
+    }
+
+    /**
+     * Забирает токен. Возвращает 0, если токен получен, иначе время в наносекундах до появления токена.
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival;
+            long next = Math.max(arrival - nowNanos, 0) + nowNanos + intervalNanos;
+            long waitNanos = next - capacityNanos - nowNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (THEORETICAL_ARRIVAL.compareAndSet(this, arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Корзина полна: такая корзина ничем не отличается от только что созданной.
+     */
+    public boolean isFull(long nowNanos) {
+        return theoreticalArrival - nowNanos <= 0;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция в истории переводов, упорядоченной по (createdAt, id) по убыванию.
+ * Клиенту передается непрозрачной строкой в base64url.
+ */
+public record TransferCursor(LocalDateTime createdAt, Long id) {
+
+    public static TransferCursor of(Transfer transfer) {
+        return new TransferCursor(transfer.getCreatedAt(), transfer.getId());
+    }
+
+    public static TransferCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            return new TransferCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException("Некорректный курсор");
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.bankcards.util;
 
+import com.example.bankcards.dto.CardResponse;
 import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.dto.projection.CardView;
+import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transfer;
-import com.example.bankcards.entity.TransferStatus;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 @Component
 @RequiredArgsConstructor
@@ -15,12 +19,40 @@ public class TransferMapper {
     private final UserMapper userMapper;
 
     public TransferDto toTransferDto(Transfer transfer) {
+        return toTransferDto(transfer, cardMapper::toCardResponse);
+    }
+
+    /**
+     * Преобразователь для страницы переводов: карта, встречающаяся в нескольких переводах страницы,
+     * расшифровывается и преобразуется один раз.
+     */
+    public Function<Transfer, TransferDto> pageMapper() {
+        Map<Long, CardResponse> cards = new HashMap<>();
+        return transfer -> toTransferDto(transfer,
+                card -> cards.computeIfAbsent(card.getId(), id -> cardMapper.toCardResponse(card)));
+    }
+
+    private TransferDto toTransferDto(Transfer transfer, Function<Card, CardResponse> cardResponses) {
+        return TransferDto.builder()
+                .id(transfer.getId())
+                .fromCard(cardResponses.apply(transfer.getFromCard()))
+                .toCard(cardResponses.apply(transfer.getToCard()))
+                .amount(transfer.getAmount())
+                .createdAt(transfer.getCreatedAt())
+                .transferStatus(transfer.getTransferStatus())
+                .rejectReason(transfer.getRejectReason())
+                .owner(userMapper.toUserDto(transfer.getOwner()))
+                .build();
+    }
+
+    public TransferDto toTransferDto(Transfer transfer, CardView fromCard, CardView toCard) {
         return TransferDto.builder()
-                .fromCard(cardMapper.toCardResponse(transfer.getFromCard()))
-                .toCard(cardMapper.toCardResponse(transfer.getToCard()))
+                .id(transfer.getId())
+                .fromCard(cardMapper.toCardResponse(fromCard))
+                .toCard(cardMapper.toCardResponse(toCard))
                 .amount(transfer.getAmount())
-                .createdAt(LocalDateTime.now())
-                .transferStatus(TransferStatus.COMPLETED)
+                .createdAt(transfer.getCreatedAt())
+                .transferStatus(transfer.getTransferStatus())
                 .owner(userMapper.toUserDto(transfer.getOwner()))
                 .build();
     }
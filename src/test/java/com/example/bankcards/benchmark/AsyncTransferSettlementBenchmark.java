@@ -0,0 +1,61 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.TransferService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер задержки приема асинхронных переводов и пропускной способности их проведения воркерами.
+ * Запуск: mvn -Pbenchmark test -Dtest=AsyncTransferSettlementBenchmark
+ */
+@SpringBootTest
+public class AsyncTransferSettlementBenchmark extends BenchmarkFixture {
+
+    private static final int TRANSFERS = 2_000;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Test
+    void submittedTransfers_shouldAllBeSettled() throws Exception {
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < TRANSFERS; i++) {
+            Long from = i % 2 == 0 ? first.getId() : second.getId();
+            Long to = i % 2 == 0 ? second.getId() : first.getId();
+            transferService.submitTransfer(new CreateTransferRequest(from, to, BigDecimal.ONE), null);
+        }
+        long submitNanos = System.nanoTime() - startedAt;
+
+        long pending;
+        do {
+            Thread.sleep(50);
+            pending = transferRepository.findAllByOwnerId(user.getId(), Pageable.unpaged()).stream()
+                    .map(Transfer::getTransferStatus)
+                    .filter(TransferStatus.IN_PROGRESS::equals)
+                    .count();
+        } while (pending > 0 && System.nanoTime() - startedAt < 120_000_000_000L);
+        long totalNanos = System.nanoTime() - startedAt;
+
+        System.out.printf("submit: %.1f us/transfer, settled %d transfers in %.1f ms%n",
+                submitNanos / 1_000.0 / TRANSFERS, TRANSFERS, totalNanos / 1_000_000.0);
+
+        assertThat(pending).isZero();
+        assertThat(cardRepository.findById(first.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo(INITIAL_BALANCE);
+        assertThat(cardRepository.findById(second.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo(INITIAL_BALANCE);
+    }
+}
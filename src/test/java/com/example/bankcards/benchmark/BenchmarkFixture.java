@@ -0,0 +1,78 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.MyUserDetails;
+import com.example.bankcards.util.CardNumberUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Общая подготовка нагрузочных тестов: пользователь с двумя активными картами, аутентифицированный в текущем потоке.
+ * После теста удаляются переводы пользователя (вместе с проводками), карты и сам пользователь.
+ * {@code @BeforeEach} наследника выполняется после {@link #createUserWithCards()}, а {@code @AfterEach} - до
+ * {@link #deleteUserWithCards()}, поэтому наследник может опираться на готовые карты при заполнении данных.
+ */
+public abstract class BenchmarkFixture {
+
+    protected static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000);
+
+    @Autowired
+    protected UserRepository userRepository;
+
+    @Autowired
+    protected CardRepository cardRepository;
+
+    @Autowired
+    protected CardNumberUtils cardNumberUtils;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    protected User user;
+    protected Card first;
+    protected Card second;
+
+    @BeforeEach
+    void createUserWithCards() {
+        user = userRepository.save(User.builder()
+                .username(getClass().getSimpleName() + "-" + System.nanoTime())
+                .password("benchmark")
+                .role(Role.USER)
+                .build());
+        first = cardRepository.save(newCard());
+        second = cardRepository.save(newCard());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new MyUserDetails(user), null));
+    }
+
+    @AfterEach
+    void deleteUserWithCards() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("delete from t_transfer where owner_id = ?", user.getId());
+        cardRepository.deleteAllById(List.of(first.getId(), second.getId()));
+        userRepository.delete(user);
+    }
+
+    private Card newCard() {
+        return Card.builder()
+                .owner(user)
+                .number(cardNumberUtils.encryptCardNumber(cardNumberUtils.generateCardNumber()))
+                .cardStatus(CardStatus.ACTIVE)
+                .balance(INITIAL_BALANCE)
+                .expiryDate(LocalDateTime.now().plusYears(1))
+                .build();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.bankcards.benchmark;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Тот же сценарий, что и в {@link TransferConcurrencyBenchmark}, но с условными UPDATE баланса без загрузки сущностей.
+ * Запуск: mvn -Pbenchmark test -Dtest=ConditionalTransferConcurrencyBenchmark
+ */
+@TestPropertySource(properties = "app.transfer.concurrency-mode=CONDITIONAL")
+public class ConditionalTransferConcurrencyBenchmark extends TransferConcurrencyBenchmark {
+}
@@ -0,0 +1,81 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.security.JwtProvider;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение способов проверки JWT на один запрос: прежний вариант (два разбора токена новыми парсерами -
+ * проверка и извлечение имени), один разбор переиспользуемым парсером и {@link JwtProvider#verify} с кэшем
+ * проверенных токенов. Клиенты выбираются случайно из 1000 действующих токенов.
+ * Запуск: mvn -Pbenchmark test -Dtest=JwtVerificationBenchmark
+ */
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+    private static final String ISSUER = "bank-rest-app";
+    private static final int TOKENS = 1_000;
+    private static final int WARMUP = 100_000;
+    private static final int OPERATIONS = 300_000;
+
+    @Test
+    void verify_shouldBeFasterThanParsingTwice() {
+        JwtProvider jwtProvider = new JwtProvider();
+        ReflectionTestUtils.setField(jwtProvider, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtProvider, "expiresIn", 3_600_000);
+        ReflectionTestUtils.setField(jwtProvider, "issuer", ISSUER);
+        ReflectionTestUtils.setField(jwtProvider, "verifiedCacheSize", 10_000L);
+        jwtProvider.init();
+
+        String[] tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = jwtProvider.generateToken(User.builder().username("user-" + i).build());
+        }
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        JwtParser parser = Jwts.parserBuilder().setSigningKey(key).requireIssuer(ISSUER).build();
+
+        Consumer<String> parseTwice = token -> {
+            Jwts.parserBuilder().setSigningKey(key).requireIssuer(ISSUER).build().parseClaimsJws(token);
+            Jwts.parserBuilder().setSigningKey(key).requireIssuer(ISSUER).build()
+                    .parseClaimsJws(token).getBody().getSubject();
+        };
+        Consumer<String> parseOnce = token -> parser.parseClaimsJws(token).getBody().getSubject();
+        Consumer<String> cachedVerify = token -> jwtProvider.verify(token).getSubject();
+
+        double parseTwiceNanos = measure(parseTwice, tokens);
+        double parseOnceNanos = measure(parseOnce, tokens);
+        double cachedNanos = measure(cachedVerify, tokens);
+
+        System.out.printf("%-28s %-12s%n", "variant", "ns/op");
+        System.out.printf("%-28s %-12.0f%n", "два разбора, новые парсеры", parseTwiceNanos);
+        System.out.printf("%-28s %-12.0f%n", "один разбор", parseOnceNanos);
+        System.out.printf("%-28s %-12.0f%n", "verify с кэшем", cachedNanos);
+        assertThat(parseOnceNanos).isLessThan(parseTwiceNanos);
+        assertThat(cachedNanos).isLessThan(parseOnceNanos);
+    }
+
+    private static double measure(Consumer<String> variant, String[] tokens) {
+        run(variant, tokens, WARMUP);
+        return run(variant, tokens, OPERATIONS);
+    }
+
+    private static double run(Consumer<String> variant, String[] tokens, int operations) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            variant.accept(tokens[random.nextInt(TOKENS)]);
+        }
+        return (double) (System.nanoTime() - startedAt) / operations;
+    }
+}
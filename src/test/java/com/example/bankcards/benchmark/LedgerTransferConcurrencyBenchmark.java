@@ -0,0 +1,25 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.ledger.LedgerEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Тот же сценарий, что и в {@link TransferConcurrencyBenchmark}, но с балансами в памяти и журналом на диске.
+ * Перед сверкой балансов в БД принудительно записывается контрольная точка.
+ * Запуск: mvn -Pbenchmark test -Dtest=LedgerTransferConcurrencyBenchmark
+ */
+@TestPropertySource(properties = {
+        "app.transfer.concurrency-mode=LEDGER",
+        "app.transfer.ledger.journal-path=target/benchmark-transfer-journal.dat"
+})
+public class LedgerTransferConcurrencyBenchmark extends TransferConcurrencyBenchmark {
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Override
+    protected void flushBalances() {
+        ledgerEngine.checkpoint();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.bankcards.benchmark;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Тот же сценарий, что и в {@link TransferConcurrencyBenchmark}, но с оптимистичными блокировками и повтором транзакции.
+ * Запуск: mvn -Pbenchmark test -Dtest=OptimisticTransferConcurrencyBenchmark
+ */
+@TestPropertySource(properties = "app.transfer.concurrency-mode=OPTIMISTIC")
+public class OptimisticTransferConcurrencyBenchmark extends TransferConcurrencyBenchmark {
+}
@@ -0,0 +1,126 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.exception.PasswordHashingRejectedException;
+import com.example.bankcards.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Стоимость bcrypt против пропускной способности пула хеширования: для каждого значения strength
+ * измеряется время одной проверки пароля и число проверок в секунду через {@link BoundedPasswordEncoder}
+ * с пулом по числу ядер. Затем всплеск из BURST одновременных входов подается на пул с ограниченной очередью:
+ * лишние запросы отклоняются сразу, а не занимают процессор.
+ * Запуск: mvn -Pbenchmark test -Dtest=PasswordHashingBenchmark
+ */
+public class PasswordHashingBenchmark {
+
+    private static final int[] STRENGTHS = {8, 10, 12};
+    private static final long MEASURE_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final int BURST = 64;
+    private static final int QUEUE_CAPACITY = 8;
+
+    @Test
+    void hashCost_shouldTradeThroughputForStrength() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService clients = Executors.newFixedThreadPool(threads * 2);
+        try {
+            System.out.printf("%-10s %-14s %-14s%n", "strength", "ms/check", "checks/s");
+            double previousThroughput = Double.MAX_VALUE;
+            for (int strength : STRENGTHS) {
+                BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(
+                        new BCryptPasswordEncoder(strength), threads, threads * 4, new SimpleMeterRegistry());
+                try {
+                    String hash = encoder.encode("P@ssw0rd123");
+                    encoder.matches("P@ssw0rd123", hash);
+
+                    long startedAt = System.nanoTime();
+                    encoder.matches("P@ssw0rd123", hash);
+                    double singleMillis = (System.nanoTime() - startedAt) / 1e6;
+
+                    double throughput = throughput(encoder, hash, clients, threads * 2);
+                    System.out.printf("%-10d %-14.1f %-14.1f%n", strength, singleMillis, throughput);
+                    assertThat(throughput).isLessThan(previousThroughput);
+                    previousThroughput = throughput;
+                } finally {
+                    encoder.shutdown();
+                }
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void burst_shouldRejectLoginsBeyondQueueWithoutHashing() throws Exception {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(10), 1, QUEUE_CAPACITY, new SimpleMeterRegistry());
+        String hash = new BCryptPasswordEncoder(10).encode("P@ssw0rd123");
+        ExecutorService clients = Executors.newFixedThreadPool(BURST);
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger accepted = new AtomicInteger();
+        long[] rejectNanos = new long[BURST];
+        try {
+            List<Future<?>> futures = new ArrayList<>(BURST);
+            for (int i = 0; i < BURST; i++) {
+                int client = i;
+                futures.add(clients.submit(() -> {
+                    long startedAt = System.nanoTime();
+                    try {
+                        encoder.matches("P@ssw0rd123", hash);
+                        accepted.incrementAndGet();
+                    } catch (PasswordHashingRejectedException e) {
+                        rejectNanos[client] = System.nanoTime() - startedAt;
+                        rejected.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clients.shutdownNow();
+            encoder.shutdown();
+        }
+
+        long maxRejectMicros = 0;
+        for (long nanos : rejectNanos) {
+            maxRejectMicros = Math.max(maxRejectMicros, TimeUnit.NANOSECONDS.toMicros(nanos));
+        }
+        System.out.printf("%-24s %d%n", "принято", accepted.get());
+        System.out.printf("%-24s %d%n", "отклонено", rejected.get());
+        System.out.printf("%-24s %d мкс%n", "макс. время отказа", maxRejectMicros);
+        assertThat(rejected.get()).isGreaterThan(BURST / 2);
+        assertThat(accepted.get() + rejected.get()).isEqualTo(BURST);
+    }
+
+    private static double throughput(BoundedPasswordEncoder encoder, String hash, ExecutorService clients,
+                                     int clientCount) throws Exception {
+        AtomicInteger checks = new AtomicInteger();
+        long deadline = System.nanoTime() + MEASURE_NANOS;
+        long startedAt = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(clientCount);
+        for (int i = 0; i < clientCount; i++) {
+            futures.add(clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    encoder.matches("P@ssw0rd123", hash);
+                    checks.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return checks.get() / ((System.nanoTime() - startedAt) / 1e9);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.RateLimitFilter;
+import com.example.bankcards.security.RateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер накладных расходов фильтра ограничения частоты запросов на POST /api/transfers при разном числе
+ * потоков: 100 000 пользователей с разных IP-адресов, лимиты не достигаются, поэтому каждый запрос проходит
+ * обе проверки (по IP и по пользователю). Случайный выбор клиента - худший случай для кэшей процессора. Время на операцию пересчитывается на число реально занятых ядер.
+ * Запуск: mvn -Pbenchmark test -Dtest=RateLimitBenchmark
+ */
+public class RateLimitBenchmark {
+
+    private static final int CLIENTS = 100_000;
+    private static final int REQUESTS_PER_THREAD = 2_000_000;
+    private static final int[] THREADS = {1, 4, 8, 16};
+
+    @Test
+    void filter_shouldAddNegligibleOverhead() throws Exception {
+        RateLimiter rateLimiter = new RateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "enabled", true);
+        ReflectionTestUtils.setField(rateLimiter, "maxKeys", CLIENTS);
+        ReflectionTestUtils.setField(rateLimiter, "transferUserCapacity", Integer.MAX_VALUE / 2);
+        ReflectionTestUtils.setField(rateLimiter, "transferUserPerSecond", 1_000_000.0);
+        ReflectionTestUtils.setField(rateLimiter, "transferIpCapacity", Integer.MAX_VALUE / 2);
+        ReflectionTestUtils.setField(rateLimiter, "transferIpPerSecond", 1_000_000.0);
+        rateLimiter.init();
+        RateLimitFilter filter = new RateLimitFilter(rateLimiter, new ObjectMapper());
+
+        String[] addresses = new String[CLIENTS];
+        UsernamePasswordAuthenticationToken[] authentications = new UsernamePasswordAuthenticationToken[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            addresses[i] = "10." + (i >> 16) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF);
+            authentications[i] = new UsernamePasswordAuthenticationToken("user-" + i, null, List.of());
+        }
+
+        run(filter, addresses, authentications, REQUESTS_PER_THREAD);
+        double bareNanos = run(null, addresses, authentications, REQUESTS_PER_THREAD);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("без фильтра: %.1f ns/op%n", bareNanos);
+        System.out.printf("%-8s %-14s %-12s%n", "threads", "ops/s", "ns/op");
+        for (int threads : THREADS) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            long startedAt = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> run(filter, addresses, authentications, REQUESTS_PER_THREAD)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long nanos = System.nanoTime() - startedAt;
+            executor.shutdown();
+
+            long operations = (long) threads * REQUESTS_PER_THREAD;
+            double nanosPerOperation = (double) nanos * Math.min(threads, cores) / operations;
+            System.out.printf("%-8d %-14.0f %-12.1f%n", threads, operations * 1_000_000_000.0 / nanos, nanosPerOperation);
+            assertThat(nanosPerOperation).isLessThan(2_000);
+        }
+    }
+
+    private double run(RateLimitFilter filter, String[] addresses,
+                       UsernamePasswordAuthenticationToken[] authentications, int operations) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/transfers");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (servletRequest, servletResponse) -> { };
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int client = random.nextInt(CLIENTS);
+            SecurityContextHolder.getContext().setAuthentication(authentications[client]);
+            request.setRemoteAddr(addresses[client]);
+            if (filter == null) {
+                chain.doFilter(request, response);
+            } else {
+                filter.doFilter(request, response, chain);
+            }
+        }
+        assertThat(response.getStatus()).isEqualTo(200);
+        SecurityContextHolder.clearContext();
+        return (double) (System.nanoTime() - startedAt) / operations;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.security.RevokedTokenRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Стоимость ответа "токен не отозван" в {@link RevokedTokenRegistry} при 100 000 отозванных токенов.
+ * Проверяются jti 1000 действующих токенов: строки переиспользуются, как и claims из кэша проверенных токенов.
+ * Ложноположительный ответ фильтра Блума уходит в БД (здесь - заглушка репозитория), поэтому время измеряется
+ * на токенах с отрицательным ответом фильтра, а доля токенов с проверкой в БД выводится отдельно.
+ * Запуск: mvn -Pbenchmark test -Dtest=RevokedTokenBenchmark
+ */
+public class RevokedTokenBenchmark {
+
+    private static final int REVOKED = 100_000;
+    private static final int ACTIVE = 1_000;
+    private static final int WARMUP = 1_000_000;
+    private static final int OPERATIONS = 10_000_000;
+
+    @Test
+    void isRevoked_shouldAnswerActiveTokensWithoutDatabase() {
+        List<String> revoked = new ArrayList<>(REVOKED);
+        for (int i = 0; i < REVOKED; i++) {
+            revoked.add(UUID.randomUUID().toString());
+        }
+        String[] active = new String[ACTIVE];
+        for (int i = 0; i < ACTIVE; i++) {
+            active[i] = UUID.randomUUID().toString();
+        }
+
+        AtomicInteger databaseChecks = new AtomicInteger();
+        RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+        when(repository.findJtisRevokedSince(any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(revoked);
+        when(repository.existsByJtiAndExpiresAtAfter(anyString(), any(LocalDateTime.class))).thenAnswer(invocation -> {
+            databaseChecks.incrementAndGet();
+            return false;
+        });
+
+        RevokedTokenRegistry registry = new RevokedTokenRegistry(repository);
+        ReflectionTestUtils.setField(registry, "expectedTokens", REVOKED);
+        ReflectionTestUtils.setField(registry, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(registry, "rebuildIntervalMillis", 3_600_000L);
+        registry.refresh();
+
+        List<String> negatives = new ArrayList<>(ACTIVE);
+        for (String jti : active) {
+            databaseChecks.set(0);
+            registry.isRevoked(jti);
+            if (databaseChecks.get() == 0) {
+                negatives.add(jti);
+            }
+        }
+        int falsePositiveTokens = ACTIVE - negatives.size();
+        String[] filtered = negatives.toArray(String[]::new);
+
+        run(registry, filtered, WARMUP);
+        long startedAt = System.nanoTime();
+        int revokedCount = run(registry, filtered, OPERATIONS);
+        double nanos = (double) (System.nanoTime() - startedAt) / OPERATIONS;
+
+        System.out.printf("%-28s %-12s%n", "metric", "value");
+        System.out.printf("%-28s %-12.1f%n", "ns/op без обращения к БД", nanos);
+        System.out.printf("%-28s %d из %d%n", "токенов с проверкой в БД", falsePositiveTokens, ACTIVE);
+        assertThat(revokedCount).isZero();
+        assertThat(databaseChecks.get()).isZero();
+        assertThat(falsePositiveTokens).isLessThan(ACTIVE / 20);
+    }
+
+    private static int run(RevokedTokenRegistry registry, String[] jtis, int operations) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int revoked = 0;
+        for (int i = 0; i < operations; i++) {
+            if (registry.isRevoked(jtis[random.nextInt(jtis.length)])) {
+                revoked++;
+            }
+        }
+        return revoked;
+    }
+}
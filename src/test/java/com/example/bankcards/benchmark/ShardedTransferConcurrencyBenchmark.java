@@ -0,0 +1,12 @@
+package com.example.bankcards.benchmark;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Тот же сценарий, что и в {@link TransferConcurrencyBenchmark}, но переводы по одной карте сериализуются
+ * в однопоточных полосах до обращения к БД.
+ * Запуск: mvn -Pbenchmark test -Dtest=ShardedTransferConcurrencyBenchmark
+ */
+@TestPropertySource(properties = "app.transfer.sharding.enabled=true")
+public class ShardedTransferConcurrencyBenchmark extends TransferConcurrencyBenchmark {
+}
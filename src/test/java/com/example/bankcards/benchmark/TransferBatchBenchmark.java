@@ -0,0 +1,78 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.TransferBatchService;
+import com.example.bankcards.service.TransferService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение одиночных вызовов {@link TransferService#createTransfer} с пакетной загрузкой NDJSON
+ * через {@link TransferBatchService} на одном и том же наборе переводов.
+ * Запуск: mvn -Pbenchmark test -Dtest=TransferBatchBenchmark
+ */
+@SpringBootTest
+public class TransferBatchBenchmark extends BenchmarkFixture {
+
+    private static final int TRANSFERS = 5_000;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransferBatchService transferBatchService;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Test
+    void batchIngestion_shouldOutperformSingleTransfers() throws Exception {
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < TRANSFERS; i++) {
+            transferService.createTransfer(new CreateTransferRequest(from(i), to(i), BigDecimal.ONE), null);
+        }
+        long singleNanos = System.nanoTime() - startedAt;
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < TRANSFERS; i++) {
+            body.append("{\"fromCardId\":").append(from(i))
+                    .append(",\"toCardId\":").append(to(i))
+                    .append(",\"amount\":1}\n");
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        startedAt = System.nanoTime();
+        transferBatchService.processBatch(
+                new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)), output, user.getUsername());
+        long batchNanos = System.nanoTime() - startedAt;
+
+        System.out.printf("%-8s %-12s %-12s%n", "mode", "transfers/s", "us/transfer");
+        System.out.printf("%-8s %-12.1f %-12.1f%n", "single",
+                TRANSFERS * 1_000_000_000.0 / singleNanos, singleNanos / 1_000.0 / TRANSFERS);
+        System.out.printf("%-8s %-12.1f %-12.1f%n", "batch",
+                TRANSFERS * 1_000_000_000.0 / batchNanos, batchNanos / 1_000.0 / TRANSFERS);
+
+        assertThat(output.toString(StandardCharsets.UTF_8)).doesNotContain("\"error\"");
+        assertThat(transferRepository.findAllByOwnerId(user.getId(), Pageable.unpaged()).getTotalElements())
+                .isEqualTo(2L * TRANSFERS);
+        assertThat(cardRepository.findById(first.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo(INITIAL_BALANCE);
+    }
+
+    private Long from(int i) {
+        return i % 2 == 0 ? first.getId() : second.getId();
+    }
+
+    private Long to(int i) {
+        return i % 2 == 0 ? second.getId() : first.getId();
+    }
+}
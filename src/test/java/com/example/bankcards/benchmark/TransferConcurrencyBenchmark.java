@@ -0,0 +1,98 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.security.MyUserDetails;
+import com.example.bankcards.service.TransferService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузочный тест переводов между двумя "горячими" картами во встречных направлениях.
+ * Проверяет отсутствие потерянных обновлений и выводит пропускную способность для разного числа потоков.
+ * Запуск: mvn -Pbenchmark test -Dtest=TransferConcurrencyBenchmark
+ */
+@SpringBootTest
+public class TransferConcurrencyBenchmark extends BenchmarkFixture {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+    private static final int TRANSFERS_PER_THREAD = 200;
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Test
+    void concurrentOppositeTransfers_shouldNotLoseUpdates() throws Exception {
+        System.out.printf("%-8s %-10s %-10s %-12s%n", "threads", "completed", "rejected", "transfers/s");
+
+        for (int threads : THREAD_COUNTS) {
+            BigDecimal firstBefore = cardRepository.findById(first.getId()).orElseThrow().getBalance();
+            BigDecimal secondBefore = cardRepository.findById(second.getId()).orElseThrow().getBalance();
+
+            AtomicLong firstToSecond = new AtomicLong();
+            AtomicLong secondToFirst = new AtomicLong();
+            AtomicLong rejected = new AtomicLong();
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                boolean forward = t % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    SecurityContextHolder.getContext().setAuthentication(
+                            new UsernamePasswordAuthenticationToken(new MyUserDetails(user), null));
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        boolean direction = forward ^ (i % 2 == 1);
+                        Long from = direction ? first.getId() : second.getId();
+                        Long to = direction ? second.getId() : first.getId();
+                        try {
+                            transferService.createTransfer(new CreateTransferRequest(from, to, AMOUNT), null);
+                            (direction ? firstToSecond : secondToFirst).incrementAndGet();
+                        } catch (RuntimeException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            long startedAt = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long elapsedNanos = System.nanoTime() - startedAt;
+            executor.shutdown();
+
+            flushBalances();
+            long completed = firstToSecond.get() + secondToFirst.get();
+            System.out.printf("%-8d %-10d %-10d %-12.1f%n",
+                    threads, completed, rejected.get(), completed * 1_000_000_000.0 / elapsedNanos);
+
+            BigDecimal net = AMOUNT.multiply(BigDecimal.valueOf(firstToSecond.get() - secondToFirst.get()));
+            BigDecimal firstAfter = cardRepository.findById(first.getId()).orElseThrow().getBalance();
+            BigDecimal secondAfter = cardRepository.findById(second.getId()).orElseThrow().getBalance();
+
+            assertThat(firstAfter).isEqualByComparingTo(firstBefore.subtract(net));
+            assertThat(secondAfter).isEqualByComparingTo(secondBefore.add(net));
+        }
+    }
+
+    protected void flushBalances() {
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.TransferExportFormat;
+import com.example.bankcards.service.TransferExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер скорости потоковой выгрузки переводов и пикового использования heap при разном объеме выгрузки.
+ * Запуск: mvn -Pbenchmark test -Dtest=TransferExportBenchmark
+ */
+@SpringBootTest
+public class TransferExportBenchmark extends BenchmarkFixture {
+
+    private static final int TRANSFERS = 400_000;
+    private static final int CHUNK = 50_000;
+
+    @Autowired
+    private TransferExportService transferExportService;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        start = LocalDateTime.now().minusYears(10).withNano(0);
+        for (int offset = 0; offset < TRANSFERS; offset += CHUNK) {
+            List<Transfer> transfers = new ArrayList<>(CHUNK);
+            for (int i = offset; i < offset + CHUNK; i++) {
+                transfers.add(Transfer.builder()
+                        .fromCard(first)
+                        .toCard(second)
+                        .owner(user)
+                        .amount(BigDecimal.ONE)
+                        .createdAt(start.plusSeconds(i))
+                        .transferStatus(TransferStatus.COMPLETED)
+                        .build());
+            }
+            transactionTemplate.executeWithoutResult(status -> transferRepository.insertAll(transfers));
+        }
+        jdbcTemplate.execute("analyze t_transfer");
+    }
+
+    @Test
+    void export_shouldKeepHeapFlatForAnyVolume() throws Exception {
+        System.out.printf("%-8s %-10s %-12s %-12s %-14s%n", "format", "rows", "ms", "rows/s", "peak heap MB");
+        for (TransferExportFormat format : TransferExportFormat.values()) {
+            for (int rows : new int[]{TRANSFERS / 8, TRANSFERS}) {
+                System.gc();
+                resetPeakUsage();
+                CountingOutputStream output = new CountingOutputStream();
+
+                long startedAt = System.nanoTime();
+                long exported = transferExportService.exportTransfers(start, start.plusSeconds(rows), format, output);
+                long nanos = System.nanoTime() - startedAt;
+
+                System.out.printf("%-8s %-10d %-12.1f %-12.0f %-14.1f%n", format, exported, nanos / 1_000_000.0,
+                        exported * 1_000_000_000.0 / nanos, peakHeapUsage() / 1024.0 / 1024.0);
+                assertThat(exported).isEqualTo(rows);
+                assertThat(output.bytes).isPositive();
+            }
+        }
+    }
+
+    private static void resetPeakUsage() {
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    private static long peakHeapUsage() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.TransferCursorPageDto;
+import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.TransferService;
+import com.example.bankcards.util.TransferCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение запросов страницы истории переводов через OFFSET (с подсчетом total) и через курсор на разной глубине листания.
+ * Запуск: mvn -Pbenchmark test -Dtest=TransferKeysetPagingBenchmark
+ */
+@SpringBootTest
+public class TransferKeysetPagingBenchmark extends BenchmarkFixture {
+
+    private static final int TRANSFERS = 50_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int[] PAGES = {0, 100, 1_000, 2_400};
+    private static final int REPEATS = 20;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private List<Transfer> transfers;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1).withNano(0);
+        transfers = new ArrayList<>(TRANSFERS);
+        for (int i = 0; i < TRANSFERS; i++) {
+            transfers.add(Transfer.builder()
+                    .fromCard(first)
+                    .toCard(second)
+                    .owner(user)
+                    .amount(BigDecimal.ONE)
+                    .createdAt(start.plusSeconds(i / 3))
+                    .transferStatus(TransferStatus.COMPLETED)
+                    .build());
+        }
+        transactionTemplate.executeWithoutResult(status -> transferRepository.insertAll(transfers));
+        jdbcTemplate.execute("analyze t_transfer");
+    }
+
+    @Test
+    void cursorPage_shouldCostTheSameAtAnyDepth() {
+        List<Transfer> newestFirst = new ArrayList<>(transfers);
+        newestFirst.sort((a, b) -> {
+            int byCreatedAt = b.getCreatedAt().compareTo(a.getCreatedAt());
+            return byCreatedAt != 0 ? byCreatedAt : b.getId().compareTo(a.getId());
+        });
+        Sort sort = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+        System.out.printf("%-8s %-12s %-12s%n", "page", "offset ms", "cursor ms");
+        for (int page : PAGES) {
+            String cursor = page == 0 ? null : TransferCursor.of(newestFirst.get(page * PAGE_SIZE - 1)).encode();
+
+            long offsetNanos = 0;
+            long cursorNanos = 0;
+            for (int i = 0; i < REPEATS; i++) {
+                long startedAt = System.nanoTime();
+                transferRepository.findAllByOwnerId(user.getId(), PageRequest.of(page, PAGE_SIZE, sort));
+                offsetNanos += System.nanoTime() - startedAt;
+
+                startedAt = System.nanoTime();
+                if (cursor == null) {
+                    transferRepository.findLatestByOwnerId(user.getId(), Limit.of(PAGE_SIZE + 1));
+                } else {
+                    TransferCursor position = TransferCursor.decode(cursor);
+                    transferRepository.findLatestByOwnerIdBefore(user.getId(), position.createdAt(), position.id(), Limit.of(PAGE_SIZE + 1));
+                }
+                cursorNanos += System.nanoTime() - startedAt;
+            }
+            List<Long> offsetIds = transferService.getMyTransfers(PageRequest.of(page, PAGE_SIZE, sort))
+                    .map(TransferDto::getId).getContent();
+            List<Long> cursorIds = transferService.getMyTransfers(cursor, PAGE_SIZE).getTransfers().stream()
+                    .map(TransferDto::getId).toList();
+
+            System.out.printf("%-8d %-12.2f %-12.2f%n", page,
+                    offsetNanos / 1_000_000.0 / REPEATS, cursorNanos / 1_000_000.0 / REPEATS);
+            assertThat(cursorIds).isEqualTo(offsetIds);
+        }
+
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            TransferCursorPageDto page = transferService.getMyTransfers(cursor, 100);
+            page.getTransfers().forEach(transfer -> assertThat(seen.add(transfer.getId())).isTrue());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertThat(seen).hasSize(TRANSFERS);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.service.TransferLimitReservation;
+import com.example.bankcards.service.TransferLimitService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер стоимости проверки суточных лимитов (учет суммы и ее снятие) при разном числе потоков.
+ * Время на операцию пересчитывается на число реально занятых ядер.
+ * Запуск: mvn -Pbenchmark test -Dtest=TransferLimitBenchmark
+ */
+@SpringBootTest
+public class TransferLimitBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int OPERATIONS_PER_THREAD = 1_000_000;
+    private static final int[] THREADS = {1, 4, 8, 16};
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Autowired
+    private TransferLimitService transferLimitService;
+
+    @Test
+    void reserve_shouldStaySubMicrosecond() throws Exception {
+        User[] users = new User[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = User.builder().id(1_000_000_000L + i).username("limit-" + i).role(Role.USER).build();
+        }
+        run(users, OPERATIONS_PER_THREAD);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%-8s %-14s %-12s%n", "threads", "ops/s", "ns/op");
+        for (int threads : THREADS) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            long startedAt = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> run(users, OPERATIONS_PER_THREAD)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long nanos = System.nanoTime() - startedAt;
+            executor.shutdown();
+
+            long operations = (long) threads * OPERATIONS_PER_THREAD;
+            double nanosPerOperation = (double) nanos * Math.min(threads, cores) / operations;
+            System.out.printf("%-8d %-14.0f %-12.1f%n", threads, operations * 1_000_000_000.0 / nanos, nanosPerOperation);
+            assertThat(nanosPerOperation).isLessThan(1_000);
+        }
+    }
+
+    private void run(User[] users, int operations) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < operations; i++) {
+            User user = users[random.nextInt(USERS)];
+            TransferLimitReservation reservation = transferLimitService.reserve(user, user.getId() * 2 + random.nextInt(2), AMOUNT);
+            transferLimitService.release(reservation);
+        }
+    }
+}
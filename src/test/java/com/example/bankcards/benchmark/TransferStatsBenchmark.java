@@ -0,0 +1,139 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.TransferStatsBucketDto;
+import com.example.bankcards.dto.TransferStatsDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerEntryType;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.service.StatsGranularity;
+import com.example.bankcards.service.TransferStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение статистики переводов по дням, посчитанной по t_transfer на лету, со статистикой из дневных итогов.
+ * Запуск: mvn -Pbenchmark test -Dtest=TransferStatsBenchmark
+ */
+@SpringBootTest
+public class TransferStatsBenchmark extends BenchmarkFixture {
+
+    private static final int TRANSFERS = 200_000;
+    private static final int DAYS = 365;
+    private static final int CHUNK = 20_000;
+    private static final int REPEATS = 20;
+
+    private static final String SELECT_ON_DEMAND = """
+            select cast(created_at as date) as period, count(*) as outgoing_count, sum(amount) as outgoing_amount
+            from t_transfer
+            where owner_id = ? and status = 'COMPLETED' and created_at >= ? and created_at < ?
+            group by 1
+            order by 1
+            """;
+
+    @Autowired
+    private TransferStatsService transferStatsService;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private LocalDate from;
+    private LocalDate to;
+
+    @BeforeEach
+    void setUp() {
+        to = LocalDate.now().minusYears(5);
+        from = to.minusDays(DAYS - 1);
+        LocalDateTime start = from.atStartOfDay();
+        for (int offset = 0; offset < TRANSFERS; offset += CHUNK) {
+            List<Transfer> transfers = new ArrayList<>(CHUNK);
+            List<LedgerEntry> entries = new ArrayList<>(CHUNK * 2);
+            for (int i = offset; i < offset + CHUNK; i++) {
+                Transfer transfer = Transfer.builder()
+                        .fromCard(i % 2 == 0 ? first : second)
+                        .toCard(i % 2 == 0 ? second : first)
+                        .owner(user)
+                        .amount(BigDecimal.valueOf(i % 100 + 1))
+                        .createdAt(start.plusSeconds((long) i * DAYS * 86_400 / TRANSFERS))
+                        .transferStatus(TransferStatus.COMPLETED)
+                        .build();
+                transfers.add(transfer);
+                entries.add(entry(transfer, transfer.getFromCard(), LedgerEntryType.DEBIT));
+                entries.add(entry(transfer, transfer.getToCard(), LedgerEntryType.CREDIT));
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                transferRepository.insertAll(transfers);
+                ledgerEntryRepository.insertAll(entries);
+            });
+        }
+        jdbcTemplate.execute("analyze t_transfer");
+        jdbcTemplate.execute("analyze t_card_daily_rollup");
+    }
+
+    @Test
+    void rollupStats_shouldMatchOnDemandAggregation() {
+        long onDemandNanos = 0;
+        long rollupNanos = 0;
+        List<Map<String, Object>> onDemand = List.of();
+        TransferStatsDto stats = null;
+        for (int i = 0; i < REPEATS; i++) {
+            long startedAt = System.nanoTime();
+            onDemand = jdbcTemplate.queryForList(SELECT_ON_DEMAND, user.getId(),
+                    Date.valueOf(from), Date.valueOf(to.plusDays(1)));
+            onDemandNanos += System.nanoTime() - startedAt;
+
+            startedAt = System.nanoTime();
+            stats = transferStatsService.getStats(null, null, StatsGranularity.DAY, from, to);
+            rollupNanos += System.nanoTime() - startedAt;
+        }
+
+        System.out.printf("%d transfers over %d days: on demand %.2f ms, rollups %.2f ms%n", TRANSFERS, DAYS,
+                onDemandNanos / 1_000_000.0 / REPEATS, rollupNanos / 1_000_000.0 / REPEATS);
+
+        assertThat(stats.getBuckets()).hasSize(onDemand.size());
+        for (int i = 0; i < onDemand.size(); i++) {
+            TransferStatsBucketDto bucket = stats.getBuckets().get(i);
+            assertThat(bucket.getPeriod()).isEqualTo(((Date) onDemand.get(i).get("period")).toLocalDate());
+            assertThat(bucket.getOutgoingCount()).isEqualTo(((Number) onDemand.get(i).get("outgoing_count")).longValue());
+            assertThat(bucket.getOutgoingAmount()).isEqualByComparingTo((BigDecimal) onDemand.get(i).get("outgoing_amount"));
+            assertThat(bucket.getIncomingAmount()).isEqualByComparingTo(bucket.getOutgoingAmount());
+        }
+
+        TransferStatsDto monthly = transferStatsService.getStats(null, null, StatsGranularity.MONTH, from, to);
+        assertThat(monthly.getBuckets().stream().mapToLong(TransferStatsBucketDto::getOutgoingCount).sum())
+                .isEqualTo(TRANSFERS);
+    }
+
+    private static LedgerEntry entry(Transfer transfer, Card card, LedgerEntryType entryType) {
+        return LedgerEntry.builder()
+                .card(card)
+                .transfer(transfer)
+                .entryType(entryType)
+                .amount(transfer.getAmount())
+                .balanceAfter(BigDecimal.ZERO)
+                .createdAt(transfer.getCreatedAt())
+                .build();
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.AuthRequest;
+import com.example.bankcards.dto.AuthResponse;
+import com.example.bankcards.dto.RefreshTokenRequest;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
+import com.example.bankcards.exception.LoginLockedException;
+import com.example.bankcards.exception.PasswordHashingRejectedException;
 import com.example.bankcards.service.AuthService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -45,21 +50,46 @@ public class AuthControllerTest {
 
     @Test
     void login_shouldLogInSuccessfully() throws Exception {
-        when(authService.login(any(AuthRequest.class))).thenReturn("token");
+        when(authService.login(any(AuthRequest.class), any())).thenReturn(new AuthResponse("token", "refresh"));
 
         mockMvc.perform(post("/api/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(authRequest)))
                 .andExpect(status().isOk())
                 .andExpect(header().string(HttpHeaders.AUTHORIZATION, "Bearer token"))
-                .andExpect(jsonPath("$.token", is("token")));
+                .andExpect(jsonPath("$.token", is("token")))
+                .andExpect(jsonPath("$.refreshToken", is("refresh")));
+
+        verify(authService).login(Mockito.eq(authRequest), Mockito.eq("127.0.0.1"));
+    }
+
+    @Test
+    void login_shouldReturnServiceUnavailableWhenHashingIsSaturated() throws Exception {
+        when(authService.login(any(AuthRequest.class), any()))
+                .thenThrow(new PasswordHashingRejectedException("Сервис аутентификации перегружен, повторите попытку позже"));
+
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(authRequest)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    @Test
+    void login_shouldReturnTooManyRequestsWhileLockedOut() throws Exception {
+        when(authService.login(any(AuthRequest.class), any()))
+                .thenThrow(new LoginLockedException("Слишком много неудачных попыток входа, повторите через 30 с", 30));
 
-        verify(authService).login(Mockito.eq(authRequest));
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(authRequest)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "30"));
     }
 
     @Test
     void register_shouldRegisterSuccessfully() throws Exception {
-        when(authService.register(any(AuthRequest.class))).thenReturn("token");
+        when(authService.register(any(AuthRequest.class))).thenReturn(new AuthResponse("token", "refresh"));
 
         mockMvc.perform(post("/api/auth/register")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -70,4 +100,38 @@ public class AuthControllerTest {
 
         verify(authService).register(Mockito.eq(authRequest));
     }
+
+    @Test
+    void refresh_shouldReturnNewTokens() throws Exception {
+        when(authService.refresh("refresh")).thenReturn(new AuthResponse("newToken", "newRefresh"));
+
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refresh"))))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.AUTHORIZATION, "Bearer newToken"))
+                .andExpect(jsonPath("$.token", is("newToken")))
+                .andExpect(jsonPath("$.refreshToken", is("newRefresh")));
+    }
+
+    @Test
+    void refresh_shouldReturnUnauthorizedForRejectedToken() throws Exception {
+        when(authService.refresh("refresh")).thenThrow(new InvalidRefreshTokenException("Refresh токен невалиден"));
+
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refresh"))))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message", is("Refresh токен невалиден")));
+    }
+
+    @Test
+    void logout_shouldRevokeRefreshToken() throws Exception {
+        mockMvc.perform(post("/api/auth/logout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refresh"))))
+                .andExpect(status().isNoContent());
+
+        verify(authService).logout(null, "refresh");
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardLedgerDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -24,6 +25,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -109,12 +111,12 @@ class CardControllerTest {
     @WithMockUser(roles = "USER", username = "test")
     void getMyCards_withUser_shouldReturnOk() throws Exception {
         Page<CardDto> page = new PageImpl<>(List.of(cardDto));
-        when(cardService.getMyCards(any(Pageable.class), any(), eq("test"))).thenReturn(page);
+        when(cardService.getMyCards(any(Pageable.class), any())).thenReturn(page);
 
         mockMvc.perform(get("/api/cards/my"))
                 .andExpect(status().isOk());
 
-        verify(cardService).getMyCards(any(Pageable.class), any(), eq("test"));
+        verify(cardService).getMyCards(any(Pageable.class), any());
     }
 
     @Test
@@ -164,12 +166,12 @@ class CardControllerTest {
     @Test
     @WithMockUser(username = "test")
     void blockCard_shouldReturnOk() throws Exception {
-        when(cardService.blockUserCard(1L, "test")).thenReturn(cardDto);
+        when(cardService.blockUserCard(1L)).thenReturn(cardDto);
 
         mockMvc.perform(patch("/api/cards/1/block"))
                 .andExpect(status().isOk());
 
-        verify(cardService).blockUserCard(1L, "test");
+        verify(cardService).blockUserCard(1L);
     }
 
     @Test
@@ -189,5 +191,25 @@ class CardControllerTest {
         mockMvc.perform(delete("/api/cards/1"))
                 .andExpect(status().isForbidden());
     }
-}
 
+    @Test
+    @WithMockUser(username = "test")
+    void getCardLedger_shouldPassCursorAndSize() throws Exception {
+        when(cardService.getCardLedger(1L, 35L, 10)).thenReturn(CardLedgerDto.builder().entries(List.of()).build());
+
+        mockMvc.perform(get("/api/cards/1/ledger").param("before", "35").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries").isArray());
+
+        verify(cardService).getCardLedger(1L, 35L, 10);
+    }
+
+    @Test
+    @WithMockUser(username = "test")
+    void getCardLedger_shouldRejectTooLargePage() throws Exception {
+        mockMvc.perform(get("/api/cards/1/ledger").param("size", "1000"))
+                .andExpect(status().isBadRequest());
+
+        verify(cardService, never()).getCardLedger(any(), any(), anyInt());
+    }
+}
@@ -3,8 +3,16 @@ package com.example.bankcards.controller;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.TransferCursorPageDto;
 import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.dto.TransferStatsDto;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.service.StatsGranularity;
+import com.example.bankcards.service.TransferBatchService;
+import com.example.bankcards.service.TransferExportFormat;
+import com.example.bankcards.service.TransferExportService;
 import com.example.bankcards.service.TransferService;
+import com.example.bankcards.service.TransferStatsService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -18,15 +26,27 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.OutputStream;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -44,6 +64,15 @@ public class TransferControllerTest {
     @MockBean
     private TransferService transferService;
 
+    @MockBean
+    private TransferBatchService transferBatchService;
+
+    @MockBean
+    private TransferExportService transferExportService;
+
+    @MockBean
+    private TransferStatsService transferStatsService;
+
     @Test
     @WithMockUser
     void transfer_shouldReturnCreatedTransfer() throws Exception {
@@ -54,7 +83,7 @@ public class TransferControllerTest {
         TransferDto transferDto = TransferDto.builder()
                 .amount(BigDecimal.valueOf(100))
                 .build();
-        when(transferService.createTransfer(any(CreateTransferRequest.class))).thenReturn(transferDto);
+        when(transferService.createTransfer(any(CreateTransferRequest.class), any())).thenReturn(transferDto);
 
         mockMvc.perform(post("/api/transfers")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -62,7 +91,168 @@ public class TransferControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.amount", is(100)));
 
-        verify(transferService).createTransfer(eq(request));
+        verify(transferService).createTransfer(eq(request), isNull());
+    }
+
+    @Test
+    @WithMockUser
+    void transfer_shouldPassIdempotencyKeyToService() throws Exception {
+        CreateTransferRequest request = new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(100));
+        TransferDto transferDto = TransferDto.builder()
+                .amount(BigDecimal.valueOf(100))
+                .build();
+        when(transferService.createTransfer(any(CreateTransferRequest.class), any())).thenReturn(transferDto);
+
+        mockMvc.perform(post("/api/transfers")
+                        .header("Idempotency-Key", "c4a1f6b0-key")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        verify(transferService).createTransfer(eq(request), eq("c4a1f6b0-key"));
+    }
+
+    @Test
+    @WithMockUser
+    void transfer_shouldReturnBadRequestForTooLongIdempotencyKey() throws Exception {
+        CreateTransferRequest request = new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(100));
+
+        mockMvc.perform(post("/api/transfers")
+                        .header("Idempotency-Key", "k".repeat(256))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        verify(transferService, never()).createTransfer(any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    void transfer_shouldAcceptAsyncTransferWhenRespondAsyncPreferred() throws Exception {
+        CreateTransferRequest request = new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(100));
+        TransferDto transferDto = TransferDto.builder()
+                .id(42L)
+                .amount(BigDecimal.valueOf(100))
+                .transferStatus(TransferStatus.IN_PROGRESS)
+                .build();
+        when(transferService.submitTransfer(any(CreateTransferRequest.class), any())).thenReturn(transferDto);
+
+        mockMvc.perform(post("/api/transfers")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/transfers/42"))
+                .andExpect(jsonPath("$.transferStatus", is("IN_PROGRESS")));
+
+        verify(transferService, never()).createTransfer(any(), any());
+    }
+
+    @Test
+    @WithMockUser
+    void getTransfer_shouldReturnTransfer() throws Exception {
+        when(transferService.getTransfer(42L)).thenReturn(TransferDto.builder()
+                .id(42L)
+                .transferStatus(TransferStatus.REJECTED)
+                .rejectReason("Недостаточно средств для перевода")
+                .build());
+
+        mockMvc.perform(get("/api/transfers/42"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transferStatus", is("REJECTED")))
+                .andExpect(jsonPath("$.rejectReason", is("Недостаточно средств для перевода")));
+    }
+
+    @Test
+    @WithMockUser(username = "batch-user")
+    void transferBatch_shouldStreamResultsForCurrentUser() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(1);
+            output.write("{\"line\":1,\"error\":\"Недостаточно средств для перевода\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(transferBatchService).processBatch(any(), any(), eq("batch-user"));
+
+        MvcResult result = mockMvc.perform(post("/api/transfers/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"fromCardId\":1,\"toCardId\":2,\"amount\":100}\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("\"line\":1")));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportTransfers_shouldStreamNdjsonForPeriod() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 8, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 9, 1, 0, 0);
+        when(transferExportService.exportTransfers(eq(from), eq(to), eq(TransferExportFormat.NDJSON), any()))
+                .thenAnswer(invocation -> {
+                    OutputStream output = invocation.getArgument(3);
+                    output.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+
+        MvcResult result = mockMvc.perform(get("/api/transfers/export")
+                        .param("format", "ndjson")
+                        .param("from", "2025-08-01T00:00:00")
+                        .param("to", "2025-09-01T00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("transfers.ndjson")))
+                .andExpect(content().string("{\"id\":1}\n"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportTransfers_shouldRejectUnknownFormatAndEmptyPeriod() throws Exception {
+        mockMvc.perform(get("/api/transfers/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/transfers/export")
+                        .param("from", "2025-09-01T00:00:00")
+                        .param("to", "2025-08-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void exportTransfers_shouldBeForbiddenForUser() throws Exception {
+        mockMvc.perform(get("/api/transfers/export"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser
+    void getTransferStats_shouldPassGranularityAndPeriod() throws Exception {
+        LocalDate from = LocalDate.of(2024, 9, 1);
+        LocalDate to = LocalDate.of(2025, 8, 31);
+        when(transferStatsService.getStats(null, 5L, StatsGranularity.MONTH, from, to))
+                .thenReturn(TransferStatsDto.builder().cardId(5L).granularity(StatsGranularity.MONTH).buckets(List.of()).build());
+
+        mockMvc.perform(get("/api/transfers/stats")
+                        .param("cardId", "5")
+                        .param("granularity", "month")
+                        .param("from", "2024-09-01")
+                        .param("to", "2025-08-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cardId", is(5)))
+                .andExpect(jsonPath("$.granularity", is("MONTH")));
+    }
+
+    @Test
+    @WithMockUser
+    void getTransferStats_shouldRejectUnknownGranularity() throws Exception {
+        mockMvc.perform(get("/api/transfers/stats").param("granularity", "week"))
+                .andExpect(status().isBadRequest());
+
+        verify(transferStatsService, never()).getStats(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -97,5 +287,30 @@ public class TransferControllerTest {
                 .andExpect(jsonPath("$.content[0].amount", is(300)));
     }
 
+    @Test
+    @WithMockUser
+    void getMyTransfersByCursor_shouldPassCursorToService() throws Exception {
+        when(transferService.getMyTransfers("abc", 50))
+                .thenReturn(TransferCursorPageDto.builder().transfers(List.of()).nextCursor("def").build());
+
+        mockMvc.perform(get("/api/transfers/my/cursor").param("cursor", "abc").param("size", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nextCursor").value("def"));
+    }
+
+    @Test
+    @WithMockUser
+    void getMyTransfersByCursor_shouldRejectZeroPageSize() throws Exception {
+        mockMvc.perform(get("/api/transfers/my/cursor").param("size", "0"))
+                .andExpect(status().isBadRequest());
 
+        verify(transferService, never()).getMyTransfers(any(), anyInt());
+    }
+
+    @Test
+    @WithMockUser
+    void getAllTransfersByCursor_shouldBeForbiddenForUser() throws Exception {
+        mockMvc.perform(get("/api/transfers/all/cursor"))
+                .andExpect(status().isForbidden());
+    }
 }
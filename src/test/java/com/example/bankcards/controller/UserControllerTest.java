@@ -4,7 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import com.example.bankcards.dto.UserResponse;
+import com.example.bankcards.dto.UserSummaryDto;
 import com.example.bankcards.dto.UserUpdateDto;
+import com.example.bankcards.entity.Role;
 import com.example.bankcards.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +20,7 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -71,6 +74,27 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.content[0].username").value(sampleUser.getUsername()));
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getUserSummaries_shouldReturnCardCountAndTotalBalance() throws Exception {
+        UserSummaryDto summary = new UserSummaryDto(1L, "test", Role.USER, 2, new BigDecimal("150.50"));
+        Mockito.when(userService.getUserSummaries(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(summary)));
+
+        mockMvc.perform(get("/api/users/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].username").value("test"))
+                .andExpect(jsonPath("$.content[0].cardCount").value(2))
+                .andExpect(jsonPath("$.content[0].totalBalance").value(150.50))
+                .andExpect(jsonPath("$.content[0].cards").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser
+    void getUserSummaries_shouldBeForbiddenForUser() throws Exception {
+        mockMvc.perform(get("/api/users/summary"))
+                .andExpect(status().isForbidden());
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void getUser_shouldReturnUserById() throws Exception {
@@ -0,0 +1,342 @@
+package com.example.bankcards.ledger;
+
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.exception.AccessToResourceDeniedException;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.CardNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LedgerEngineRecoveryTest {
+
+    private static final int JOURNAL_SIZE = 1024 * 1024;
+
+    @TempDir
+    private Path tempDir;
+
+    private Path journalPath;
+    private InMemoryLedgerStore store;
+    private long transferId;
+
+    @BeforeEach
+    void setUp() {
+        journalPath = tempDir.resolve("journal.dat");
+        store = new InMemoryLedgerStore();
+        store.addAccount(1L, 10L, 10_000);
+        store.addAccount(2L, 10L, 10_000);
+        store.addAccount(3L, 20L, 10_000);
+    }
+
+    @Test
+    void recover_shouldReplayAcknowledgedTransfersWithoutCheckpoint() throws IOException {
+        TransferJournal journal = new TransferJournal(journalPath, JOURNAL_SIZE);
+        LedgerEngine engine = start(journal);
+        engine.transfer(++transferId, 1L, 2L, 10L, new BigDecimal("10.50"));
+        engine.transfer(++transferId, 2L, 1L, 10L, new BigDecimal("3.25"));
+        journal.close();
+
+        LedgerEngine recovered = start(new TransferJournal(journalPath, JOURNAL_SIZE));
+
+        assertThat(recovered.getBalance(1L)).isEqualByComparingTo("92.75");
+        assertThat(recovered.getBalance(2L)).isEqualByComparingTo("107.25");
+        assertThat(recovered.getLastSequence()).isEqualTo(2);
+        assertThat(store.checkpointSequence).isZero();
+    }
+
+    @Test
+    void recover_shouldReplayOnlyRecordsAfterCheckpoint() throws IOException {
+        TransferJournal journal = new TransferJournal(journalPath, JOURNAL_SIZE);
+        LedgerEngine engine = start(journal);
+        engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.TEN);
+        engine.checkpoint();
+        engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.ONE);
+        journal.close();
+
+        LedgerEngine recovered = start(new TransferJournal(journalPath, JOURNAL_SIZE));
+
+        assertThat(store.balances.get(1L)).isEqualTo(9_000);
+        assertThat(store.transfers).hasSize(1);
+        assertThat(recovered.getBalance(1L)).isEqualByComparingTo("89");
+        assertThat(recovered.getBalance(2L)).isEqualByComparingTo("111");
+
+        recovered.checkpoint();
+
+        assertThat(store.balances.get(1L)).isEqualTo(8_900);
+        assertThat(store.transfers).extracting(JournalRecord::sequence).containsExactly(1L, 2L);
+        assertThat(store.transfers).extracting(JournalRecord::transferId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void recover_shouldIgnoreTornTail() throws IOException {
+        TransferJournal journal = new TransferJournal(journalPath, JOURNAL_SIZE);
+        LedgerEngine engine = start(journal);
+        engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.ONE);
+        engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.ONE);
+        journal.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(journalPath.toFile(), "rw")) {
+            file.seek(TransferJournal.HEADER_SIZE + TransferJournal.RECORD_SIZE + 40);
+            file.writeLong(-1);
+        }
+
+        LedgerEngine recovered = start(new TransferJournal(journalPath, JOURNAL_SIZE));
+
+        assertThat(recovered.getBalance(1L)).isEqualByComparingTo("99");
+        assertThat(recovered.getLastSequence()).isEqualTo(1);
+
+        recovered.transfer(++transferId, 1L, 2L, 10L, BigDecimal.TEN);
+        assertThat(recovered.getLastSequence()).isEqualTo(2);
+    }
+
+    @Test
+    void transfer_shouldCheckpointAndResetFullJournal() throws IOException {
+        int capacity = TransferJournal.HEADER_SIZE + 3 * TransferJournal.RECORD_SIZE;
+        TransferJournal journal = new TransferJournal(journalPath, capacity);
+        LedgerEngine engine = start(journal);
+        for (int i = 0; i < 7; i++) {
+            engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.ONE);
+        }
+        journal.close();
+
+        assertThat(store.checkpointSequence).isEqualTo(6);
+        assertThat(store.transfers).hasSize(6);
+
+        LedgerEngine recovered = start(new TransferJournal(journalPath, capacity));
+
+        assertThat(recovered.getLastSequence()).isEqualTo(7);
+        assertThat(recovered.getBalance(1L)).isEqualByComparingTo("93");
+        assertThat(recovered.getBalance(2L)).isEqualByComparingTo("107");
+    }
+
+    @Test
+    void recover_shouldIgnoreRecordsCoveredByCheckpointAfterJournalReset() throws IOException {
+        int capacity = TransferJournal.HEADER_SIZE + 2 * TransferJournal.RECORD_SIZE;
+        TransferJournal journal = new TransferJournal(journalPath, capacity);
+        LedgerEngine engine = start(journal);
+        for (int i = 0; i < 3; i++) {
+            engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.ONE);
+        }
+        engine.checkpoint();
+        journal.close();
+
+        LedgerEngine recovered = start(new TransferJournal(journalPath, capacity));
+
+        assertThat(recovered.getLastSequence()).isEqualTo(3);
+        assertThat(recovered.getBalance(1L)).isEqualByComparingTo("97");
+        assertThat(store.transfers).hasSize(3);
+    }
+
+    @Test
+    void checkpoint_shouldKeepPendingTransfersWhenStoreFails() throws IOException {
+        TransferJournal journal = new TransferJournal(journalPath, JOURNAL_SIZE);
+        LedgerEngine engine = start(journal);
+        engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.TEN);
+        store.failWrites = true;
+
+        assertThrows(IllegalStateException.class, engine::checkpoint);
+
+        store.failWrites = false;
+        engine.checkpoint();
+        journal.close();
+
+        assertThat(store.checkpointSequence).isEqualTo(1);
+        assertThat(store.balances.get(1L)).isEqualTo(9_000);
+        assertThat(store.balances.get(2L)).isEqualTo(11_000);
+        assertThat(store.transfers).hasSize(1);
+    }
+
+    @Test
+    void transfer_shouldRejectWithoutJournalingInvalidTransfers() throws IOException {
+        TransferJournal journal = new TransferJournal(journalPath, JOURNAL_SIZE);
+        LedgerEngine engine = start(journal);
+
+        assertThrows(AccessToResourceDeniedException.class, () -> engine.transfer(++transferId, 1L, 3L, 10L, BigDecimal.ONE));
+        assertThrows(BadRequestException.class, () -> engine.transfer(++transferId, 1L, 2L, 10L, new BigDecimal("100.01")));
+        assertThrows(BadRequestException.class, () -> engine.transfer(++transferId, 1L, 2L, 10L, new BigDecimal("0.001")));
+        journal.close();
+
+        assertThat(start(new TransferJournal(journalPath, JOURNAL_SIZE)).getLastSequence()).isZero();
+    }
+
+    @Test
+    void updateAccount_shouldApplyCardStatusWithoutReloadingCards() throws IOException {
+        TransferJournal journal = new TransferJournal(journalPath, JOURNAL_SIZE);
+        LedgerEngine engine = start(journal);
+        store.accounts.get(2L).setCardStatus(CardStatus.BLOCKED);
+
+        engine.checkpoint();
+        engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.ONE);
+        engine.updateAccount(2L, 10L, store.accounts.get(2L).getExpiryDate(), CardStatus.BLOCKED);
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.ONE));
+        assertThat(exception.getMessage()).isEqualTo("Карта получателя неактивна");
+        assertThat(store.fullLoads).isEqualTo(1);
+        journal.close();
+    }
+
+    @Test
+    void transfer_shouldNotKeepCardReadBeforeConcurrentUpdate() throws IOException {
+        TransferJournal journal = new TransferJournal(journalPath, JOURNAL_SIZE);
+        LedgerEngine engine = start(journal);
+        store.addAccount(4L, 10L, 5_000);
+        store.afterLoadAccount = () -> {
+            store.afterLoadAccount = null;
+            store.accounts.get(4L).setCardStatus(CardStatus.BLOCKED);
+            engine.updateAccount(4L, 10L, store.accounts.get(4L).getExpiryDate(), CardStatus.BLOCKED);
+        };
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> engine.transfer(++transferId, 1L, 4L, 10L, BigDecimal.ONE));
+
+        assertThat(exception.getMessage()).isEqualTo("Карта получателя неактивна");
+        journal.close();
+    }
+
+    @Test
+    void restoreAccount_shouldReopenCardAfterRolledBackDeletion() throws IOException {
+        TransferJournal journal = new TransferJournal(journalPath, JOURNAL_SIZE);
+        LedgerEngine engine = start(journal);
+
+        assertThat(engine.removeAccount(2L)).isTrue();
+        engine.checkpoint();
+        assertThrows(CardNotFoundException.class, () -> engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.ONE));
+        engine.restoreAccount(2L);
+
+        engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.ONE);
+        journal.close();
+
+        assertThat(engine.getBalance(2L)).isEqualByComparingTo("101.00");
+    }
+
+    @Test
+    void transfer_shouldLoadCardAddedAfterRecoveryOutsideEngineLock() throws IOException {
+        TransferJournal journal = new TransferJournal(journalPath, JOURNAL_SIZE);
+        LedgerEngine engine = start(journal);
+        store.addAccount(4L, 10L, 5_000);
+
+        engine.transfer(++transferId, 1L, 4L, 10L, BigDecimal.TEN);
+        journal.close();
+
+        assertThat(engine.getBalance(4L)).isEqualByComparingTo("60.00");
+        assertThat(store.loadedUnderEngineLock).isFalse();
+        assertThrows(CardNotFoundException.class, () -> engine.transfer(++transferId, 1L, 5L, 10L, BigDecimal.ONE));
+    }
+
+    @Test
+    void removeAccount_shouldRefuseCardWithTransfersNotYetCheckpointed() throws IOException {
+        TransferJournal journal = new TransferJournal(journalPath, JOURNAL_SIZE);
+        LedgerEngine engine = start(journal);
+        engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.TEN);
+
+        assertThat(engine.removeAccount(2L)).isFalse();
+        engine.checkpoint();
+        assertThat(engine.removeAccount(2L)).isTrue();
+
+        assertThrows(CardNotFoundException.class, () -> engine.transfer(++transferId, 1L, 2L, 10L, BigDecimal.ONE));
+        journal.close();
+    }
+
+    @Test
+    void removeAccount_shouldCloseCardNotYetLoaded() throws IOException {
+        TransferJournal journal = new TransferJournal(journalPath, JOURNAL_SIZE);
+        LedgerEngine engine = start(journal);
+        store.addAccount(4L, 10L, 5_000);
+
+        assertThat(engine.removeAccount(4L)).isTrue();
+
+        assertThrows(CardNotFoundException.class, () -> engine.transfer(++transferId, 1L, 4L, 10L, BigDecimal.ONE));
+        journal.close();
+    }
+
+    private LedgerEngine start(TransferJournal journal) {
+        LedgerEngine engine = new LedgerEngine(store, journal);
+        store.engineLock = (ReentrantLock) ReflectionTestUtils.getField(engine, "lock");
+        engine.recover();
+        return engine;
+    }
+
+    private static class InMemoryLedgerStore implements LedgerStore {
+
+        private final Map<Long, LedgerAccount> accounts = new HashMap<>();
+        private final Map<Long, Long> balances = new HashMap<>();
+        private final List<JournalRecord> transfers = new ArrayList<>();
+        private long checkpointSequence;
+        private boolean failWrites;
+        private ReentrantLock engineLock;
+        private boolean loadedUnderEngineLock;
+        private Runnable afterLoadAccount;
+        private int fullLoads;
+
+        void addAccount(long id, long ownerId, long balanceMinor) {
+            accounts.put(id, LedgerAccount.builder()
+                    .id(id)
+                    .ownerId(ownerId)
+                    .number("number-" + id)
+                    .expiryDate(LocalDateTime.now().plusYears(1))
+                    .cardStatus(CardStatus.ACTIVE)
+                    .build());
+            balances.put(id, balanceMinor);
+        }
+
+        @Override
+        public List<LedgerAccount> loadAccounts() {
+            fullLoads++;
+            return accounts.keySet().stream().map(this::copy).toList();
+        }
+
+        @Override
+        public Optional<LedgerAccount> loadAccount(long cardId) {
+            loadedUnderEngineLock |= engineLock.isHeldByCurrentThread();
+            Optional<LedgerAccount> account = accounts.containsKey(cardId) ? Optional.of(copy(cardId)) : Optional.empty();
+            if (afterLoadAccount != null) {
+                afterLoadAccount.run();
+            }
+            return account;
+        }
+
+        @Override
+        public long loadCheckpointSequence() {
+            return checkpointSequence;
+        }
+
+        @Override
+        public void writeCheckpoint(LedgerCheckpoint checkpoint) {
+            if (failWrites) {
+                throw new IllegalStateException("БД недоступна");
+            }
+            checkpoint.balances().forEach(balance -> balances.put(balance.cardId(), balance.balanceMinor()));
+            transfers.addAll(checkpoint.transfers());
+            checkpointSequence = checkpoint.sequence();
+        }
+
+        private LedgerAccount copy(long id) {
+            LedgerAccount account = accounts.get(id);
+            return LedgerAccount.builder()
+                    .id(id)
+                    .ownerId(account.getOwnerId())
+                    .number(account.getNumber())
+                    .expiryDate(account.getExpiryDate())
+                    .cardStatus(account.getCardStatus())
+                    .balanceMinor(balances.get(id))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.util.CardNumberUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("no-background-jobs")
+@Transactional
+public class CardRepositoryTest {
+
+    private static final int USERS = 3;
+    private static final int CARDS_PER_USER = 40;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardNumberUtils cardNumberUtils;
+
+    private Statistics statistics;
+    private String username;
+
+    @BeforeEach
+    void setUp() {
+        for (int u = 0; u < USERS; u++) {
+            User user = User.builder().username("cards-" + UUID.randomUUID()).password("password").role(Role.USER).build();
+            entityManager.persist(user);
+            username = user.getUsername();
+            for (int i = 0; i < CARDS_PER_USER; i++) {
+                entityManager.persist(Card.builder()
+                        .number(cardNumberUtils.encryptCardNumber(cardNumberUtils.generateCardNumber()))
+                        .owner(user)
+                        .expiryDate(LocalDateTime.now().plusYears(3))
+                        .balance(BigDecimal.valueOf(1000))
+                        .cardStatus(i % 2 == 0 ? CardStatus.ACTIVE : CardStatus.BLOCKED)
+                        .build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void getAllCards_shouldLoadPageWithOwnersInTwoStatements() {
+        for (int size : new int[]{10, 25, 50}) {
+            for (String status : new String[]{null, "active"}) {
+                entityManager.clear();
+                statistics.clear();
+
+                Page<CardDto> page = cardService.getAllCards(PageRequest.of(0, size, Sort.by("id").descending()), status, null);
+
+                assertThat(page.getContent()).hasSize(size)
+                        .allSatisfy(card -> assertThat(card.getOwnerUsername()).isNotNull());
+                assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+            }
+        }
+    }
+
+    @Test
+    void getAllCards_shouldLoadPageOfOwnerInConstantNumberOfStatements() {
+        for (int size : new int[]{5, 15}) {
+            entityManager.clear();
+            statistics.clear();
+
+            Page<CardDto> page = cardService.getAllCards(PageRequest.of(0, size), "blocked", username);
+
+            assertThat(page.getContent()).hasSize(size)
+                    .allSatisfy(card -> assertThat(card.getOwnerUsername()).isEqualTo(username));
+            assertThat(page.getTotalElements()).isEqualTo(CARDS_PER_USER / 2);
+            // пользователь, страница карт, количество строк
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        }
+    }
+}
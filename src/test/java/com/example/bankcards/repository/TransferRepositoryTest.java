@@ -0,0 +1,132 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.TransferCursorPageDto;
+import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.security.MyUserDetails;
+import com.example.bankcards.service.TransferService;
+import com.example.bankcards.util.CardNumberUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("no-background-jobs")
+@Transactional
+public class TransferRepositoryTest {
+
+    private static final int TRANSFERS = 120;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private CardNumberUtils cardNumberUtils;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        User user = User.builder().username("statements-" + UUID.randomUUID()).password("password").role(Role.USER).build();
+        entityManager.persist(user);
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Card card = Card.builder()
+                    .number(cardNumberUtils.encryptCardNumber(cardNumberUtils.generateCardNumber()))
+                    .owner(user)
+                    .expiryDate(LocalDateTime.now().plusYears(3))
+                    .balance(BigDecimal.valueOf(1000))
+                    .cardStatus(CardStatus.ACTIVE)
+                    .build();
+            entityManager.persist(card);
+            cards.add(card);
+        }
+        LocalDateTime createdAt = LocalDateTime.now();
+        for (int i = 0; i < TRANSFERS; i++) {
+            entityManager.persist(Transfer.builder()
+                    .fromCard(cards.get(i % 3))
+                    .toCard(cards.get((i + 1) % 3))
+                    .owner(user)
+                    .amount(BigDecimal.ONE)
+                    .createdAt(createdAt.minusSeconds(i))
+                    .transferStatus(TransferStatus.COMPLETED)
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new MyUserDetails(user), null, List.of()));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getMyTransfers_shouldLoadPageInConstantNumberOfStatements() {
+        for (int size : new int[]{10, 50, 100}) {
+            entityManager.clear();
+            statistics.clear();
+
+            Page<TransferDto> page = transferService.getMyTransfers(PageRequest.of(0, size, Sort.by("createdAt")));
+
+            assertThat(page.getContent()).hasSize(size)
+                    .allSatisfy(transfer -> {
+                        assertThat(transfer.getFromCard().getNumber()).startsWith("**** **** **** ");
+                        assertThat(transfer.getToCard().getNumber()).startsWith("**** **** **** ");
+                        assertThat(transfer.getOwner().getUsername()).startsWith("statements-");
+                    });
+            assertThat(page.getTotalElements()).isEqualTo(TRANSFERS);
+            // страница переводов вместе с картами и владельцем, количество строк; пользователь берется из токена
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void getMyTransfers_shouldLoadCursorPageInConstantNumberOfStatements() {
+        statistics.clear();
+
+        TransferCursorPageDto page = transferService.getMyTransfers(null, 50);
+
+        assertThat(page.getTransfers()).hasSize(50);
+        assertThat(page.getNextCursor()).isNotNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
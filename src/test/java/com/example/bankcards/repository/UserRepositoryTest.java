@@ -0,0 +1,122 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.UserResponse;
+import com.example.bankcards.dto.UserSummaryDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.service.UserService;
+import com.example.bankcards.util.CardNumberUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("no-background-jobs")
+@Transactional
+public class UserRepositoryTest {
+
+    private static final int USERS = 30;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CardNumberUtils cardNumberUtils;
+
+    private Statistics statistics;
+    private String prefix;
+
+    @BeforeEach
+    void setUp() {
+        prefix = "summary-" + UUID.randomUUID() + "-";
+        for (int u = 0; u < USERS; u++) {
+            User user = User.builder().username(prefix + u).password("password").role(Role.USER).build();
+            entityManager.persist(user);
+            for (int i = 0; i < u % 4; i++) {
+                entityManager.persist(Card.builder()
+                        .number(cardNumberUtils.encryptCardNumber(cardNumberUtils.generateCardNumber()))
+                        .owner(user)
+                        .expiryDate(LocalDateTime.now().plusYears(3))
+                        .balance(BigDecimal.valueOf(100 + i))
+                        .cardStatus(CardStatus.ACTIVE)
+                        .build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void findAllSummaries_shouldCountCardsAndSumBalancesInOneQuery() {
+        Page<UserSummaryDto> page = userRepository.findAllSummaries(PageRequest.of(0, 1000, Sort.by("id").descending()));
+
+        assertThat(page.getContent())
+                .filteredOn(summary -> summary.getUsername().startsWith(prefix))
+                .hasSize(USERS)
+                .allSatisfy(summary -> {
+                    int cards = Integer.parseInt(summary.getUsername().substring(prefix.length())) % 4;
+                    assertThat(summary.getCardCount()).isEqualTo(cards);
+                    // балансы карт пользователя: 100, 101, 102
+                    assertThat(summary.getTotalBalance()).isEqualByComparingTo(BigDecimal.valueOf(cards * 100L + cards * (cards - 1) / 2));
+                });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getAllUsers_shouldLoadCardsOfWholePageInOneQuery() {
+        Page<UserResponse> page = userService.getAllUsers(PageRequest.of(0, 20, Sort.by("id").descending()));
+
+        assertThat(page.getContent()).hasSize(20)
+                .filteredOn(user -> user.getUsername().startsWith(prefix))
+                .allSatisfy(user -> assertThat(user.getCards())
+                        .hasSize(Integer.parseInt(user.getUsername().substring(prefix.length())) % 4));
+        // страница пользователей, количество строк, карты всех пользователей страницы
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void findLastIssuedUserId_shouldNotGoBackAfterDeletingUserWithHighestId() {
+        User last = userRepository.saveAndFlush(User.builder().username(prefix + "last").password("password").role(Role.USER).build());
+        userRepository.delete(last);
+        userRepository.flush();
+
+        assertThat(userRepository.findLastIssuedUserId()).isGreaterThanOrEqualTo(last.getId());
+    }
+}
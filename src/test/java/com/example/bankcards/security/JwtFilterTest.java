@@ -0,0 +1,117 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.dto.UserTokenVersionDto;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class JwtFilterTest {
+
+    @Mock
+    private MyUserDetailsService myUserDetailsService;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private RevokedTokenRegistry revokedTokenRegistry;
+
+    private JwtProvider jwtProvider;
+    private TokenVersionRegistry tokenVersionRegistry;
+    private JwtFilter jwtFilter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtProvider = new JwtProvider();
+        ReflectionTestUtils.setField(jwtProvider, "secret", "test-secret-test-secret-test-secret-test-secret");
+        ReflectionTestUtils.setField(jwtProvider, "expiresIn", 3_600_000);
+        ReflectionTestUtils.setField(jwtProvider, "issuer", "bank-rest-app");
+        ReflectionTestUtils.setField(jwtProvider, "verifiedCacheSize", 100L);
+        ReflectionTestUtils.setField(jwtProvider, "claimsAuthEnabled", true);
+        jwtProvider.init();
+
+        tokenVersionRegistry = new TokenVersionRegistry(userRepository);
+        ReflectionTestUtils.setField(tokenVersionRegistry, "enabled", true);
+        jwtFilter = new JwtFilter(myUserDetailsService, jwtProvider, tokenVersionRegistry, revokedTokenRegistry);
+        user = User.builder().id(1L).username("admin").password("password").role(Role.ADMIN).tokenVersion(2).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_shouldAuthenticateFromClaimsWithoutLoadingUser() throws Exception {
+        when(userRepository.findAllTokenVersions()).thenReturn(List.of(new UserTokenVersionDto(1L, 2)));
+        tokenVersionRegistry.refresh();
+
+        MockHttpServletResponse response = filter(jwtProvider.generateToken(user));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(authentication.getName()).isEqualTo("admin");
+        assertThat(((MyUserDetails) authentication.getPrincipal()).getUser().getId()).isEqualTo(1L);
+        assertThat(authentication.getAuthorities()).extracting("authority").containsExactly("ROLE_ADMIN");
+        verifyNoInteractions(myUserDetailsService);
+    }
+
+    @Test
+    void doFilter_shouldRejectTokenWithStaleVersion() throws Exception {
+        when(userRepository.findAllTokenVersions()).thenReturn(List.of(new UserTokenVersionDto(1L, 3)));
+        tokenVersionRegistry.refresh();
+
+        MockHttpServletResponse response = filter(jwtProvider.generateToken(user));
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getContentAsString()).contains("JWT токен отозван");
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void doFilter_shouldLoadUserUntilVersionsAreLoaded() throws Exception {
+        when(myUserDetailsService.loadUserByUsername("admin")).thenReturn(new MyUserDetails(user));
+
+        MockHttpServletResponse response = filter(jwtProvider.generateToken(user));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        verify(myUserDetailsService).loadUserByUsername("admin");
+    }
+
+    @Test
+    void doFilter_shouldRejectRevokedToken() throws Exception {
+        String token = jwtProvider.generateToken(user);
+        when(revokedTokenRegistry.isRevoked(jwtProvider.verify(token).getId())).thenReturn(true);
+
+        MockHttpServletResponse response = filter(token);
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getContentAsString()).contains("JWT токен отозван");
+        verifyNoInteractions(myUserDetailsService);
+    }
+
+    private MockHttpServletResponse filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        jwtFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.JwtValidationException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JwtProviderTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret";
+
+    private JwtProvider jwtProvider;
+
+    @BeforeEach
+    void setUp() {
+        jwtProvider = provider("bank-rest-app");
+    }
+
+    @Test
+    void verify_shouldReturnClaimsOfValidToken() {
+        String token = jwtProvider.generateToken(User.builder().username("test").build());
+
+        Claims claims = jwtProvider.verify(token);
+
+        assertThat(claims.getSubject()).isEqualTo("test");
+        assertThat(claims.getIssuer()).isEqualTo("bank-rest-app");
+    }
+
+    @Test
+    void verify_shouldReturnCachedClaimsForRepeatedToken() {
+        String token = jwtProvider.generateToken(User.builder().username("test").build());
+
+        Claims first = jwtProvider.verify(token);
+        Claims second = jwtProvider.verify(token);
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void verify_shouldRejectExpiredToken() {
+        String token = Jwts.builder()
+                .setSubject("test")
+                .setIssuer("bank-rest-app")
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(jwtProvider.key, SignatureAlgorithm.HS256)
+                .compact();
+
+        JwtValidationException exception = assertThrows(JwtValidationException.class, () -> jwtProvider.verify(token));
+
+        assertThat(exception.getMessage()).startsWith("JWT токен просрочен");
+    }
+
+    @Test
+    void verify_shouldRejectTamperedTokenEvenAfterOriginalWasCached() {
+        String token = jwtProvider.generateToken(User.builder().username("test").build());
+        jwtProvider.verify(token);
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + parts[1] + "." + new StringBuilder(parts[2]).reverse();
+
+        JwtValidationException exception = assertThrows(JwtValidationException.class, () -> jwtProvider.verify(tampered));
+
+        assertThat(exception.getMessage()).isEqualTo("JWT токен невалиден");
+    }
+
+    @Test
+    void verify_shouldRejectTokenOfAnotherIssuer() {
+        String token = provider("another-app").generateToken(User.builder().username("test").build());
+
+        assertThrows(JwtValidationException.class, () -> jwtProvider.verify(token));
+    }
+
+    @Test
+    void verify_shouldRejectMalformedToken() {
+        assertThrows(JwtValidationException.class, () -> jwtProvider.verify("not-a-token"));
+    }
+
+    private static JwtProvider provider(String issuer) {
+        JwtProvider provider = new JwtProvider();
+        ReflectionTestUtils.setField(provider, "secret", SECRET);
+        ReflectionTestUtils.setField(provider, "expiresIn", 3_600_000);
+        ReflectionTestUtils.setField(provider, "issuer", issuer);
+        ReflectionTestUtils.setField(provider, "verifiedCacheSize", 100L);
+        provider.init();
+        return provider;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.bankcards.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoginThrottleTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginThrottle loginThrottle;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loginThrottle = new LoginThrottle(meterRegistry);
+        ReflectionTestUtils.setField(loginThrottle, "enabled", true);
+        ReflectionTestUtils.setField(loginThrottle, "stripes", 4);
+        ReflectionTestUtils.setField(loginThrottle, "maxKeys", 1000);
+        ReflectionTestUtils.setField(loginThrottle, "userIpMaxFailures", 2);
+        ReflectionTestUtils.setField(loginThrottle, "ipMaxFailures", 3);
+        ReflectionTestUtils.setField(loginThrottle, "baseLockoutMillis", 60_000L);
+        ReflectionTestUtils.setField(loginThrottle, "maxLockoutMillis", 600_000L);
+        ReflectionTestUtils.setField(loginThrottle, "forgetAfterMillis", 3_600_000L);
+        loginThrottle.init();
+    }
+
+    @Test
+    void lockedFor_shouldLockUserOnlyFromFailingAddress() {
+        loginThrottle.recordFailure("user", "10.0.0.1");
+        assertThat(loginThrottle.lockedFor("user", "10.0.0.1")).isZero();
+
+        loginThrottle.recordFailure("user", "10.0.0.1");
+
+        assertThat(loginThrottle.lockedFor("user", "10.0.0.1")).isPositive();
+        assertThat(loginThrottle.lockedFor("user", "10.0.0.2")).isZero();
+        assertThat(meterRegistry.get("auth.login.failures").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("auth.login.lockouts").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("auth.login.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void lockedFor_shouldLockAddressThatTriesManyUsernames() {
+        loginThrottle.recordFailure("first", "10.0.0.1");
+        loginThrottle.recordFailure("second", "10.0.0.1");
+        loginThrottle.recordFailure("third", "10.0.0.1");
+
+        assertThat(loginThrottle.lockedFor("fourth", "10.0.0.1")).isPositive();
+        assertThat(loginThrottle.lockedFor("fourth", "10.0.0.2")).isZero();
+    }
+
+    @Test
+    void recordSuccess_shouldResetUserFailures() {
+        loginThrottle.recordFailure("user", "10.0.0.1");
+        loginThrottle.recordSuccess("user", "10.0.0.1");
+        loginThrottle.recordFailure("user", "10.0.0.1");
+
+        assertThat(loginThrottle.lockedFor("user", "10.0.0.1")).isZero();
+        loginThrottle.sweep();
+        assertThat(meterRegistry.get("auth.login.tracked.keys").gauge().value()).isEqualTo(2);
+    }
+}
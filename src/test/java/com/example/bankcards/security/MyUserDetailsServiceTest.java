@@ -0,0 +1,111 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MyUserDetailsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MyUserDetailsService myUserDetailsService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        myUserDetailsService = new MyUserDetailsService(userRepository, meterRegistry);
+        ReflectionTestUtils.setField(myUserDetailsService, "maxSize", 100L);
+        ReflectionTestUtils.setField(myUserDetailsService, "ttlSeconds", 60L);
+        myUserDetailsService.init();
+        user = new User(1L, "test", "password", Role.USER, 0, new HashSet<>());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void loadUserByUsername_shouldQueryDatabaseOnceAndCountHits() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+
+        MyUserDetails first = (MyUserDetails) myUserDetailsService.loadUserByUsername("test");
+        MyUserDetails second = (MyUserDetails) myUserDetailsService.loadUserByUsername("test");
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getUser().getCards()).isNull();
+        assertThat(first.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_USER");
+        verify(userRepository, times(1)).findByUsername("test");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "userDetails").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "userDetails").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void loadUserByUsername_shouldNotCacheMissingUser() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> myUserDetailsService.loadUserByUsername("ghost"));
+        assertThrows(UsernameNotFoundException.class, () -> myUserDetailsService.loadUserByUsername("ghost"));
+
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+
+    @Test
+    void evict_shouldInvalidateEntryOnlyAfterTransactionCompletes() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        myUserDetailsService.loadUserByUsername("test");
+
+        TransactionSynchronizationManager.initSynchronization();
+        myUserDetailsService.evict("test");
+        myUserDetailsService.loadUserByUsername("test");
+        verify(userRepository, times(1)).findByUsername("test");
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        user.setRole(Role.ADMIN);
+        MyUserDetails reloaded = (MyUserDetails) myUserDetailsService.loadUserByUsername("test");
+
+        assertThat(reloaded.getUser().getRole()).isEqualTo(Role.ADMIN);
+        verify(userRepository, times(2)).findByUsername("test");
+    }
+
+    @Test
+    void updatePassword_shouldStoreUpgradedHashAndEvictCachedUser() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        MyUserDetails cached = (MyUserDetails) myUserDetailsService.loadUserByUsername("test");
+
+        MyUserDetails upgraded = (MyUserDetails) myUserDetailsService.updatePassword(cached, "upgradedHash");
+
+        verify(userRepository).updatePassword("test", "upgradedHash");
+        assertThat(upgraded.getPassword()).isEqualTo("upgradedHash");
+        assertThat(upgraded.getUser().getId()).isEqualTo(1L);
+        assertThat(myUserDetailsService.loadUserByUsername("test")).isNotSameAs(cached);
+        verify(userRepository, times(2)).findByUsername("test");
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.bankcards.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitFilterTest {
+
+    private RateLimitFilter rateLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimiter rateLimiter = new RateLimiter();
+        ReflectionTestUtils.setField(rateLimiter, "enabled", true);
+        ReflectionTestUtils.setField(rateLimiter, "maxKeys", 1000);
+        ReflectionTestUtils.setField(rateLimiter, "transferUserCapacity", 2);
+        ReflectionTestUtils.setField(rateLimiter, "transferUserPerSecond", 0.01);
+        ReflectionTestUtils.setField(rateLimiter, "transferIpCapacity", 5);
+        ReflectionTestUtils.setField(rateLimiter, "transferIpPerSecond", 0.01);
+        ReflectionTestUtils.setField(rateLimiter, "authIpCapacity", 1);
+        ReflectionTestUtils.setField(rateLimiter, "authIpPerSecond", 0.01);
+        rateLimiter.init();
+        rateLimitFilter = new RateLimitFilter(rateLimiter, new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_shouldLimitTransfersPerUser() throws Exception {
+        authenticate("first");
+        assertThat(post("/api/transfers", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(post("/api/transfers/batch", "10.0.0.2").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = post("/api/transfers", "10.0.0.3");
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(rejected.getHeader("Retry-After"))).isBetween(99L, 100L);
+        assertThat(rejected.getContentAsString()).contains("Слишком много запросов");
+
+        authenticate("second");
+        assertThat(post("/api/transfers", "10.0.0.3").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void doFilter_shouldLimitAuthPerIpAndSkipOtherRequests() throws Exception {
+        assertThat(post("/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(post("/api/auth/register", "10.0.0.1").getStatus()).isEqualTo(429);
+        assertThat(post("/api/auth/login", "10.0.0.2").getStatus()).isEqualTo(200);
+
+        assertThat(post("/api/cards", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(post("/api/transfersX", "10.0.0.1").getStatus()).isEqualTo(200);
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/api/auth/login");
+        get.setRemoteAddr("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(get, response, new MockFilterChain());
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private MockHttpServletResponse post(String path, String ip) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr(ip);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
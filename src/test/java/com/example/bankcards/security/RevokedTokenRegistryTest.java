@@ -0,0 +1,121 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RevokedTokenRegistryTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private RevokedTokenRegistry revokedTokenRegistry;
+
+    @BeforeEach
+    void setUp() {
+        revokedTokenRegistry = new RevokedTokenRegistry(revokedTokenRepository);
+        ReflectionTestUtils.setField(revokedTokenRegistry, "expectedTokens", 1000);
+        ReflectionTestUtils.setField(revokedTokenRegistry, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(revokedTokenRegistry, "overlapMillis", 10_000L);
+        ReflectionTestUtils.setField(revokedTokenRegistry, "rebuildIntervalMillis", 3_600_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void isRevoked_shouldCheckDatabaseUntilFilterIsLoaded() {
+        when(revokedTokenRepository.existsByJtiAndExpiresAtAfter(eq("jti-1"), any(LocalDateTime.class))).thenReturn(true);
+
+        assertThat(revokedTokenRegistry.isRevoked("jti-1")).isTrue();
+    }
+
+    @Test
+    void isRevoked_shouldAnswerFromFilterAndConfirmPositivesInDatabase() {
+        when(revokedTokenRepository.findJtisRevokedSince(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of("revoked"));
+        when(revokedTokenRepository.existsByJtiAndExpiresAtAfter(eq("revoked"), any(LocalDateTime.class))).thenReturn(true);
+        revokedTokenRegistry.refresh();
+
+        assertThat(revokedTokenRegistry.isRevoked("active")).isFalse();
+        assertThat(revokedTokenRegistry.isRevoked("revoked")).isTrue();
+        verify(revokedTokenRepository, never()).existsByJtiAndExpiresAtAfter(eq("active"), any(LocalDateTime.class));
+    }
+
+    @Test
+    void refresh_shouldLoadOnlyTokensRevokedSinceLastLoadWithOverlap() {
+        when(revokedTokenRepository.findJtisRevokedSince(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of("remote"));
+        revokedTokenRegistry.refresh();
+        LocalDateTime loadedAt = (LocalDateTime) ReflectionTestUtils.getField(revokedTokenRegistry, "loadedAt");
+
+        revokedTokenRegistry.refresh();
+
+        verify(revokedTokenRepository).findJtisRevokedSince(eq(loadedAt.minusSeconds(10)), any(LocalDateTime.class));
+        when(revokedTokenRepository.existsByJtiAndExpiresAtAfter(eq("remote"), any(LocalDateTime.class))).thenReturn(true);
+        assertThat(revokedTokenRegistry.isRevoked("remote")).isTrue();
+    }
+
+    @Test
+    void revoke_shouldStoreTokenAndAddItToFilterOnlyAfterCommit() {
+        when(revokedTokenRepository.findJtisRevokedSince(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of());
+        revokedTokenRegistry.refresh();
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        revokedTokenRegistry.revoke("local", expiresAt);
+
+        verify(revokedTokenRepository).insertIfAbsent(eq("local"), any(LocalDateTime.class), eq(expiresAt));
+        assertThat(revokedTokenRegistry.isRevoked("local")).isFalse();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        when(revokedTokenRepository.existsByJtiAndExpiresAtAfter(eq("local"), any(LocalDateTime.class))).thenReturn(true);
+
+        assertThat(revokedTokenRegistry.isRevoked("local")).isTrue();
+    }
+
+    @Test
+    void revoke_shouldSkipAlreadyExpiredTokens() {
+        revokedTokenRegistry.revoke("expired", LocalDateTime.now().minusMinutes(1));
+
+        verify(revokedTokenRepository, never()).insertIfAbsent(anyString(), any(), any());
+    }
+
+    @Test
+    void refresh_shouldRebuildFilterWhenExpectedTokensExceeded() {
+        ReflectionTestUtils.setField(revokedTokenRegistry, "expectedTokens", 1);
+        when(revokedTokenRepository.findJtisRevokedSince(any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(List.of("first", "second"))
+                .thenReturn(List.of("second"));
+        revokedTokenRegistry.refresh();
+        Object firstFilter = ReflectionTestUtils.getField(revokedTokenRegistry, "filter");
+
+        revokedTokenRegistry.refresh();
+
+        assertThat(ReflectionTestUtils.getField(revokedTokenRegistry, "filter")).isNotSameAs(firstFilter);
+        assertThat(ReflectionTestUtils.getField(revokedTokenRegistry, "insertions")).isEqualTo(1);
+    }
+}
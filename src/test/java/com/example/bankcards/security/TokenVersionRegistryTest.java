@@ -0,0 +1,129 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.dto.UserTokenVersionDto;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenVersionRegistryTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @BeforeEach
+    void setUp() {
+        tokenVersionRegistry = new TokenVersionRegistry(userRepository);
+        ReflectionTestUtils.setField(tokenVersionRegistry, "enabled", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void isCurrent_shouldCompareWithLoadedVersionsAndAcceptOnlyInitialVersionOfNewUsers() {
+        assertThat(tokenVersionRegistry.isReady()).isFalse();
+        when(userRepository.findLastIssuedUserId()).thenReturn(3L);
+        when(userRepository.findAllTokenVersions()).thenReturn(List.of(
+                new UserTokenVersionDto(1L, 0), new UserTokenVersionDto(3L, 2)));
+
+        tokenVersionRegistry.refresh();
+
+        assertThat(tokenVersionRegistry.isReady()).isTrue();
+        assertThat(tokenVersionRegistry.isCurrent(1L, 0)).isTrue();
+        assertThat(tokenVersionRegistry.isCurrent(3L, 1)).isFalse();
+        assertThat(tokenVersionRegistry.isCurrent(3L, 2)).isTrue();
+        // удален до загрузки снимка
+        assertThat(tokenVersionRegistry.isCurrent(2L, 0)).isFalse();
+        // зарегистрирован после загрузки снимка
+        assertThat(tokenVersionRegistry.isCurrent(4L, 0)).isTrue();
+        assertThat(tokenVersionRegistry.isCurrent(4L, 1)).isFalse();
+    }
+
+    @Test
+    void isCurrent_shouldRejectDeletedUserWithHighestIdOnFirstLoad() {
+        when(userRepository.findLastIssuedUserId()).thenReturn(3L);
+        when(userRepository.findAllTokenVersions()).thenReturn(List.of(new UserTokenVersionDto(1L, 0)));
+
+        tokenVersionRegistry.refresh();
+
+        assertThat(tokenVersionRegistry.isCurrent(3L, 0)).isFalse();
+        assertThat(tokenVersionRegistry.isCurrent(4L, 0)).isTrue();
+    }
+
+    @Test
+    void update_shouldApplyOnlyAfterCommit() {
+        when(userRepository.findLastIssuedUserId()).thenReturn(3L);
+        when(userRepository.findAllTokenVersions()).thenReturn(List.of(
+                new UserTokenVersionDto(1L, 0), new UserTokenVersionDto(3L, 0)));
+        tokenVersionRegistry.refresh();
+
+        TransactionSynchronizationManager.initSynchronization();
+        tokenVersionRegistry.update(1L, 1);
+        tokenVersionRegistry.revoke(3L);
+        tokenVersionRegistry.update(5L, 1);
+        assertThat(tokenVersionRegistry.isCurrent(1L, 0)).isTrue();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(tokenVersionRegistry.isCurrent(1L, 0)).isFalse();
+        assertThat(tokenVersionRegistry.isCurrent(1L, 1)).isTrue();
+        assertThat(tokenVersionRegistry.isCurrent(3L, 0)).isFalse();
+        assertThat(tokenVersionRegistry.isCurrent(5L, 0)).isFalse();
+        assertThat(tokenVersionRegistry.isCurrent(5L, 1)).isTrue();
+    }
+
+    @Test
+    void refresh_shouldKeepChangesCommittedDuringReadAndDropDeletedUsers() {
+        when(userRepository.findLastIssuedUserId()).thenReturn(3L, 5L);
+        when(userRepository.findAllTokenVersions()).thenReturn(List.of(
+                new UserTokenVersionDto(1L, 0), new UserTokenVersionDto(3L, 0)));
+        tokenVersionRegistry.refresh();
+        // удален на другом узле: этот узел о нем не знает
+        tokenVersionRegistry.update(4L, 0);
+
+        TransactionSynchronizationManager.initSynchronization();
+        tokenVersionRegistry.update(1L, 1);
+        tokenVersionRegistry.revoke(3L);
+        tokenVersionRegistry.update(5L, 1);
+        // строки прочитаны до фиксации изменений, а изменения применены до окончания чтения
+        when(userRepository.findAllTokenVersions()).thenAnswer(invocation -> {
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            return List.of(new UserTokenVersionDto(1L, 0), new UserTokenVersionDto(3L, 0));
+        });
+
+        tokenVersionRegistry.refresh();
+
+        assertThat(tokenVersionRegistry.isCurrent(1L, 1)).isTrue();
+        assertThat(tokenVersionRegistry.isCurrent(3L, 0)).isFalse();
+        assertThat(tokenVersionRegistry.isCurrent(4L, 0)).isFalse();
+        assertThat(tokenVersionRegistry.isCurrent(5L, 1)).isTrue();
+    }
+
+    @Test
+    void refresh_shouldDoNothingWhenDisabled() {
+        ReflectionTestUtils.setField(tokenVersionRegistry, "enabled", false);
+
+        tokenVersionRegistry.refresh();
+
+        assertThat(tokenVersionRegistry.isReady()).isFalse();
+    }
+}
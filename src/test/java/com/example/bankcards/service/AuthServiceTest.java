@@ -2,13 +2,22 @@ package com.example.bankcards.service;
 
 
 import com.example.bankcards.dto.AuthRequest;
+import com.example.bankcards.dto.AuthResponse;
+import com.example.bankcards.dto.RotatedRefreshToken;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
+import com.example.bankcards.exception.LoginLockedException;
 import com.example.bankcards.exception.UsernameAlreadyTakenException;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtProvider;
+import com.example.bankcards.security.LoginThrottle;
 import com.example.bankcards.security.MyUserDetails;
+import com.example.bankcards.security.RevokedTokenRegistry;
+import com.example.bankcards.security.TokenVersionRegistry;
 import com.example.bankcards.service.impl.AuthServiceImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.impl.DefaultClaims;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,9 +25,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
@@ -35,7 +50,15 @@ public class AuthServiceTest {
     @Mock
     private JwtProvider jwtProvider;
     @Mock
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private PasswordEncoder passwordEncoder;
+    @Mock
+    private RefreshTokenService refreshTokenService;
+    @Mock
+    private RevokedTokenRegistry revokedTokenRegistry;
+    @Mock
+    private LoginThrottle loginThrottle;
+    @Mock
+    private TokenVersionRegistry tokenVersionRegistry;
 
     @InjectMocks
     private AuthServiceImpl authService;
@@ -52,32 +75,68 @@ public class AuthServiceTest {
     @Test
     void login_shouldLogInSuccessfully() {
         MyUserDetails userDetails = new MyUserDetails(
-                User.builder().username("test").password("encodedPassword").role(Role.USER).build()
+                User.builder().id(1L).username("test").password("encodedPassword").role(Role.USER).build()
         );
         Authentication authentication = new UsernamePasswordAuthenticationToken(userDetails, null);
 
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(authentication);
-        when(jwtProvider.generateToken("test")).thenReturn("token");
+        when(jwtProvider.generateToken(argThat(user -> user.getUsername().equals("test")))).thenReturn("token");
+        when(refreshTokenService.issue(1L)).thenReturn("refresh");
 
-        String token = authService.login(authRequest);
+        AuthResponse tokens = authService.login(authRequest, "10.0.0.1");
 
-        assertThat(token).isEqualTo("token");
+        assertThat(tokens.getToken()).isEqualTo("token");
+        assertThat(tokens.getRefreshToken()).isEqualTo("refresh");
         verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
-        verify(jwtProvider).generateToken("test");
+        verify(jwtProvider).generateToken(argThat(user -> user.getUsername().equals("test")));
+        verify(loginThrottle).recordSuccess("test", "10.0.0.1");
     }
 
     @Test
-    void register_shouldRegisterSuccessfully() {
-        when(userRepository.existsUserByUsername("test")).thenReturn(false);
-        when(bCryptPasswordEncoder.encode("password")).thenReturn("encodedPassword");
-        when(jwtProvider.generateToken("test")).thenReturn("token");
+    void login_shouldRecordFailureForBadCredentials() {
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenThrow(new BadCredentialsException("Bad credentials"));
 
-        String token = authService.register(authRequest);
+        assertThatThrownBy(() -> authService.login(authRequest, "10.0.0.1"))
+                .isInstanceOf(BadCredentialsException.class);
 
-        assertThat(token).isEqualTo("token");
+        verify(loginThrottle).recordFailure("test", "10.0.0.1");
+        verify(loginThrottle, never()).recordSuccess(any(), any());
+        verifyNoInteractions(jwtProvider, refreshTokenService);
+    }
+
+    @Test
+    void login_shouldRejectLockedOutLoginWithoutCheckingPassword() {
+        when(loginThrottle.lockedFor("test", "10.0.0.1")).thenReturn(1_500_000_000L);
+
+        assertThatThrownBy(() -> authService.login(authRequest, "10.0.0.1"))
+                .isInstanceOf(LoginLockedException.class)
+                .hasMessageContaining("повторите через 2 с");
+
+        verifyNoInteractions(authenticationManager, jwtProvider);
+        verify(loginThrottle, never()).recordFailure(any(), any());
+    }
+
+    @Test
+    void register_shouldRegisterSuccessfully() {
+        when(userRepository.existsUserByUsername("test")).thenReturn(false);
+        when(passwordEncoder.encode("password")).thenReturn("encodedPassword");
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            user.setId(1L);
+            return user;
+        });
+        when(jwtProvider.generateToken(argThat(user -> user.getUsername().equals("test")))).thenReturn("token");
+        when(refreshTokenService.issue(any())).thenReturn("refresh");
+
+        AuthResponse tokens = authService.register(authRequest);
+
+        assertThat(tokens.getToken()).isEqualTo("token");
+        assertThat(tokens.getRefreshToken()).isEqualTo("refresh");
         verify(userRepository).save(any(User.class));
-        verify(jwtProvider).generateToken("test");
+        verify(jwtProvider).generateToken(argThat(user -> user.getUsername().equals("test")));
+        verify(tokenVersionRegistry).update(1L, 0);
     }
 
     @Test
@@ -89,7 +148,48 @@ public class AuthServiceTest {
                 .hasMessageContaining("Данное имя пользователя уже занято");
 
         verify(userRepository, never()).save(any(User.class));
-        verify(jwtProvider, never()).generateToken(anyString());
+        verify(jwtProvider, never()).generateToken(any(User.class));
+        verifyNoInteractions(refreshTokenService);
+    }
+
+    @Test
+    void refresh_shouldRotateRefreshTokenAndIssueNewAccessToken() {
+        User user = User.builder().id(1L).username("test").role(Role.USER).build();
+        when(refreshTokenService.rotate("refresh")).thenReturn(new RotatedRefreshToken(1L, "newRefresh"));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(jwtProvider.generateToken(user)).thenReturn("token");
+
+        AuthResponse tokens = authService.refresh("refresh");
+
+        assertThat(tokens.getToken()).isEqualTo("token");
+        assertThat(tokens.getRefreshToken()).isEqualTo("newRefresh");
+        verifyNoInteractions(authenticationManager, passwordEncoder);
+    }
+
+    @Test
+    void refresh_shouldNotIssueAccessTokenForRejectedRefreshToken() {
+        when(refreshTokenService.rotate("refresh"))
+                .thenThrow(new InvalidRefreshTokenException("Refresh токен уже использован, все сессии пользователя завершены"));
+
+        assertThatThrownBy(() -> authService.refresh("refresh"))
+                .isInstanceOf(InvalidRefreshTokenException.class);
+
+        verifyNoInteractions(jwtProvider);
+    }
+
+    @Test
+    void logout_shouldRevokeAccessTokenUntilExpirationAndRefreshToken() {
+        // срок в claims хранится с точностью до секунды
+        Date expiration = new Date((System.currentTimeMillis() / 1000 + 60) * 1000);
+        Claims claims = new DefaultClaims();
+        claims.setId("jti");
+        claims.setExpiration(expiration);
+        when(jwtProvider.verify("token")).thenReturn(claims);
+
+        authService.logout("token", "refresh");
+
+        verify(revokedTokenRegistry).revoke("jti", LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault()));
+        verify(refreshTokenService).revoke("refresh");
     }
 
 }
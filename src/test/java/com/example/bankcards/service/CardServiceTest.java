@@ -1,31 +1,46 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.CardLedgerDto;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.LedgerEntryDto;
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerEntryType;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.AccessToResourceDeniedException;
+import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.ledger.LedgerEngine;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.MyUserDetails;
 import com.example.bankcards.service.impl.CardServiceImpl;
 import com.example.bankcards.util.CardMapper;
 import com.example.bankcards.util.CardNumberUtils;
+import com.example.bankcards.util.LedgerEntryMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -36,6 +51,7 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -48,6 +64,14 @@ public class CardServiceTest {
     private CardNumberUtils cardNumberUtils;
     @Mock
     private CardMapper cardMapper;
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+    @Mock
+    private LedgerEntryMapper ledgerEntryMapper;
+    @Mock
+    private RowCountEstimateService rowCountEstimateService;
+    @Mock
+    private ObjectProvider<LedgerEngine> ledgerEngineProvider;
 
     @InjectMocks
     private CardServiceImpl cardService;
@@ -78,7 +102,7 @@ public class CardServiceTest {
                 .build();
 
         SecurityContextHolder.getContext().setAuthentication(
-                new UsernamePasswordAuthenticationToken("test", null)
+                new UsernamePasswordAuthenticationToken(new MyUserDetails(user), null)
         );
     }
 
@@ -105,6 +129,48 @@ public class CardServiceTest {
         verify(cardNumberUtils).generateCardNumber();
         verify(cardRepository).save(any(Card.class));
         verify(cardMapper).toCardDto(any(Card.class));
+        verify(ledgerEntryRepository).save(argThat(entry -> entry.getEntryType() == LedgerEntryType.OPENING
+                && entry.getBalanceAfter().equals(new BigDecimal("3500.00"))));
+    }
+
+    @Test
+    void deleteCard_shouldDeleteCardWithoutLedgerEngine() {
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+
+        cardService.deleteCard(1L);
+
+        verify(cardRepository).delete(card);
+    }
+
+    @Test
+    void deleteCard_shouldRejectCardWithTransfersPendingInLedger() {
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+        when(ledgerEngineProvider.getIfAvailable()).thenReturn(ledgerEngine);
+        when(ledgerEngine.removeAccount(1L)).thenReturn(false);
+
+        assertThrows(BadRequestException.class, () -> cardService.deleteCard(1L));
+
+        verify(cardRepository, never()).delete(any(Card.class));
+    }
+
+    @Test
+    void deleteCard_shouldReopenLedgerCardWhenDeletionRollsBack() {
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+        when(ledgerEngineProvider.getIfAvailable()).thenReturn(ledgerEngine);
+        when(ledgerEngine.removeAccount(1L)).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cardService.deleteCard(1L);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(ledgerEngine).restoreAccount(1L);
     }
 
     @Test
@@ -121,7 +187,6 @@ public class CardServiceTest {
     @Test
     void getCard_shouldReturnCard() {
         when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
         when(cardMapper.toCardDto(card)).thenReturn(CardDto.builder().id(1L).ownerUsername("test").number("**** **** **** 3456").balance(new BigDecimal("3500.00")).build());
 
         CardDto result = cardService.getCard(1L);
@@ -131,7 +196,7 @@ public class CardServiceTest {
         assertThat(result.getOwnerUsername()).isEqualTo("test");
         assertThat(result.getBalance()).isEqualTo(new BigDecimal("3500.00"));
         verify(cardMapper).toCardDto(card);
-        verify(userRepository).findByUsername("test");
+        verifyNoInteractions(userRepository);
         verify(cardRepository).findById(1L);
     }
 
@@ -140,20 +205,16 @@ public class CardServiceTest {
         User otherUser = User.builder().id(2L).username("test2").role(Role.USER).build();
         card.setOwner(otherUser);
         when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
 
         assertThrows(AccessToResourceDeniedException.class, () -> cardService.getCard(1L));
     }
 
     @Test
     void getCard_dontShouldThrowAccessToResourceDeniedExceptionIfRoleAdmin() {
-        SecurityContextHolder.getContext().setAuthentication(
-                new UsernamePasswordAuthenticationToken("admin", null));
         user.setRole(Role.ADMIN);
         User otherUser = User.builder().id(2L).username("testUser").role(Role.USER).build();
         card.setOwner(otherUser);
         when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
-        when(userRepository.findByUsername("admin")).thenReturn(Optional.of(user));
         when(cardMapper.toCardDto(card)).thenReturn(CardDto.builder().number("**** **** **** 3456").ownerUsername("testUser").balance(new BigDecimal("3500.00")).build());
 
         CardDto result = cardService.getCard(1L);
@@ -163,7 +224,7 @@ public class CardServiceTest {
         assertThat(result.getOwnerUsername()).isEqualTo("testUser");
         assertThat(result.getBalance()).isEqualTo(new BigDecimal("3500.00"));
         verify(cardMapper).toCardDto(card);
-        verify(userRepository).findByUsername("admin");
+        verifyNoInteractions(userRepository);
         verify(cardRepository).findById(1L);
 
     }
@@ -174,25 +235,43 @@ public class CardServiceTest {
         when(cardRepository.save(any(Card.class))).thenReturn(card);
         when(cardMapper.toCardDto(card)).thenReturn(CardDto.builder().cardStatus(CardStatus.BLOCKED).ownerUsername("test").build());
 
-        CardDto result = cardService.blockUserCard(1L, "test");
+        CardDto result = cardService.blockUserCard(1L);
 
         assertThat(result).isNotNull();
         assertThat(result.getCardStatus()).isEqualTo(CardStatus.BLOCKED);
     }
 
+    @Test
+    void blockUserCard_shouldPassBlockedStatusToLedgerAfterCommit() {
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngineProvider.getIfAvailable()).thenReturn(ledgerEngine);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+        when(cardRepository.save(any(Card.class))).thenReturn(card);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cardService.blockUserCard(1L);
+            verifyNoInteractions(ledgerEngine);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(ledgerEngine).updateAccount(1L, 1L, card.getExpiryDate(), CardStatus.BLOCKED);
+    }
+
     @Test
     void blockUserCard_shouldThrowAccessToResourceDeniedException() {
         card.setOwner(User.builder().id(2L).username("test2").role(Role.USER).build());
         when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
 
         assertThrows(AccessToResourceDeniedException.class,
-                () -> cardService.blockUserCard(1L, "test"));
+                () -> cardService.blockUserCard(1L));
     }
 
     @Test
     void getCardBalance_Success() {
         when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
 
         BigDecimal balance = cardService.getCardBalance(1L);
 
@@ -203,37 +282,89 @@ public class CardServiceTest {
     void getCardBalance_shouldThrowAccessToResourceDeniedException() {
         card.setOwner(User.builder().id(2L).username("test2").build());
         when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
 
         assertThrows(AccessToResourceDeniedException.class, () -> cardService.getCardBalance(1L));
     }
 
     @Test
     void getCardBalance_dontShouldThrowAccessToResourceDeniedExceptionIfRoleAdmin() {
-        SecurityContextHolder.getContext().setAuthentication(
-                new UsernamePasswordAuthenticationToken("admin", null));
         card.setOwner(User.builder().id(2L).username("test2").role(Role.USER).build());
         user.setRole(Role.ADMIN);
         when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
-        when(userRepository.findByUsername("admin")).thenReturn(Optional.of(user));
 
         BigDecimal balance = cardService.getCardBalance(1L);
 
         assertThat(balance).isEqualTo(BigDecimal.valueOf(3500));
     }
 
+    @Test
+    void getCardLedger_shouldReturnCursorOnlyForFullPage() {
+        LedgerEntry newer = LedgerEntry.builder().id(9L).build();
+        LedgerEntry older = LedgerEntry.builder().id(4L).build();
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+        when(ledgerEntryRepository.findLatestByCardId(1L, Limit.of(2))).thenReturn(List.of(newer, older));
+        when(ledgerEntryRepository.findByCardIdBefore(1L, 4L, Limit.of(2))).thenReturn(List.of(LedgerEntry.builder().id(1L).build()));
+        when(ledgerEntryMapper.toLedgerEntryDto(any(LedgerEntry.class)))
+                .thenAnswer(invocation -> LedgerEntryDto.builder().id(invocation.<LedgerEntry>getArgument(0).getId()).build());
+
+        CardLedgerDto firstPage = cardService.getCardLedger(1L, null, 2);
+        CardLedgerDto lastPage = cardService.getCardLedger(1L, firstPage.getNextBefore(), 2);
+
+        assertThat(firstPage.getEntries()).extracting(LedgerEntryDto::getId).containsExactly(9L, 4L);
+        assertThat(firstPage.getNextBefore()).isEqualTo(4L);
+        assertThat(lastPage.getEntries()).extracting(LedgerEntryDto::getId).containsExactly(1L);
+        assertThat(lastPage.getNextBefore()).isNull();
+    }
+
+    @Test
+    void getCardLedger_shouldThrowAccessToResourceDeniedException() {
+        card.setOwner(User.builder().id(2L).username("test2").build());
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+
+        assertThrows(AccessToResourceDeniedException.class, () -> cardService.getCardLedger(1L, null, 20));
+        verifyNoInteractions(ledgerEntryRepository);
+    }
+
+    @Test
+    void getCardBalanceAt_shouldReturnBalanceFromLedger() {
+        LocalDateTime at = LocalDateTime.now().minusDays(1);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(card));
+        when(ledgerEntryRepository.findBalanceAt(1L, at)).thenReturn(Optional.of(BigDecimal.valueOf(1200)));
+
+        assertThat(cardService.getCardBalanceAt(1L, at)).isEqualTo(BigDecimal.valueOf(1200));
+    }
+
+    @Test
+    void getAllCardsSlice_shouldEstimateFilteredTotalFromQueryPlan() {
+        Pageable pageable = Pageable.ofSize(10);
+        CardDto cardDto = CardDto.builder().id(1L).build();
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(cardRepository.findSliceWithOwnerByOwnerIdAndCardStatus(1L, CardStatus.ACTIVE, pageable))
+                .thenReturn(new SliceImpl<>(List.of(card), pageable, false));
+        when(cardMapper.toCardDto(card)).thenReturn(cardDto);
+        when(rowCountEstimateService.estimateQueryRows("select 1 from t_card where owner_id = ? and status = ?", 1L, "ACTIVE"))
+                .thenReturn(3L);
+
+        SliceDto<CardDto> result = cardService.getAllCardsSlice(pageable, "active", "test", true);
+
+        assertThat(result.getContent()).containsExactly(cardDto);
+        assertThat(result.isHasNext()).isFalse();
+        assertThat(result.getEstimatedTotal()).isEqualTo(3L);
+        verify(cardRepository, never()).count();
+    }
+
     @Test
     void getAllCards_shouldReturnAllCardsWithNoFilters() {
         Pageable pageable = Pageable.ofSize(10);
         Page<Card> page = new PageImpl<>(List.of(card));
 
-        when(cardRepository.findAll(pageable)).thenReturn(page);
+        when(cardRepository.findAllWithOwner(pageable)).thenReturn(page);
         when(cardMapper.toCardDto(any(Card.class))).thenReturn(CardDto.builder().id(1L).build());
 
         Page<CardDto> result = cardService.getAllCards(pageable, null, null);
 
         assertThat(result.getTotalElements()).isEqualTo(1);
-        verify(cardRepository).findAll(pageable);
+        verify(cardRepository).findAllWithOwner(pageable);
     }
 
     @Test
@@ -242,13 +373,13 @@ public class CardServiceTest {
         Page<Card> page = new PageImpl<>(List.of(card));
 
         when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(cardRepository.findAllByOwner(user, pageable)).thenReturn(page);
+        when(cardRepository.findAllWithOwnerByOwnerId(1L, pageable)).thenReturn(page);
         when(cardMapper.toCardDto(any(Card.class))).thenReturn(CardDto.builder().id(1L).ownerUsername("test").build());
 
         Page<CardDto> result = cardService.getAllCards(pageable, null, "test");
 
         assertThat(result.getTotalElements()).isEqualTo(1);
-        verify(cardRepository).findAllByOwner(user, pageable);
+        verify(cardRepository).findAllWithOwnerByOwnerId(1L, pageable);
     }
 
     @Test
@@ -256,13 +387,13 @@ public class CardServiceTest {
         Pageable pageable = Pageable.ofSize(10);
         Page<Card> page = new PageImpl<>(List.of(card));
 
-        when(cardRepository.findAllByCardStatus(CardStatus.ACTIVE, pageable)).thenReturn(page);
+        when(cardRepository.findAllWithOwnerByCardStatus(CardStatus.ACTIVE, pageable)).thenReturn(page);
         when(cardMapper.toCardDto(any(Card.class))).thenReturn(CardDto.builder().id(1L).cardStatus(CardStatus.ACTIVE).build());
 
         Page<CardDto> result = cardService.getAllCards(pageable, "active", null);
 
         assertThat(result.getTotalElements()).isEqualTo(1);
-        verify(cardRepository).findAllByCardStatus(CardStatus.ACTIVE, pageable);
+        verify(cardRepository).findAllWithOwnerByCardStatus(CardStatus.ACTIVE, pageable);
     }
 
     @Test
@@ -271,13 +402,13 @@ public class CardServiceTest {
         Page<Card> page = new PageImpl<>(List.of(card));
 
         when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(cardRepository.findAllByOwnerAndCardStatus(user, CardStatus.BLOCKED, pageable)).thenReturn(page);
+        when(cardRepository.findAllWithOwnerByOwnerIdAndCardStatus(1L, CardStatus.BLOCKED, pageable)).thenReturn(page);
         when(cardMapper.toCardDto(any(Card.class))).thenReturn(CardDto.builder().cardStatus(CardStatus.BLOCKED).ownerUsername("test").build());
 
         Page<CardDto> result = cardService.getAllCards(pageable, "blocked", "test");
 
         assertThat(result.getTotalElements()).isEqualTo(1);
-        verify(cardRepository).findAllByOwnerAndCardStatus(user, CardStatus.BLOCKED, pageable);
+        verify(cardRepository).findAllWithOwnerByOwnerIdAndCardStatus(1L, CardStatus.BLOCKED, pageable);
     }
 
     @Test
@@ -285,14 +416,13 @@ public class CardServiceTest {
         Pageable pageable = Pageable.ofSize(10);
         Page<Card> page = new PageImpl<>(List.of(card));
 
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(cardRepository.findAllByOwner(user, pageable)).thenReturn(page);
+        when(cardRepository.findAllWithOwnerByOwnerId(1L, pageable)).thenReturn(page);
         when(cardMapper.toCardDto(any(Card.class))).thenReturn(CardDto.builder().ownerUsername("test").build());
 
-        Page<CardDto> result = cardService.getMyCards(pageable, null, "test");
+        Page<CardDto> result = cardService.getMyCards(pageable, null);
 
         assertThat(result.getTotalElements()).isEqualTo(1);
-        verify(cardRepository).findAllByOwner(user, pageable);
+        verify(cardRepository).findAllWithOwnerByOwnerId(1L, pageable);
     }
 
     @Test
@@ -300,21 +430,20 @@ public class CardServiceTest {
         Pageable pageable = Pageable.ofSize(10);
         Page<Card> page = new PageImpl<>(List.of(card));
 
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(cardRepository.findAllByOwnerAndCardStatus(user, CardStatus.ACTIVE, pageable)).thenReturn(page);
+        when(cardRepository.findAllWithOwnerByOwnerIdAndCardStatus(1L, CardStatus.ACTIVE, pageable)).thenReturn(page);
         when(cardMapper.toCardDto(any(Card.class))).thenReturn(CardDto.builder().ownerUsername("test").cardStatus(CardStatus.ACTIVE).build());
 
-        Page<CardDto> result = cardService.getMyCards(pageable, "ACTIVE", "test");
+        Page<CardDto> result = cardService.getMyCards(pageable, "ACTIVE");
 
         assertThat(result.getTotalElements()).isEqualTo(1);
-        verify(cardRepository).findAllByOwnerAndCardStatus(user, CardStatus.ACTIVE, pageable);
+        verify(cardRepository).findAllWithOwnerByOwnerIdAndCardStatus(1L, CardStatus.ACTIVE, pageable);
     }
 
     @Test
-    void getMyCards_shouldThrowUserNotFoundException() {
+    void getMyCards_shouldThrowUserNotFoundExceptionWithoutAuthenticatedUser() {
         Pageable pageable = Pageable.ofSize(10);
-        when(userRepository.findByUsername("test")).thenReturn(Optional.empty());
+        SecurityContextHolder.clearContext();
 
-        assertThrows(UserNotFoundException.class, () -> cardService.getMyCards(pageable, null, "test"));
+        assertThrows(UserNotFoundException.class, () -> cardService.getMyCards(pageable, null));
     }
 }
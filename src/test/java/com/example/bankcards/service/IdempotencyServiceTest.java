@@ -0,0 +1,152 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.entity.IdempotencyKey;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.service.impl.IdempotencyServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private IdempotencyServiceImpl idempotencyService;
+
+    private CreateTransferRequest request;
+    private TransferDto transfer;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyServiceImpl(idempotencyKeyRepository, new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(idempotencyService, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(idempotencyService, "cacheSize", 100L);
+        idempotencyService.init();
+
+        request = new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(100));
+        transfer = TransferDto.builder()
+                .amount(BigDecimal.valueOf(100))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void findTransfer_shouldReturnEmptyForUnknownKey() {
+        when(idempotencyKeyRepository.findByOwnerIdAndIdempotencyKeyAndExpiresAtAfter(eq(1L), eq("key"), any()))
+                .thenReturn(Optional.empty());
+
+        assertThat(idempotencyService.findTransfer(1L, "key", request)).isEmpty();
+    }
+
+    @Test
+    void findTransfer_shouldReturnSavedTransferFromCacheWithoutDatabase() {
+        idempotencyService.saveTransfer(1L, "key", request, transfer);
+
+        Optional<TransferDto> result = idempotencyService.findTransfer(1L, "key", request);
+
+        assertThat(result).contains(transfer);
+        verify(idempotencyKeyRepository, never()).findByOwnerIdAndIdempotencyKeyAndExpiresAtAfter(any(), any(), any());
+    }
+
+    @Test
+    void findTransfer_shouldLoadStoredResponseFromDatabase() {
+        ArgumentCaptor<IdempotencyKey> captor = ArgumentCaptor.forClass(IdempotencyKey.class);
+        idempotencyService.saveTransfer(1L, "key", request, transfer);
+        verify(idempotencyKeyRepository).saveAndFlush(captor.capture());
+
+        IdempotencyServiceImpl otherNode = new IdempotencyServiceImpl(idempotencyKeyRepository, new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(otherNode, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(otherNode, "cacheSize", 100L);
+        otherNode.init();
+        when(idempotencyKeyRepository.findByOwnerIdAndIdempotencyKeyAndExpiresAtAfter(eq(1L), eq("key"), any()))
+                .thenReturn(Optional.of(captor.getValue()));
+
+        Optional<TransferDto> result = otherNode.findTransfer(1L, "key", request);
+
+        assertThat(result).isPresent();
+        assertThat(result.get().getAmount()).isEqualByComparingTo(BigDecimal.valueOf(100));
+    }
+
+    @Test
+    void findTransfer_shouldThrowBadRequestExceptionForDifferentRequest() {
+        idempotencyService.saveTransfer(1L, "key", request, transfer);
+
+        assertThrows(BadRequestException.class, () -> idempotencyService.findTransfer(1L, "key",
+                new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(200))));
+    }
+
+    @Test
+    void findTransfer_shouldThrowIdempotencyKeyConflictExceptionWhileClaimedTransferIsRunning() {
+        ArgumentCaptor<IdempotencyKey> captor = ArgumentCaptor.forClass(IdempotencyKey.class);
+        idempotencyService.claimTransfer(1L, "key", request);
+        verify(idempotencyKeyRepository).saveAndFlush(captor.capture());
+        when(idempotencyKeyRepository.findByOwnerIdAndIdempotencyKeyAndExpiresAtAfter(eq(1L), eq("key"), any()))
+                .thenReturn(Optional.of(captor.getValue()));
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> idempotencyService.findTransfer(1L, "key", request));
+        assertThrows(BadRequestException.class, () -> idempotencyService.findTransfer(1L, "key",
+                new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(200))));
+    }
+
+    @Test
+    void completeTransfer_shouldStoreResponseOfClaimedKey() {
+        ArgumentCaptor<IdempotencyKey> captor = ArgumentCaptor.forClass(IdempotencyKey.class);
+        idempotencyService.claimTransfer(1L, "key", request);
+        verify(idempotencyKeyRepository).saveAndFlush(captor.capture());
+        when(idempotencyKeyRepository.findByOwnerIdAndIdempotencyKey(1L, "key")).thenReturn(Optional.of(captor.getValue()));
+
+        idempotencyService.completeTransfer(1L, "key", transfer);
+
+        assertThat(captor.getValue().getResponse()).isNotEmpty();
+        assertThat(idempotencyService.findTransfer(1L, "key", request)).contains(transfer);
+        verify(idempotencyKeyRepository, never()).findByOwnerIdAndIdempotencyKeyAndExpiresAtAfter(any(), any(), any());
+    }
+
+    @Test
+    void releaseTransfer_shouldDeleteOnlyPendingKey() {
+        idempotencyService.releaseTransfer(1L, "key");
+
+        verify(idempotencyKeyRepository).deleteByOwnerIdAndIdempotencyKeyAndResponse(1L, "key", "");
+    }
+
+    @Test
+    void saveTransfer_shouldDeleteExpiredRowOfSameKeyBeforeInsert() {
+        idempotencyService.saveTransfer(1L, "key", request, transfer);
+
+        InOrder inOrder = inOrder(idempotencyKeyRepository);
+        inOrder.verify(idempotencyKeyRepository).deleteExpired(eq(1L), eq("key"), any(LocalDateTime.class));
+        inOrder.verify(idempotencyKeyRepository).saveAndFlush(any(IdempotencyKey.class));
+    }
+
+    @Test
+    void saveTransfer_shouldThrowIdempotencyKeyConflictExceptionForConcurrentDuplicate() {
+        when(idempotencyKeyRepository.saveAndFlush(any(IdempotencyKey.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        assertThrows(IdempotencyKeyConflictException.class,
+                () -> idempotencyService.saveTransfer(1L, "key", request, transfer));
+    }
+}
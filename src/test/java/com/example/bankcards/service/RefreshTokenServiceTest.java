@@ -0,0 +1,104 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.RotatedRefreshToken;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.exception.InvalidRefreshTokenException;
+import com.example.bankcards.repository.RefreshTokenRepository;
+import com.example.bankcards.service.impl.RefreshTokenServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @InjectMocks
+    private RefreshTokenServiceImpl refreshTokenService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(refreshTokenService, "refreshExpiresIn", 60_000L);
+    }
+
+    @Test
+    void issue_shouldStoreOnlyHashOfRandomToken() {
+        String token = refreshTokenService.issue(1L);
+
+        ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(captor.capture());
+        RefreshToken stored = captor.getValue();
+        assertThat(token).hasSize(43);
+        assertThat(stored.getUserId()).isEqualTo(1L);
+        assertThat(stored.getTokenHash()).hasSize(64).isNotEqualTo(token);
+        assertThat(stored.getExpiresAt()).isAfter(stored.getCreatedAt());
+        assertThat(refreshTokenService.issue(1L)).isNotEqualTo(token);
+    }
+
+    @Test
+    void rotate_shouldMarkTokenUsedAndIssueNewOne() {
+        RefreshToken stored = RefreshToken.builder().userId(1L).tokenHash("hash")
+                .createdAt(LocalDateTime.now()).expiresAt(LocalDateTime.now().plusMinutes(1)).build();
+        when(refreshTokenRepository.findByTokenHashForUpdate(anyString())).thenReturn(Optional.of(stored));
+
+        RotatedRefreshToken rotated = refreshTokenService.rotate("token");
+
+        assertThat(rotated.getUserId()).isEqualTo(1L);
+        assertThat(rotated.getRefreshToken()).isNotEqualTo("token");
+        assertThat(stored.getUsedAt()).isNotNull();
+        verify(refreshTokenRepository).save(any(RefreshToken.class));
+    }
+
+    @Test
+    void rotate_shouldRevokeAllUserTokensWhenUsedTokenIsReplayed() {
+        RefreshToken stored = RefreshToken.builder().userId(1L).tokenHash("hash")
+                .createdAt(LocalDateTime.now()).expiresAt(LocalDateTime.now().plusMinutes(1))
+                .usedAt(LocalDateTime.now()).build();
+        when(refreshTokenRepository.findByTokenHashForUpdate(anyString())).thenReturn(Optional.of(stored));
+
+        assertThatThrownBy(() -> refreshTokenService.rotate("token"))
+                .isInstanceOf(InvalidRefreshTokenException.class)
+                .hasMessageContaining("уже использован");
+
+        verify(refreshTokenRepository).deleteAllByUserId(1L);
+        verify(refreshTokenRepository, never()).save(any(RefreshToken.class));
+    }
+
+    @Test
+    void rotate_shouldRejectExpiredToken() {
+        RefreshToken stored = RefreshToken.builder().userId(1L).tokenHash("hash")
+                .createdAt(LocalDateTime.now().minusMinutes(2)).expiresAt(LocalDateTime.now().minusMinutes(1)).build();
+        when(refreshTokenRepository.findByTokenHashForUpdate(anyString())).thenReturn(Optional.of(stored));
+
+        assertThatThrownBy(() -> refreshTokenService.rotate("token"))
+                .isInstanceOf(InvalidRefreshTokenException.class)
+                .hasMessageContaining("просрочен");
+
+        verify(refreshTokenRepository, never()).save(any(RefreshToken.class));
+    }
+
+    @Test
+    void rotate_shouldRejectUnknownToken() {
+        when(refreshTokenRepository.findByTokenHashForUpdate(anyString())).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> refreshTokenService.rotate("token"))
+                .isInstanceOf(InvalidRefreshTokenException.class)
+                .hasMessageContaining("Refresh токен невалиден");
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.service.impl.RowCountEstimateServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RowCountEstimateServiceTest {
+
+    private static final String RELTUPLES_QUERY = "select reltuples::float8 from pg_class where oid = to_regclass(?)";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private RowCountEstimateServiceImpl rowCountEstimateService;
+
+    @BeforeEach
+    void setUp() {
+        rowCountEstimateService = new RowCountEstimateServiceImpl(jdbcTemplate, new ObjectMapper());
+        ReflectionTestUtils.setField(rowCountEstimateService, "estimateTtlSeconds", 60L);
+        rowCountEstimateService.init();
+    }
+
+    @Test
+    void estimateTableRows_shouldUseReltuplesAndCacheIt() {
+        when(jdbcTemplate.queryForObject(RELTUPLES_QUERY, Double.class, "t_transfer")).thenReturn(1_234_567.4);
+
+        assertThat(rowCountEstimateService.estimateTableRows("t_transfer")).isEqualTo(1_234_567L);
+        assertThat(rowCountEstimateService.estimateTableRows("t_transfer")).isEqualTo(1_234_567L);
+
+        verify(jdbcTemplate, times(1)).queryForObject(RELTUPLES_QUERY, Double.class, "t_transfer");
+    }
+
+    @Test
+    void estimateTableRows_shouldFallBackToPlanWhenTableWasNeverAnalyzed() {
+        when(jdbcTemplate.queryForObject(RELTUPLES_QUERY, Double.class, "t_card")).thenReturn(-1.0);
+        when(jdbcTemplate.queryForObject(eq("explain (format json) select 1 from t_card"), eq(String.class), any(Object[].class)))
+                .thenReturn("[{\"Plan\": {\"Node Type\": \"Seq Scan\", \"Plan Rows\": 2550}}]");
+
+        assertThat(rowCountEstimateService.estimateTableRows("t_card")).isEqualTo(2550L);
+    }
+
+    @Test
+    void estimateQueryRows_shouldCacheByQueryAndArguments() {
+        String sql = "select 1 from t_card where owner_id = ?";
+        when(jdbcTemplate.queryForObject(eq("explain (format json) " + sql), eq(String.class), any(Object[].class)))
+                .thenReturn("[{\"Plan\": {\"Plan Rows\": 12}}]");
+
+        rowCountEstimateService.estimateQueryRows(sql, 1L);
+        rowCountEstimateService.estimateQueryRows(sql, 1L);
+        rowCountEstimateService.estimateQueryRows(sql, 2L);
+
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(String.class), any(Object[].class));
+    }
+}
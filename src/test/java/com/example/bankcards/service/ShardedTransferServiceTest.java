@@ -0,0 +1,172 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.TransferLaneBusyException;
+import com.example.bankcards.service.impl.ShardedTransferService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ShardedTransferServiceTest {
+
+    @Mock
+    private TransferService delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ShardedTransferService shardedTransferService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        shardedTransferService = new ShardedTransferService(delegate, meterRegistry, 4, 256, 5000);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("test", null)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        shardedTransferService.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void createTransfer_shouldRunInLaneWithCallerSecurityContext() {
+        TransferDto transferDto = TransferDto.builder().amount(BigDecimal.TEN).build();
+        List<String> users = new ArrayList<>();
+        when(delegate.createTransfer(any(), any())).thenAnswer(invocation -> {
+            users.add(SecurityContextHolder.getContext().getAuthentication().getName());
+            assertThat(Thread.currentThread().getName()).startsWith("transfer-lane-");
+            return transferDto;
+        });
+
+        TransferDto result = shardedTransferService.createTransfer(new CreateTransferRequest(1L, 2L, BigDecimal.TEN), null);
+
+        assertThat(result).isSameAs(transferDto);
+        assertThat(users).containsExactly("test");
+        assertThat(meterRegistry.find("transfer.lane.wait").timers())
+                .anySatisfy(timer -> assertThat(timer.count()).isPositive());
+        assertThat(meterRegistry.find("transfer.lane.queue.depth").gauges()).hasSize(4);
+    }
+
+    @Test
+    void createTransfer_shouldRethrowDelegateException() {
+        when(delegate.createTransfer(any(), any())).thenThrow(new BadRequestException("Недостаточно средств для перевода"));
+
+        assertThrows(BadRequestException.class,
+                () -> shardedTransferService.createTransfer(new CreateTransferRequest(1L, 2L, BigDecimal.TEN), null));
+    }
+
+    @Test
+    void createTransfer_shouldRejectWhenLaneQueueIsFull() throws Exception {
+        SimpleMeterRegistry singleLaneMeters = new SimpleMeterRegistry();
+        ShardedTransferService singleLane = new ShardedTransferService(delegate, singleLaneMeters, 1, 1, 5000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.createTransfer(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return TransferDto.builder().build();
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> running = callers.submit(() -> singleLane.createTransfer(new CreateTransferRequest(1L, 2L, BigDecimal.ONE), null));
+            started.await();
+            Future<?> queued = callers.submit(() -> singleLane.createTransfer(new CreateTransferRequest(1L, 2L, BigDecimal.ONE), null));
+            while (singleLaneMeters.get("transfer.lane.queue.depth").gauge().value() < 1) {
+                Thread.sleep(1);
+            }
+
+            assertThrows(TransferLaneBusyException.class,
+                    () -> singleLane.createTransfer(new CreateTransferRequest(1L, 2L, BigDecimal.ONE), null));
+
+            release.countDown();
+            running.get();
+            queued.get();
+            assertThat(singleLaneMeters.get("transfer.lane.rejected").counter().count()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            callers.shutdown();
+            singleLane.shutdown();
+        }
+    }
+
+    @Test
+    void createTransfer_shouldDropQueuedTransferAfterWaitTimeout() throws Exception {
+        ShardedTransferService singleLane = new ShardedTransferService(delegate, new SimpleMeterRegistry(), 1, 8, 50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.createTransfer(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return TransferDto.builder().build();
+        });
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> running = callers.submit(() -> singleLane.createTransfer(new CreateTransferRequest(1L, 2L, BigDecimal.ONE), null));
+            started.await();
+
+            assertThrows(TransferLaneBusyException.class,
+                    () -> singleLane.createTransfer(new CreateTransferRequest(1L, 3L, BigDecimal.ONE), null));
+
+            release.countDown();
+            running.get();
+            verify(delegate, never()).createTransfer(argThat(request -> request.getToCardId() == 3L), any());
+        } finally {
+            release.countDown();
+            callers.shutdown();
+            singleLane.shutdown();
+        }
+    }
+
+    @Test
+    void createTransfer_shouldNeverRunTwoTransfersOfSameCardConcurrently() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(delegate.createTransfer(any(), any())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(1);
+            running.decrementAndGet();
+            return TransferDto.builder().build();
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (long i = 0; i < 64; i++) {
+            long other = 2 + i % 7;
+            boolean forward = i % 2 == 0;
+            futures.add(callers.submit(() -> shardedTransferService.createTransfer(
+                    new CreateTransferRequest(forward ? 1L : other, forward ? other : 1L, BigDecimal.ONE), null)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        callers.shutdown();
+
+        assertThat(maxRunning.get()).isEqualTo(1);
+        verify(delegate, times(64)).createTransfer(any(), any());
+    }
+}
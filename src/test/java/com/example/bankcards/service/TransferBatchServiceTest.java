@@ -0,0 +1,112 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.TransferBatchResult;
+import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.service.impl.TransferBatchServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferBatchServiceTest {
+
+    @Mock
+    private TransferService transferService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private TransferBatchServiceImpl transferBatchService;
+
+    @BeforeEach
+    void setUp() {
+        transferBatchService = new TransferBatchServiceImpl(transferService, objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(transferBatchService, "chunkSize", 2);
+    }
+
+    @Test
+    void processBatch_shouldExecuteValidLinesInChunksAndKeepLineOrder() throws Exception {
+        List<List<CreateTransferRequest>> chunks = new ArrayList<>();
+        when(transferService.createTransfers(anyList(), eq("test"))).thenAnswer(invocation -> {
+            List<CreateTransferRequest> requests = invocation.getArgument(0);
+            chunks.add(List.copyOf(requests));
+            return requests.stream()
+                    .map(request -> TransferBatchResult.builder()
+                            .transfer(TransferDto.builder().amount(request.getAmount()).build())
+                            .build())
+                    .toList();
+        });
+
+        List<TransferBatchResult> results = process("""
+                {"fromCardId":1,"toCardId":2,"amount":10}
+                not a json
+
+                {"fromCardId":1,"toCardId":2}
+                {"fromCardId":2,"toCardId":1,"amount":20}
+                {"fromCardId":1,"toCardId":2,"amount":30}
+                """);
+
+        assertThat(results).extracting(TransferBatchResult::getLine).containsExactly(1L, 2L, 4L, 5L, 6L);
+        assertThat(results.get(0).getTransfer().getAmount()).isEqualByComparingTo(BigDecimal.TEN);
+        assertThat(results.get(1).getError()).isEqualTo("Некорректный формат строки");
+        assertThat(results.get(2).getError()).isEqualTo("Укажите сумму перевода");
+        assertThat(results.get(3).getTransfer().getAmount()).isEqualByComparingTo(BigDecimal.valueOf(20));
+        assertThat(results.get(4).getTransfer().getAmount()).isEqualByComparingTo(BigDecimal.valueOf(30));
+        assertThat(chunks).hasSize(3);
+    }
+
+    @Test
+    void processBatch_shouldReportErrorForEveryLineOfFailedChunk() throws Exception {
+        when(transferService.createTransfers(anyList(), eq("test")))
+                .thenThrow(new PessimisticLockingFailureException("lock timeout"));
+
+        List<TransferBatchResult> results = process("""
+                {"fromCardId":1,"toCardId":2,"amount":10}
+                {"fromCardId":2,"toCardId":1,"amount":20}
+                """);
+
+        assertThat(results).hasSize(2);
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.getTransfer()).isNull();
+            assertThat(result.getError()).isNotBlank();
+        });
+    }
+
+    @Test
+    void processBatch_shouldNotCallServiceForEmptyBody() throws Exception {
+        assertThat(process("")).isEmpty();
+        verifyNoInteractions(transferService);
+    }
+
+    private List<TransferBatchResult> process(String body) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        transferBatchService.processBatch(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), output, "test");
+
+        List<TransferBatchResult> results = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                results.add(objectMapper.readValue(line, TransferBatchResult.class));
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.service.impl.TransferExportServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferExportServiceTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 8, 15, 14, 30);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private TransferExportServiceImpl transferExportService;
+    private final List<PreparedStatementCreator> statements = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        transferExportService = new TransferExportServiceImpl(jdbcTemplate, new ObjectMapper());
+        ReflectionTestUtils.setField(transferExportService, "fetchSize", 500);
+
+        when(resultSet.getLong(1)).thenReturn(1L, 2L);
+        when(resultSet.getTimestamp(2)).thenReturn(Timestamp.valueOf(CREATED_AT));
+        when(resultSet.getLong(3)).thenReturn(10L);
+        when(resultSet.getLong(4)).thenReturn(20L);
+        when(resultSet.getLong(5)).thenReturn(7L);
+        when(resultSet.getString(6)).thenReturn("test");
+        when(resultSet.getBigDecimal(7)).thenReturn(new BigDecimal("100.50"));
+        when(resultSet.getString(8)).thenReturn("COMPLETED", "REJECTED");
+        when(resultSet.getString(9)).thenReturn(null, "Превышен \"лимит\", повторите позже");
+        doAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(resultSet);
+            handler.processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void exportTransfers_shouldWriteCsvWithHeaderAndQuotedText() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = transferExportService.exportTransfers(null, null, TransferExportFormat.CSV, output);
+
+        assertThat(rows).isEqualTo(2);
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("""
+                id,created_at,from_card_id,to_card_id,owner_id,owner_username,amount,status,reject_reason
+                1,2025-08-15T14:30,10,20,7,test,100.50,COMPLETED,
+                2,2025-08-15T14:30,10,20,7,test,100.50,REJECTED,"Превышен ""лимит"", повторите позже"
+                """);
+    }
+
+    @Test
+    void exportTransfers_shouldWriteOneJsonObjectPerLine() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        transferExportService.exportTransfers(null, null, TransferExportFormat.NDJSON, output);
+
+        assertThat(output.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "{\"id\":1,\"createdAt\":\"2025-08-15T14:30\",\"fromCardId\":10,\"toCardId\":20,\"ownerId\":7,"
+                        + "\"ownerUsername\":\"test\",\"amount\":100.50,\"transferStatus\":\"COMPLETED\"}",
+                "{\"id\":2,\"createdAt\":\"2025-08-15T14:30\",\"fromCardId\":10,\"toCardId\":20,\"ownerId\":7,"
+                        + "\"ownerUsername\":\"test\",\"amount\":100.50,\"transferStatus\":\"REJECTED\","
+                        + "\"rejectReason\":\"Превышен \\\"лимит\\\", повторите позже\"}");
+    }
+
+    @Test
+    void exportTransfers_shouldUseForwardOnlyCursorWithPeriodFilter() throws Exception {
+        LocalDateTime from = CREATED_AT.minusDays(1);
+        LocalDateTime to = CREATED_AT.plusDays(1);
+        transferExportService.exportTransfers(from, to, TransferExportFormat.CSV, new ByteArrayOutputStream());
+
+        Connection connection = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY)))
+                .thenReturn(ps);
+        statements.get(0).createPreparedStatement(connection);
+
+        verify(connection).prepareStatement(
+                argThat(sql -> sql.contains("where t.created_at >= ? and t.created_at < ? order by t.created_at, t.id")),
+                eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+        verify(ps).setFetchSize(500);
+        verify(ps).setTimestamp(1, Timestamp.valueOf(from));
+        verify(ps).setTimestamp(2, Timestamp.valueOf(to));
+    }
+}
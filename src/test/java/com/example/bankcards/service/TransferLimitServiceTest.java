@@ -0,0 +1,153 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.service.impl.TransferLimitServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferLimitServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private TransferLimitServiceImpl transferLimitService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        transferLimitService = new TransferLimitServiceImpl(jdbcTemplate);
+        ReflectionTestUtils.setField(transferLimitService, "enabled", true);
+        ReflectionTestUtils.setField(transferLimitService, "stripes", 4);
+        ReflectionTestUtils.setField(transferLimitService, "userDailyPerUser", BigDecimal.valueOf(1000));
+        ReflectionTestUtils.setField(transferLimitService, "userDailyPerCard", BigDecimal.valueOf(600));
+        ReflectionTestUtils.setField(transferLimitService, "adminDailyPerUser", BigDecimal.valueOf(5000));
+        ReflectionTestUtils.setField(transferLimitService, "adminDailyPerCard", BigDecimal.valueOf(3000));
+        user = User.builder().id(1L).username("test").role(Role.USER).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void reserve_shouldEnforcePerCardAndPerUserLimits() {
+        transferLimitService.init();
+
+        transferLimitService.reserve(user, 10L, BigDecimal.valueOf(600));
+        BadRequestException cardLimit = assertThrows(BadRequestException.class,
+                () -> transferLimitService.reserve(user, 10L, new BigDecimal("0.01")));
+        transferLimitService.reserve(user, 11L, BigDecimal.valueOf(400));
+        BadRequestException userLimit = assertThrows(BadRequestException.class,
+                () -> transferLimitService.reserve(user, 12L, new BigDecimal("0.01")));
+
+        assertThat(cardLimit.getMessage()).isEqualTo("Превышен суточный лимит переводов по карте: 600");
+        assertThat(userLimit.getMessage()).isEqualTo("Превышен суточный лимит переводов пользователя: 1000");
+    }
+
+    @Test
+    void reserve_shouldNotCountUserAmountWhenCardLimitRejects() {
+        transferLimitService.init();
+        transferLimitService.reserve(user, 10L, BigDecimal.valueOf(600));
+
+        assertThrows(BadRequestException.class, () -> transferLimitService.reserve(user, 10L, BigDecimal.valueOf(100)));
+
+        transferLimitService.reserve(user, 11L, BigDecimal.valueOf(400));
+    }
+
+    @Test
+    void reserve_shouldApplyAdminLimits() {
+        transferLimitService.init();
+        user.setRole(Role.ADMIN);
+
+        transferLimitService.reserve(user, 10L, BigDecimal.valueOf(3000));
+        assertThrows(BadRequestException.class, () -> transferLimitService.reserve(user, 10L, BigDecimal.ONE));
+    }
+
+    @Test
+    void release_shouldReturnAmountOnceAndOnRollback() {
+        transferLimitService.init();
+        TransactionSynchronizationManager.initSynchronization();
+
+        TransferLimitReservation reservation = transferLimitService.reserve(user, 10L, BigDecimal.valueOf(600));
+        transferLimitService.release(reservation);
+        transferLimitService.release(reservation);
+        transferLimitService.reserve(user, 10L, BigDecimal.valueOf(600));
+        assertThrows(BadRequestException.class, () -> transferLimitService.reserve(user, 10L, BigDecimal.ONE));
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        transferLimitService.reserve(user, 10L, BigDecimal.valueOf(600));
+    }
+
+    @Test
+    void confirm_shouldKeepAmountAfterRollback() {
+        transferLimitService.init();
+        TransactionSynchronizationManager.initSynchronization();
+
+        TransferLimitReservation reservation = transferLimitService.reserve(user, 10L, BigDecimal.valueOf(600));
+        transferLimitService.confirm(reservation);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        transferLimitService.release(reservation);
+
+        assertThrows(BadRequestException.class, () -> transferLimitService.reserve(user, 10L, BigDecimal.ONE));
+    }
+
+    @Test
+    void reconcile_shouldLoadTransfersOfLastDayFromDatabase() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getTimestamp("bucket")).thenReturn(Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS)));
+        when(rs.getBigDecimal("amount")).thenReturn(BigDecimal.valueOf(550));
+        when(rs.getLong("owner_id")).thenReturn(1L);
+        when(rs.getLong("from_card_id")).thenReturn(10L);
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        transferLimitService.init();
+
+        assertThrows(BadRequestException.class, () -> transferLimitService.reserve(user, 10L, BigDecimal.valueOf(51)));
+        transferLimitService.reserve(user, 10L, BigDecimal.valueOf(50));
+        assertThrows(BadRequestException.class, () -> transferLimitService.reserve(user, 11L, BigDecimal.valueOf(401)));
+    }
+
+    @Test
+    void release_shouldIgnoreReservationFromPreviousReconcile() {
+        transferLimitService.init();
+        TransferLimitReservation reservation = transferLimitService.reserve(user, 10L, BigDecimal.valueOf(100));
+        transferLimitService.reconcile();
+        transferLimitService.reserve(user, 10L, BigDecimal.valueOf(600));
+
+        transferLimitService.release(reservation);
+
+        assertThrows(BadRequestException.class, () -> transferLimitService.reserve(user, 10L, BigDecimal.ONE));
+    }
+}
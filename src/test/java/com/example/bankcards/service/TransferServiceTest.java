@@ -1,34 +1,58 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.CreateTransferRequest;
+import com.example.bankcards.dto.TransferBatchResult;
+import com.example.bankcards.dto.TransferCursorPageDto;
 import com.example.bankcards.dto.TransferDto;
+import com.example.bankcards.dto.projection.CardView;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerEntryType;
+import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.TransferStatus;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.AccessToResourceDeniedException;
 import com.example.bankcards.exception.BadRequestException;
 import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.IdempotencyKeyConflictException;
+import com.example.bankcards.exception.TransferNotFoundException;
 import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.ledger.JournalRecord;
+import com.example.bankcards.ledger.LedgerEngine;
+import com.example.bankcards.ledger.LedgerTransferResult;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
 import com.example.bankcards.repository.TransferRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.MyUserDetails;
 import com.example.bankcards.service.impl.TransferServiceImpl;
 import com.example.bankcards.util.TransferMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -36,8 +60,12 @@ import java.util.Optional;
 
 import static org.mockito.Mockito.when;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -55,6 +83,24 @@ public class TransferServiceTest {
     @Mock
     private TransferMapper transferMapper;
 
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Mock
+    private RowCountEstimateService rowCountEstimateService;
+
+    @Mock
+    private TransferLimitService transferLimitService;
+
+    @Mock
+    private ObjectProvider<LedgerEngine> ledgerEngineProvider;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private TransferServiceImpl transferService;
 
@@ -65,6 +111,8 @@ public class TransferServiceTest {
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(transferService, "maxTransferAmount", BigDecimal.valueOf(250000));
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.PESSIMISTIC);
+        ReflectionTestUtils.setField(transferService, "transferIdBlockSize", 1);
 
         user = User.builder().id(1L).username("test").build();
 
@@ -85,7 +133,7 @@ public class TransferServiceTest {
                 .build();
 
         SecurityContextHolder.getContext().setAuthentication(
-                new UsernamePasswordAuthenticationToken("test", null)
+                new UsernamePasswordAuthenticationToken(new MyUserDetails(user), null)
         );
     }
 
@@ -97,12 +145,11 @@ public class TransferServiceTest {
                 .toCardId(toCard.getId())
                 .build();
 
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(cardRepository.findById(fromCard.getId())).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(toCard.getId())).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(fromCard.getId())).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCard.getId())).thenReturn(Optional.of(toCard));
         when(transferMapper.toTransferDto(any(Transfer.class))).thenReturn(TransferDto.builder().amount(BigDecimal.valueOf(350)).build());
 
-        TransferDto result = transferService.createTransfer(request);
+        TransferDto result = transferService.createTransfer(request, null);
 
         assertThat(result).isNotNull();
         assertThat(result.getAmount()).isEqualTo(BigDecimal.valueOf(350));
@@ -113,41 +160,278 @@ public class TransferServiceTest {
     }
 
     @Test
-    void createTransfer_shouldThrowUserNotFoundException() {
-        when(userRepository.findByUsername("test")).thenReturn(Optional.empty());
+    void createTransfer_shouldAppendDebitAndCreditLedgerEntries() {
+        CreateTransferRequest request = CreateTransferRequest.builder()
+                .amount(BigDecimal.valueOf(500))
+                .fromCardId(fromCard.getId())
+                .toCardId(toCard.getId())
+                .build();
+
+        when(cardRepository.findByIdForUpdate(fromCard.getId())).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCard.getId())).thenReturn(Optional.of(toCard));
+
+        transferService.createTransfer(request, null);
+
+        ArgumentCaptor<List<LedgerEntry>> captor = ArgumentCaptor.captor();
+        verify(ledgerEntryRepository).insertAll(captor.capture());
+        assertThat(captor.getValue())
+                .extracting(entry -> entry.getCard().getId(), LedgerEntry::getEntryType, LedgerEntry::getAmount, LedgerEntry::getBalanceAfter)
+                .containsExactly(
+                        tuple(1L, LedgerEntryType.DEBIT, BigDecimal.valueOf(500), BigDecimal.valueOf(3000)),
+                        tuple(2L, LedgerEntryType.CREDIT, BigDecimal.valueOf(500), BigDecimal.valueOf(5700)));
+    }
+
+    @Test
+    void createTransfer_shouldLockCardsInAscendingIdOrder() {
+        CreateTransferRequest request = CreateTransferRequest.builder()
+                .amount(BigDecimal.valueOf(500))
+                .fromCardId(toCard.getId())
+                .toCardId(fromCard.getId())
+                .build();
+
+        when(cardRepository.findByIdForUpdate(fromCard.getId())).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCard.getId())).thenReturn(Optional.of(toCard));
+
+        transferService.createTransfer(request, null);
+
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).setLockTimeout(anyString());
+        inOrder.verify(cardRepository).findByIdForUpdate(1L);
+        inOrder.verify(cardRepository).findByIdForUpdate(2L);
+        assertThat(fromCard.getBalance()).isEqualTo(BigDecimal.valueOf(4000));
+        assertThat(toCard.getBalance()).isEqualTo(BigDecimal.valueOf(4700));
+    }
+
+    @Test
+    void createTransfer_shouldReadCardsWithoutLocksInOptimisticMode() {
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.OPTIMISTIC);
+        CreateTransferRequest request = CreateTransferRequest.builder()
+                .amount(BigDecimal.valueOf(500))
+                .fromCardId(fromCard.getId())
+                .toCardId(toCard.getId())
+                .build();
+
+        when(cardRepository.findById(fromCard.getId())).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(toCard.getId())).thenReturn(Optional.of(toCard));
+
+        transferService.createTransfer(request, null);
+
+        assertThat(fromCard.getBalance()).isEqualTo(BigDecimal.valueOf(3000));
+        assertThat(toCard.getBalance()).isEqualTo(BigDecimal.valueOf(5700));
+        verify(cardRepository, never()).findByIdForUpdate(any());
+        verify(cardRepository, never()).setLockTimeout(anyString());
+        verify(cardRepository, times(2)).save(any(Card.class));
+    }
+
+    @Test
+    void createTransfer_shouldUseConditionalUpdatesInConditionalMode() {
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.CONDITIONAL);
+        CreateTransferRequest request = CreateTransferRequest.builder()
+                .amount(BigDecimal.valueOf(500))
+                .fromCardId(toCard.getId())
+                .toCardId(fromCard.getId())
+                .build();
+        CardView debited = mock(CardView.class);
+        CardView credited = mock(CardView.class);
+
+        when(cardRepository.creditIfAllowed(1L, 1L, BigDecimal.valueOf(500))).thenReturn(Optional.of(credited));
+        when(cardRepository.debitIfAllowed(2L, 1L, BigDecimal.valueOf(500))).thenReturn(Optional.of(debited));
+        when(transferMapper.toTransferDto(any(Transfer.class), eq(debited), eq(credited)))
+                .thenReturn(TransferDto.builder().amount(BigDecimal.valueOf(500)).build());
+
+        TransferDto result = transferService.createTransfer(request, null);
+
+        assertThat(result.getAmount()).isEqualTo(BigDecimal.valueOf(500));
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).creditIfAllowed(1L, 1L, BigDecimal.valueOf(500));
+        inOrder.verify(cardRepository).debitIfAllowed(2L, 1L, BigDecimal.valueOf(500));
+        verify(cardRepository, never()).findById(any());
+        verify(cardRepository, never()).save(any(Card.class));
+        verify(transferRepository).save(any(Transfer.class));
+    }
+
+    @Test
+    void submitTransfer_shouldApplyTransferInLedgerImmediately() {
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.LEDGER);
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        CardView debited = mock(CardView.class);
+        CardView credited = mock(CardView.class);
+
+        when(ledgerEngineProvider.getObject()).thenReturn(ledgerEngine);
+        when(transferRepository.allocateIds(1)).thenReturn(List.of(42L));
+        when(ledgerEngine.transfer(42L, 1L, 2L, 1L, BigDecimal.valueOf(500))).thenReturn(new LedgerTransferResult(
+                new JournalRecord(1L, 42L, 1L, 2L, 1L, 50000L, System.currentTimeMillis()), debited, credited));
+        when(transferMapper.toTransferDto(any(Transfer.class), eq(debited), eq(credited)))
+                .thenReturn(TransferDto.builder().amount(BigDecimal.valueOf(500)).transferStatus(TransferStatus.COMPLETED).build());
+
+        TransferDto result = transferService.submitTransfer(new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(500)), null);
+
+        assertThat(result.getTransferStatus()).isEqualTo(TransferStatus.COMPLETED);
+        verify(transferMapper).toTransferDto(argThat((Transfer transfer) -> transfer.getId() == 42L), eq(debited), eq(credited));
+        verify(transferRepository, never()).save(any(Transfer.class));
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void createTransfer_shouldClaimIdempotencyKeyBeforeLedgerTransfer() {
+        CreateTransferRequest request = new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(500));
+        LedgerEngine ledgerEngine = ledgerEngineWithTransfer(request);
+        TransferLimitReservation reservation = new TransferLimitReservation(1L, 1L, 50000L, 0L, 0L);
+        TransferDto transferDto = TransferDto.builder().id(42L).build();
+        when(transferLimitService.reserve(user, 1L, BigDecimal.valueOf(500))).thenReturn(reservation);
+        when(transferMapper.toTransferDto(any(Transfer.class), any(), any())).thenReturn(transferDto);
+
+        TransferDto result = transferService.createTransfer(request, "key-1");
+
+        assertThat(result).isSameAs(transferDto);
+        InOrder inOrder = inOrder(idempotencyService, ledgerEngine, transferLimitService);
+        inOrder.verify(idempotencyService).claimTransfer(1L, "key-1", request);
+        inOrder.verify(ledgerEngine).transfer(42L, 1L, 2L, 1L, BigDecimal.valueOf(500));
+        inOrder.verify(transferLimitService).confirm(reservation);
+        inOrder.verify(idempotencyService).completeTransfer(1L, "key-1", transferDto);
+        verify(idempotencyService, never()).saveTransfer(any(), any(), any(), any());
+    }
+
+    @Test
+    void createTransfer_shouldTakeLedgerTransferIdsFromOneBlockWithoutTransaction() {
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.LEDGER);
+        ReflectionTestUtils.setField(transferService, "transferIdBlockSize", 2);
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngineProvider.getObject()).thenReturn(ledgerEngine);
+        when(transferRepository.allocateIds(2)).thenReturn(List.of(42L, 43L));
+        when(ledgerEngine.transfer(anyLong(), eq(1L), eq(2L), eq(1L), any())).thenAnswer(invocation -> new LedgerTransferResult(
+                new JournalRecord(1L, invocation.getArgument(0), 1L, 2L, 1L, 100L, System.currentTimeMillis()), null, null));
+        CreateTransferRequest request = new CreateTransferRequest(1L, 2L, BigDecimal.ONE);
+
+        transferService.createTransfer(request, null);
+        transferService.createTransfer(request, null);
+
+        verify(transferRepository, times(1)).allocateIds(anyInt());
+        verify(ledgerEngine).transfer(42L, 1L, 2L, 1L, BigDecimal.ONE);
+        verify(ledgerEngine).transfer(43L, 1L, 2L, 1L, BigDecimal.ONE);
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    void createTransfer_shouldNotCallLedgerWhenIdempotencyKeyIsAlreadyClaimed() {
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.LEDGER);
+        CreateTransferRequest request = new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(500));
+        when(transferRepository.allocateIds(1)).thenReturn(List.of(42L));
+        doThrow(new IdempotencyKeyConflictException("Перевод с таким ключом идемпотентности уже выполняется"))
+                .when(idempotencyService).claimTransfer(1L, "key-1", request);
+
+        assertThrows(IdempotencyKeyConflictException.class, () -> transferService.createTransfer(request, "key-1"));
+
+        verifyNoInteractions(ledgerEngineProvider);
+        verify(transferLimitService, never()).confirm(any());
+    }
+
+    @Test
+    void createTransfer_shouldReleaseClaimedKeyWhenLedgerRejectsTransfer() {
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.LEDGER);
+        CreateTransferRequest request = new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(500));
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngineProvider.getObject()).thenReturn(ledgerEngine);
+        when(transferRepository.allocateIds(1)).thenReturn(List.of(42L));
+        when(ledgerEngine.transfer(42L, 1L, 2L, 1L, BigDecimal.valueOf(500)))
+                .thenThrow(new BadRequestException("Недостаточно средств для перевода"));
+
+        TransferLimitReservation reservation = new TransferLimitReservation(1L, 1L, 50000L, 0L, 0L);
+        when(transferLimitService.reserve(user, 1L, BigDecimal.valueOf(500))).thenReturn(reservation);
+
+        assertThrows(BadRequestException.class, () -> transferService.createTransfer(request, "key-1"));
+
+        verify(transferLimitService).release(reservation);
+        verify(idempotencyService).releaseTransfer(1L, "key-1");
+        verify(idempotencyService, never()).completeTransfer(any(), any(), any());
+        verify(transferLimitService, never()).confirm(any());
+    }
+
+    @Test
+    void createTransfer_shouldReturnLedgerTransferWhenStoringResponseFails() {
+        CreateTransferRequest request = new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(500));
+        ledgerEngineWithTransfer(request);
+        TransferDto transferDto = TransferDto.builder().id(42L).build();
+        when(transferMapper.toTransferDto(any(Transfer.class), any(), any())).thenReturn(transferDto);
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(idempotencyService).completeTransfer(1L, "key-1", transferDto);
+
+        TransferDto result = transferService.createTransfer(request, "key-1");
+
+        assertThat(result).isSameAs(transferDto);
+        verify(idempotencyService, never()).releaseTransfer(any(), any());
+    }
+
+    @Test
+    void createTransfer_shouldThrowBadRequestExceptionIfConditionalDebitFailsOnBalance() {
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.CONDITIONAL);
+
+        when(cardRepository.debitIfAllowed(1L, 1L, BigDecimal.valueOf(30000))).thenReturn(Optional.empty());
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+
+        assertThatThrownBy(() -> transferService.createTransfer(CreateTransferRequest.builder()
+                        .fromCardId(1L)
+                        .toCardId(2L)
+                        .amount(BigDecimal.valueOf(30000))
+                        .build(), null))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Недостаточно средств");
+        verify(transferRepository, never()).save(any(Transfer.class));
+    }
+
+    @Test
+    void createTransfer_shouldThrowAccessToResourceDeniedExceptionIfConditionalCreditFailsOnOwner() {
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.CONDITIONAL);
+        toCard.setOwner(User.builder().id(2L).username("test2").build());
+
+        when(cardRepository.debitIfAllowed(1L, 1L, BigDecimal.valueOf(400))).thenReturn(Optional.of(mock(CardView.class)));
+        when(cardRepository.creditIfAllowed(2L, 1L, BigDecimal.valueOf(400))).thenReturn(Optional.empty());
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+
+        assertThrows(AccessToResourceDeniedException.class,
+                () -> transferService.createTransfer(CreateTransferRequest.builder()
+                        .fromCardId(1L)
+                        .toCardId(2L)
+                        .amount(BigDecimal.valueOf(400))
+                        .build(), null));
+        verify(transferRepository, never()).save(any(Transfer.class));
+    }
+
+    @Test
+    void createTransfer_shouldThrowUserNotFoundExceptionWithoutAuthenticatedUser() {
+        SecurityContextHolder.clearContext();
 
         assertThrows(UserNotFoundException.class,
                 () -> transferService.createTransfer(CreateTransferRequest.builder()
                         .fromCardId(1L)
                         .toCardId(2L)
                         .amount(BigDecimal.valueOf(400))
-                        .build()));
+                        .build(), null));
     }
 
     @Test
     void createTransfer_shouldThrowCardNotFoundExceptionIfFromCardIdIsNull() {
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(cardRepository.findById(1L)).thenReturn(Optional.empty());
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.empty());
 
         assertThrows(CardNotFoundException.class,
                 () -> transferService.createTransfer(CreateTransferRequest.builder()
                         .fromCardId(1L)
+                        .toCardId(2L)
                         .amount(BigDecimal.valueOf(400))
-                        .build()));
+                        .build(), null));
     }
 
     @Test
     void createTransfer_shouldThrowCardNotFoundExceptionIfToCardIdIsNull() {
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.empty());
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.empty());
 
         assertThrows(CardNotFoundException.class,
                 () -> transferService.createTransfer(CreateTransferRequest.builder()
                         .fromCardId(1L)
                         .toCardId(2L)
                         .amount(BigDecimal.valueOf(400))
-                        .build()));
+                        .build(), null));
     }
 
     @Test
@@ -155,60 +439,284 @@ public class TransferServiceTest {
         User other = User.builder().id(2L).username("test2").build();
         toCard.setOwner(other);
 
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         assertThrows(AccessToResourceDeniedException.class,
                 () -> transferService.createTransfer(CreateTransferRequest.builder()
                         .fromCardId(1L)
                         .toCardId(2L)
                         .amount(BigDecimal.valueOf(400))
-                        .build()));
+                        .build(), null));
     }
 
     @Test
     void createTransfer_shouldThrowBadRequestExceptionIfAmountIsMoreThanMax() {
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         assertThrows(BadRequestException.class,
                 () -> transferService.createTransfer(CreateTransferRequest.builder()
                         .fromCardId(1L)
                         .toCardId(2L)
                         .amount(BigDecimal.valueOf(300000))
-                        .build()));
+                        .build(), null));
     }
 
     @Test
     void createTransfer_shouldThrowBadRequestExceptionIfAmountIsMoreThanBalance() {
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         assertThrows(BadRequestException.class,
                 () -> transferService.createTransfer(CreateTransferRequest.builder()
                         .fromCardId(1L)
                         .toCardId(2L)
                         .amount(BigDecimal.valueOf(30000))
-                        .build()));
+                        .build(), null));
     }
 
     @Test
     void createTransfer_shouldThrowBadRequestExceptionIfCardIsBlocked() {
         toCard.setCardStatus(CardStatus.BLOCKED);
 
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toCard));
 
         assertThrows(BadRequestException.class,
                 () -> transferService.createTransfer(CreateTransferRequest.builder()
                         .fromCardId(1L)
                         .toCardId(2L)
                         .amount(BigDecimal.valueOf(300))
-                        .build()));
+                        .build(), null));
+    }
+
+    @Test
+    void createTransfer_shouldReturnStoredTransferForRepeatedIdempotencyKey() {
+        CreateTransferRequest request = CreateTransferRequest.builder()
+                .amount(BigDecimal.valueOf(500))
+                .fromCardId(fromCard.getId())
+                .toCardId(toCard.getId())
+                .build();
+        TransferDto stored = TransferDto.builder().amount(BigDecimal.valueOf(500)).build();
+
+        when(idempotencyService.findTransfer(1L, "key-1", request)).thenReturn(Optional.of(stored));
+
+        TransferDto result = transferService.createTransfer(request, "key-1");
+
+        assertThat(result).isSameAs(stored);
+        verifyNoInteractions(cardRepository, transferRepository);
+        verify(idempotencyService, never()).saveTransfer(any(), any(), any(), any());
+    }
+
+    @Test
+    void createTransfer_shouldStoreResultForNewIdempotencyKey() {
+        CreateTransferRequest request = CreateTransferRequest.builder()
+                .amount(BigDecimal.valueOf(500))
+                .fromCardId(fromCard.getId())
+                .toCardId(toCard.getId())
+                .build();
+        TransferDto transferDto = TransferDto.builder().amount(BigDecimal.valueOf(500)).build();
+
+        when(idempotencyService.findTransfer(1L, "key-1", request)).thenReturn(Optional.empty());
+        when(cardRepository.findByIdForUpdate(fromCard.getId())).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdForUpdate(toCard.getId())).thenReturn(Optional.of(toCard));
+        when(transferMapper.toTransferDto(any(Transfer.class))).thenReturn(transferDto);
+
+        transferService.createTransfer(request, "key-1");
+
+        verify(idempotencyService).saveTransfer(1L, "key-1", request, transferDto);
+    }
+
+    @Test
+    void createTransfers_shouldApplyChunkOnLockedCardsAndInsertInOneBatch() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(cardRepository.findAllByIdForUpdate(any())).thenReturn(List.of(fromCard, toCard));
+        doAnswer(invocation -> {
+            List<Transfer> transfers = invocation.getArgument(0);
+            for (int i = 0; i < transfers.size(); i++) {
+                transfers.get(i).setId(100L + i);
+            }
+            return null;
+        }).when(transferRepository).insertAll(anyList());
+        when(transferMapper.toTransferDto(any(Transfer.class)))
+                .thenAnswer(invocation -> TransferDto.builder().id(invocation.<Transfer>getArgument(0).getId()).build());
+
+        List<TransferBatchResult> results = transferService.createTransfers(List.of(
+                new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(3000)),
+                new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(1000)),
+                new CreateTransferRequest(2L, 1L, BigDecimal.valueOf(200))), "test");
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getTransfer().getId()).isEqualTo(100L);
+        assertThat(results.get(1).getError()).isEqualTo("Недостаточно средств для перевода");
+        assertThat(results.get(2).getTransfer().getId()).isEqualTo(101L);
+        assertThat(fromCard.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(700));
+        verify(cardRepository).findAllByIdForUpdate(argThat(ids -> List.copyOf(ids).equals(List.of(1L, 2L))));
+        verify(transferRepository).insertAll(argThat(transfers -> transfers.size() == 2));
+        verify(transferRepository, never()).save(any(Transfer.class));
+    }
+
+    @Test
+    void createTransfer_shouldRejectTransferOverDailyLimitBeforeTouchingCards() {
+        CreateTransferRequest request = new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(500));
+        when(transferLimitService.reserve(user, 1L, BigDecimal.valueOf(500)))
+                .thenThrow(new BadRequestException("Превышен суточный лимит переводов пользователя: 1000"));
+
+        assertThrows(BadRequestException.class, () -> transferService.createTransfer(request, null));
+
+        verifyNoInteractions(cardRepository, transferRepository, ledgerEntryRepository);
+    }
+
+    @Test
+    void createTransfers_shouldPassPreallocatedIdsToLedger() {
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.LEDGER);
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(ledgerEngineProvider.getObject()).thenReturn(ledgerEngine);
+        when(transferRepository.allocateIds(2)).thenReturn(List.of(7L, 8L));
+        when(ledgerEngine.transfer(eq(7L), eq(1L), eq(2L), eq(1L), any())).thenReturn(new LedgerTransferResult(
+                new JournalRecord(1L, 7L, 1L, 2L, 1L, 10000L, System.currentTimeMillis()), null, null));
+        when(ledgerEngine.transfer(eq(8L), eq(2L), eq(1L), eq(1L), any())).thenReturn(new LedgerTransferResult(
+                new JournalRecord(2L, 8L, 2L, 1L, 1L, 5000L, System.currentTimeMillis()), null, null));
+        when(transferMapper.toTransferDto(any(Transfer.class), any(), any()))
+                .thenAnswer(invocation -> TransferDto.builder().id(invocation.<Transfer>getArgument(0).getId()).build());
+
+        List<TransferBatchResult> results = transferService.createTransfers(List.of(
+                new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(100)),
+                new CreateTransferRequest(2L, 1L, BigDecimal.valueOf(50))), "test");
+
+        assertThat(results).extracting(result -> result.getTransfer().getId()).containsExactly(7L, 8L);
+    }
+
+    @Test
+    void createTransfers_shouldReportLedgerTransfersDoneBeforeUnexpectedFailure() {
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.LEDGER);
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(ledgerEngineProvider.getObject()).thenReturn(ledgerEngine);
+        when(transferRepository.allocateIds(3)).thenReturn(List.of(7L, 8L, 9L));
+        when(ledgerEngine.transfer(eq(7L), eq(1L), eq(2L), eq(1L), any())).thenReturn(new LedgerTransferResult(
+                new JournalRecord(1L, 7L, 1L, 2L, 1L, 10000L, System.currentTimeMillis()), null, null));
+        when(ledgerEngine.transfer(eq(8L), eq(2L), eq(1L), eq(1L), any()))
+                .thenThrow(new UncheckedIOException(new IOException("disk full")));
+        when(transferMapper.toTransferDto(any(Transfer.class), any(), any()))
+                .thenAnswer(invocation -> TransferDto.builder().id(invocation.<Transfer>getArgument(0).getId()).build());
+
+        List<TransferBatchResult> results = transferService.createTransfers(List.of(
+                new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(100)),
+                new CreateTransferRequest(2L, 1L, BigDecimal.valueOf(50)),
+                new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(10))), "test");
+
+        assertThat(results.get(0).getTransfer().getId()).isEqualTo(7L);
+        assertThat(results.subList(1, 3)).extracting(TransferBatchResult::getError)
+                .containsOnly("Перевод не выполнен, повторите попытку позже");
+        verify(ledgerEngine, times(2)).transfer(anyLong(), anyLong(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void createTransfers_shouldReleaseLimitOfRejectedLine() {
+        TransferLimitReservation first = new TransferLimitReservation(1L, 1L, 300_000, 0, 0);
+        TransferLimitReservation second = new TransferLimitReservation(1L, 1L, 400_000, 0, 0);
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(cardRepository.findAllByIdForUpdate(any())).thenReturn(List.of(fromCard, toCard));
+        when(transferMapper.toTransferDto(any(Transfer.class))).thenReturn(TransferDto.builder().build());
+        when(transferLimitService.reserve(user, 1L, BigDecimal.valueOf(3000))).thenReturn(first);
+        when(transferLimitService.reserve(user, 1L, BigDecimal.valueOf(4000))).thenReturn(second);
+        when(transferLimitService.reserve(user, 2L, BigDecimal.valueOf(100)))
+                .thenThrow(new BadRequestException("Превышен суточный лимит переводов по карте: 1000"));
+
+        List<TransferBatchResult> results = transferService.createTransfers(List.of(
+                new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(3000)),
+                new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(4000)),
+                new CreateTransferRequest(2L, 1L, BigDecimal.valueOf(100))), "test");
+
+        assertThat(results.get(0).getTransfer()).isNotNull();
+        assertThat(results.get(1).getError()).isEqualTo("Недостаточно средств для перевода");
+        assertThat(results.get(2).getError()).isEqualTo("Превышен суточный лимит переводов по карте: 1000");
+        verify(transferLimitService).release(second);
+        verify(transferLimitService, never()).release(first);
+        assertThat(toCard.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(8200));
+    }
+
+    @Test
+    void createTransfers_shouldReportMissingCardWithoutInsert() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(cardRepository.findAllByIdForUpdate(any())).thenReturn(List.of(fromCard));
+
+        List<TransferBatchResult> results = transferService.createTransfers(List.of(
+                new CreateTransferRequest(1L, 3L, BigDecimal.valueOf(100))), "test");
+
+        assertThat(results.get(0).getError()).isEqualTo("Карта получателя не найдена");
+        assertThat(fromCard.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(3500));
+        verify(transferRepository, never()).insertAll(any());
+    }
+
+    @Test
+    void submitTransfer_shouldSaveInProgressTransferWithoutChangingBalances() {
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+        when(transferMapper.toTransferDto(any(Transfer.class))).thenReturn(TransferDto.builder().build());
+
+        transferService.submitTransfer(new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(500)), null);
+
+        verify(transferRepository).save(argThat(transfer -> transfer.getTransferStatus() == TransferStatus.IN_PROGRESS));
+        assertThat(fromCard.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(3500));
+        verify(cardRepository, never()).findByIdForUpdate(any());
+    }
+
+    @Test
+    void submitTransfer_shouldThrowAccessToResourceDeniedExceptionForForeignCard() {
+        toCard.setOwner(User.builder().id(2L).username("test2").build());
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(toCard));
+
+        assertThrows(AccessToResourceDeniedException.class,
+                () -> transferService.submitTransfer(new CreateTransferRequest(1L, 2L, BigDecimal.valueOf(500)), null));
+        verify(transferRepository, never()).save(any(Transfer.class));
+    }
+
+    @Test
+    void settlePendingTransfers_shouldCompleteOrRejectClaimedTransfers() {
+        Transfer affordable = Transfer.builder().id(10L).fromCard(fromCard).toCard(toCard).owner(user)
+                .amount(BigDecimal.valueOf(3000)).transferStatus(TransferStatus.IN_PROGRESS).build();
+        Transfer unaffordable = Transfer.builder().id(11L).fromCard(fromCard).toCard(toCard).owner(user)
+                .amount(BigDecimal.valueOf(1000)).transferStatus(TransferStatus.IN_PROGRESS).build();
+        when(transferRepository.findInProgressForUpdate(100)).thenReturn(List.of(affordable, unaffordable));
+        when(cardRepository.findAllByIdForUpdate(any())).thenReturn(List.of(fromCard, toCard));
+
+        int settled = transferService.settlePendingTransfers(100);
+
+        assertThat(settled).isEqualTo(2);
+        assertThat(affordable.getTransferStatus()).isEqualTo(TransferStatus.COMPLETED);
+        assertThat(unaffordable.getTransferStatus()).isEqualTo(TransferStatus.REJECTED);
+        assertThat(unaffordable.getRejectReason()).isEqualTo("Недостаточно средств для перевода");
+        assertThat(fromCard.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(500));
+        assertThat(toCard.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(8200));
+    }
+
+    @Test
+    void settlePendingTransfers_shouldNotLockCardsWhenQueueIsEmpty() {
+        when(transferRepository.findInProgressForUpdate(100)).thenReturn(List.of());
+
+        assertThat(transferService.settlePendingTransfers(100)).isZero();
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void getTransfer_shouldThrowAccessToResourceDeniedExceptionForForeignTransfer() {
+        user.setRole(Role.USER);
+        Transfer transfer = Transfer.builder().id(10L).owner(User.builder().id(2L).build()).build();
+        when(transferRepository.findById(10L)).thenReturn(Optional.of(transfer));
+
+        assertThrows(AccessToResourceDeniedException.class, () -> transferService.getTransfer(10L));
+    }
+
+    @Test
+    void getTransfer_shouldThrowTransferNotFoundException() {
+        when(transferRepository.findById(10L)).thenReturn(Optional.empty());
+
+        assertThrows(TransferNotFoundException.class, () -> transferService.getTransfer(10L));
     }
 
     @Test
@@ -217,7 +725,7 @@ public class TransferServiceTest {
         Page<Transfer> page = new PageImpl<>(List.of(new Transfer()));
 
         when(transferRepository.findAll(pageable)).thenReturn(page);
-        when(transferMapper.toTransferDto(any(Transfer.class))).thenReturn(TransferDto.builder().build());
+        when(transferMapper.pageMapper()).thenReturn(transfer -> TransferDto.builder().build());
 
         Page<TransferDto> result = transferService.getAllTransfers(pageable);
 
@@ -230,22 +738,58 @@ public class TransferServiceTest {
         Pageable pageable = Pageable.ofSize(10);
         Page<Transfer> page = new PageImpl<>(List.of(new Transfer()));
 
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
-        when(transferRepository.findAllByOwner(user, pageable)).thenReturn(page);
-        when(transferMapper.toTransferDto(any(Transfer.class))).thenReturn(TransferDto.builder().build());
+        when(transferRepository.findAllByOwnerId(1L, pageable)).thenReturn(page);
+        when(transferMapper.pageMapper()).thenReturn(transfer -> TransferDto.builder().build());
 
         Page<TransferDto> result = transferService.getMyTransfers(pageable);
 
         assertThat(result.getTotalElements()).isEqualTo(1);
-        verify(transferRepository).findAllByOwner(user, pageable);
+        verify(transferRepository).findAllByOwnerId(1L, pageable);
     }
 
     @Test
-    void getMyTransfers_shouldThrowUserNotFoundException() {
+    void getMyTransfers_shouldThrowUserNotFoundExceptionWithoutAuthenticatedUser() {
         Pageable pageable = Pageable.ofSize(10);
-        when(userRepository.findByUsername("test")).thenReturn(Optional.empty());
+        SecurityContextHolder.clearContext();
 
         assertThrows(UserNotFoundException.class, () -> transferService.getMyTransfers(pageable));
     }
 
+    @Test
+    void getMyTransfers_shouldReturnCursorOfLastTransferWhenMoreRowsExist() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 8, 15, 14, 30);
+        Transfer newest = Transfer.builder().id(3L).createdAt(createdAt).build();
+        Transfer older = Transfer.builder().id(2L).createdAt(createdAt).build();
+        Transfer oldest = Transfer.builder().id(1L).createdAt(createdAt.minusSeconds(1)).build();
+
+        when(transferRepository.findLatestByOwnerId(1L, Limit.of(3))).thenReturn(List.of(newest, older, oldest));
+        when(transferRepository.findLatestByOwnerIdBefore(1L, createdAt, 2L, Limit.of(3))).thenReturn(List.of(oldest));
+        when(transferMapper.pageMapper()).thenReturn(transfer -> TransferDto.builder().id(transfer.getId()).build());
+
+        TransferCursorPageDto firstPage = transferService.getMyTransfers(null, 2);
+        TransferCursorPageDto lastPage = transferService.getMyTransfers(firstPage.getNextCursor(), 2);
+
+        assertThat(firstPage.getTransfers()).extracting(TransferDto::getId).containsExactly(3L, 2L);
+        assertThat(lastPage.getTransfers()).extracting(TransferDto::getId).containsExactly(1L);
+        assertThat(lastPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    void getAllTransfers_shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> transferService.getAllTransfers("not-a-cursor", 20))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Некорректный курсор");
+        verifyNoInteractions(transferRepository);
+    }
+
+    private LedgerEngine ledgerEngineWithTransfer(CreateTransferRequest request) {
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", TransferConcurrencyMode.LEDGER);
+        LedgerEngine ledgerEngine = mock(LedgerEngine.class);
+        when(ledgerEngineProvider.getObject()).thenReturn(ledgerEngine);
+        when(transferRepository.allocateIds(1)).thenReturn(List.of(42L));
+        when(ledgerEngine.transfer(42L, request.getFromCardId(), request.getToCardId(), 1L, request.getAmount()))
+                .thenReturn(new LedgerTransferResult(new JournalRecord(1L, 42L, request.getFromCardId(),
+                        request.getToCardId(), 1L, 50000L, System.currentTimeMillis()), null, null));
+        return ledgerEngine;
+    }
 }
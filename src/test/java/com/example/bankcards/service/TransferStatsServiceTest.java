@@ -0,0 +1,136 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferStatsBucketDto;
+import com.example.bankcards.dto.TransferStatsDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.AccessToResourceDeniedException;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRollupRepository;
+import com.example.bankcards.security.MyUserDetails;
+import com.example.bankcards.service.impl.TransferStatsServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferStatsServiceTest {
+
+    @Mock
+    private TransferRollupRepository transferRollupRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @InjectMocks
+    private TransferStatsServiceImpl transferStatsService;
+
+    private User user;
+    private TransferStatsBucketDto bucket;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(transferStatsService, "maxPeriodDays", 1830L);
+        user = User.builder().id(1L).username("test").role(Role.USER).build();
+        bucket = TransferStatsBucketDto.builder()
+                .period(LocalDate.of(2025, 8, 1))
+                .outgoingCount(2)
+                .outgoingAmount(BigDecimal.valueOf(300))
+                .incomingCount(2)
+                .incomingAmount(BigDecimal.valueOf(300))
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(new MyUserDetails(user), null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getStats_shouldReturnCurrentUserStatsForLastThirtyDaysByDefault() {
+        LocalDate today = LocalDate.now();
+        when(transferRollupRepository.findOwnerStats(1L, StatsGranularity.DAY, today.minusDays(29), today))
+                .thenReturn(List.of(bucket));
+
+        TransferStatsDto stats = transferStatsService.getStats(null, null, StatsGranularity.DAY, null, null);
+
+        assertThat(stats.getUserId()).isEqualTo(1L);
+        assertThat(stats.getCardId()).isNull();
+        assertThat(stats.getFrom()).isEqualTo(today.minusDays(29));
+        assertThat(stats.getBuckets()).containsExactly(bucket);
+    }
+
+    @Test
+    void getStats_shouldDefaultMonthlyPeriodToLastTwelveMonths() {
+        LocalDate to = LocalDate.of(2025, 8, 20);
+
+        TransferStatsDto stats = transferStatsService.getStats(null, null, StatsGranularity.MONTH, null, to);
+
+        assertThat(stats.getFrom()).isEqualTo(LocalDate.of(2024, 9, 1));
+        verify(transferRollupRepository).findOwnerStats(1L, StatsGranularity.MONTH, LocalDate.of(2024, 9, 1), to);
+    }
+
+    @Test
+    void getStats_shouldRejectOtherUserStatsForNonAdmin() {
+
+        assertThrows(AccessToResourceDeniedException.class,
+                () -> transferStatsService.getStats(2L, null, StatsGranularity.DAY, null, null));
+        verify(transferRollupRepository, never()).findOwnerStats(any(), any(), any(), any());
+    }
+
+    @Test
+    void getStats_shouldReturnCardStatsForAdmin() {
+        user.setRole(Role.ADMIN);
+        User owner = User.builder().id(2L).username("owner").role(Role.USER).build();
+        Card card = Card.builder().id(5L).owner(owner).build();
+        LocalDate from = LocalDate.of(2025, 8, 1);
+        LocalDate to = LocalDate.of(2025, 8, 31);
+        when(cardRepository.findById(5L)).thenReturn(Optional.of(card));
+        when(transferRollupRepository.findCardStats(5L, StatsGranularity.DAY, from, to)).thenReturn(List.of(bucket));
+
+        TransferStatsDto stats = transferStatsService.getStats(null, 5L, StatsGranularity.DAY, from, to);
+
+        assertThat(stats.getCardId()).isEqualTo(5L);
+        assertThat(stats.getBuckets()).containsExactly(bucket);
+    }
+
+    @Test
+    void getStats_shouldRejectForeignCardForUser() {
+        Card card = Card.builder().id(5L).owner(User.builder().id(2L).build()).build();
+        when(cardRepository.findById(5L)).thenReturn(Optional.of(card));
+
+        assertThrows(AccessToResourceDeniedException.class,
+                () -> transferStatsService.getStats(null, 5L, StatsGranularity.DAY, null, null));
+    }
+
+    @Test
+    void getStats_shouldRejectInvertedOrTooLongPeriod() {
+        LocalDate to = LocalDate.of(2025, 8, 1);
+
+        assertThrows(BadRequestException.class,
+                () -> transferStatsService.getStats(null, null, StatsGranularity.DAY, to.plusDays(1), to));
+        assertThrows(BadRequestException.class,
+                () -> transferStatsService.getStats(null, null, StatsGranularity.MONTH, to.minusYears(10), to));
+        verifyNoInteractions(transferRollupRepository);
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.SliceDto;
 import com.example.bankcards.dto.UserResponse;
+import com.example.bankcards.dto.UserSummaryDto;
 import com.example.bankcards.dto.UserUpdateDto;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.MyUserDetails;
+import com.example.bankcards.security.MyUserDetailsService;
+import com.example.bankcards.security.TokenVersionRegistry;
 import com.example.bankcards.service.impl.UserServiceImpl;
 import com.example.bankcards.util.UserMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,11 +22,14 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,7 +48,15 @@ public class UserServiceTest {
     @Mock
     private UserMapper userMapper;
     @Mock
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private PasswordEncoder passwordEncoder;
+    @Mock
+    private RowCountEstimateService rowCountEstimateService;
+    @Mock
+    private MyUserDetailsService myUserDetailsService;
+    @Mock
+    private TokenVersionRegistry tokenVersionRegistry;
+    @Mock
+    private RefreshTokenService refreshTokenService;
 
     @InjectMocks
     private UserServiceImpl userService;
@@ -61,29 +77,29 @@ public class UserServiceTest {
         userResponse = UserResponse.builder().id(1L).username("test").build();
 
         SecurityContextHolder.getContext().setAuthentication(
-                new UsernamePasswordAuthenticationToken("test", null)
+                new UsernamePasswordAuthenticationToken(new MyUserDetails(user), null)
         );
     }
 
     @Test
     void getMyUserInfo_shouldReturnUser() {
-        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         when(userMapper.toUserResponse(user)).thenReturn(userResponse);
 
         UserResponse result = userService.getMyUserInfo();
 
         assertThat(result).isEqualTo(userResponse);
-        verify(userRepository).findByUsername("test");
+        verify(userRepository).findById(1L);
         verify(userMapper).toUserResponse(user);
     }
 
     @Test
     void getMyUserInfo_shouldThrowUserNotFoundException() {
-        when(userRepository.findByUsername("test")).thenReturn(Optional.empty());
+        when(userRepository.findById(1L)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> userService.getMyUserInfo())
                 .isInstanceOf(UserNotFoundException.class)
-                .hasMessageContaining("Пользователь test не найден");
+                .hasMessageContaining("Пользователь с id - 1 не найден");
     }
 
     @Test
@@ -99,6 +115,37 @@ public class UserServiceTest {
         verify(userMapper).toUserResponse(user);
     }
 
+    @Test
+    void getAllUsersSlice_shouldNotCountAndAddEstimateOnRequest() {
+        Pageable pageable = PageRequest.of(0, 1);
+        when(userRepository.findAllAsSlice(pageable)).thenReturn(new SliceImpl<>(List.of(user), pageable, true));
+        when(userMapper.toUserResponse(user)).thenReturn(userResponse);
+        when(rowCountEstimateService.estimateTableRows("t_user")).thenReturn(1500L);
+
+        SliceDto<UserResponse> withEstimate = userService.getAllUsersSlice(pageable, true);
+        SliceDto<UserResponse> withoutEstimate = userService.getAllUsersSlice(pageable, false);
+
+        assertThat(withEstimate.getContent()).containsExactly(userResponse);
+        assertThat(withEstimate.isHasNext()).isTrue();
+        assertThat(withEstimate.getEstimatedTotal()).isEqualTo(1500L);
+        assertThat(withoutEstimate.getEstimatedTotal()).isNull();
+        verify(userRepository, never()).findAll(any(Pageable.class));
+        verify(userRepository, never()).count();
+        verify(rowCountEstimateService, times(1)).estimateTableRows("t_user");
+    }
+
+    @Test
+    void getUserSummaries_shouldReturnProjectionWithoutMappingCards() {
+        Pageable pageable = PageRequest.of(0, 20);
+        UserSummaryDto summary = new UserSummaryDto(1L, "test", Role.USER, 2, BigDecimal.valueOf(150));
+        when(userRepository.findAllSummaries(pageable)).thenReturn(new PageImpl<>(List.of(summary), pageable, 1));
+
+        Page<UserSummaryDto> result = userService.getUserSummaries(pageable);
+
+        assertThat(result.getContent()).containsExactly(summary);
+        verifyNoInteractions(userMapper);
+    }
+
     @Test
     void getUserById_shouldReturnUser() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
@@ -122,12 +169,13 @@ public class UserServiceTest {
 
     @Test
     void updateUser_shouldUpdateUser() {
+        String oldUsername = user.getUsername();
         UserUpdateDto dto = new UserUpdateDto();
         dto.setUsername("newUserTest");
         dto.setPassword("newPasswordTest");
         dto.setRole(Role.ADMIN);
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(bCryptPasswordEncoder.encode("newPasswordTest")).thenReturn("encodedPasswordTest");
+        when(passwordEncoder.encode("newPasswordTest")).thenReturn("encodedPasswordTest");
         when(userRepository.save(any(User.class))).thenReturn(user);
         when(userMapper.toUserResponse(user)).thenReturn(userResponse);
 
@@ -137,6 +185,10 @@ public class UserServiceTest {
         assertThat(user.getPassword()).isEqualTo("encodedPasswordTest");
         assertThat(user.getRole()).isEqualTo(Role.ADMIN);
         assertThat(result).isEqualTo(userResponse);
+        assertThat(user.getTokenVersion()).isEqualTo(1);
+        verify(myUserDetailsService).evict(oldUsername);
+        verify(tokenVersionRegistry).update(1L, 1);
+        verify(refreshTokenService).revokeAll(1L);
     }
 
     @Test
@@ -156,6 +208,9 @@ public class UserServiceTest {
         userService.deleteUser(1L);
 
         verify(userRepository).delete(user);
+        verify(myUserDetailsService).evict(user.getUsername());
+        verify(tokenVersionRegistry).revoke(1L);
+        verify(refreshTokenService).revokeAll(1L);
     }
 
     @Test
@@ -0,0 +1,51 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BloomFilterTest {
+
+    @Test
+    void mightContain_shouldNeverMissAddedKeys() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        String[] keys = new String[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = UUID.randomUUID().toString();
+            filter.put(keys[i]);
+        }
+
+        for (String key : keys) {
+            assertThat(filter.mightContain(key)).isTrue();
+        }
+    }
+
+    @Test
+    void mightContain_shouldKeepFalsePositivesNearConfiguredRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        // размер округляется вверх до степени двойки, поэтому фактическая доля не больше заданной
+        assertThat(falsePositives).isLessThan(1_500);
+    }
+
+    @Test
+    void constructor_shouldSizeFilterFromExpectedInsertions() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+
+        assertThat(filter.bitCount()).isEqualTo(1L << 20);
+        assertThat(filter.hashCount()).isEqualTo(7);
+        assertThat(filter.mightContain("missing")).isFalse();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExponentialLockoutTest {
+
+    private static final long BASE = 1_000;
+    private static final long MAX = 8_000;
+    private static final long FORGET = 100_000;
+
+    private final ExponentialLockout lockout = new ExponentialLockout(4, 100, 3, BASE, MAX, FORGET);
+
+    @Test
+    void recordFailure_shouldLockAfterMaxFailuresAndDoubleLockoutUpToMax() {
+        assertThat(lockout.recordFailure("key", 0)).isZero();
+        assertThat(lockout.recordFailure("key", 0)).isZero();
+        assertThat(lockout.lockedFor("key", 0)).isZero();
+
+        assertThat(lockout.recordFailure("key", 0)).isEqualTo(BASE);
+        assertThat(lockout.lockedFor("key", 400)).isEqualTo(600);
+        assertThat(lockout.lockedFor("key", BASE)).isZero();
+
+        assertThat(lockout.recordFailure("key", BASE)).isEqualTo(2 * BASE);
+        assertThat(lockout.recordFailure("key", 3 * BASE)).isEqualTo(4 * BASE);
+        assertThat(lockout.recordFailure("key", 7 * BASE)).isEqualTo(MAX);
+        assertThat(lockout.recordFailure("key", 15 * BASE)).isEqualTo(MAX);
+        assertThat(lockout.lockedFor("other", 15 * BASE)).isZero();
+    }
+
+    @Test
+    void reset_shouldClearFailures() {
+        lockout.recordFailure("key", 0);
+        lockout.recordFailure("key", 0);
+        lockout.reset("key");
+
+        assertThat(lockout.recordFailure("key", 0)).isZero();
+    }
+
+    @Test
+    void recordFailure_shouldForgetOldFailuresAfterLockoutEnds() {
+        lockout.recordFailure("key", 0);
+        lockout.recordFailure("key", 0);
+        lockout.recordFailure("key", 0);
+
+        assertThat(lockout.recordFailure("key", FORGET + BASE)).isZero();
+        assertThat(lockout.sweep(FORGET + BASE)).isEqualTo(1);
+        assertThat(lockout.sweep(2 * FORGET + BASE)).isZero();
+    }
+
+    @Test
+    void recordFailure_shouldEvictWeakestKeyWhenFullAndKeepCounting() {
+        // две полосы по 4 ключа
+        ExponentialLockout small = new ExponentialLockout(2, 8, 3, BASE, MAX, FORGET);
+        small.recordFailure("attacker", 0);
+        small.recordFailure("attacker", 0);
+        for (int i = 0; i < 1_000; i++) {
+            small.recordFailure("spray-" + i, i);
+        }
+
+        assertThat(small.sweep(1_000)).isLessThanOrEqualTo(8);
+        assertThat(small.recordFailure("attacker", 1_000)).isEqualTo(BASE);
+        assertThat(small.recordFailure("fresh", 1_000)).isZero();
+        assertThat(small.recordFailure("fresh", 1_000)).isZero();
+        assertThat(small.recordFailure("fresh", 1_000)).isEqualTo(BASE);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlidingWindowCounterTest {
+
+    private static final long BUCKET = 1_000;
+
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(4, 3, BUCKET);
+
+    @Test
+    void tryAdd_shouldRejectAmountOverLimitWithinWindow() {
+        assertThat(counter.tryAdd(1, 60, 100, 0)).isTrue();
+        assertThat(counter.tryAdd(1, 40, 100, BUCKET)).isTrue();
+        assertThat(counter.tryAdd(1, 1, 100, 2 * BUCKET)).isFalse();
+        assertThat(counter.tryAdd(2, 100, 100, 2 * BUCKET)).isTrue();
+    }
+
+    @Test
+    void sum_shouldDropBucketsThatLeftTheWindow() {
+        counter.tryAdd(1, 60, 100, 0);
+        counter.tryAdd(1, 40, 100, BUCKET);
+
+        assertThat(counter.sum(1, 2 * BUCKET + 999)).isEqualTo(100);
+        assertThat(counter.sum(1, 3 * BUCKET)).isEqualTo(40);
+        assertThat(counter.tryAdd(1, 60, 100, 3 * BUCKET)).isTrue();
+        assertThat(counter.sum(1, 4 * BUCKET)).isEqualTo(60);
+    }
+
+    @Test
+    void add_shouldSubtractFromOriginalBucketAndIgnoreEvictedOne() {
+        counter.tryAdd(1, 60, 100, 0);
+        counter.add(1, -60, 500);
+        assertThat(counter.sum(1, BUCKET)).isZero();
+
+        counter.tryAdd(1, 30, 100, 0);
+        counter.tryAdd(1, 50, 100, 3 * BUCKET);
+        counter.add(1, -30, 0);
+
+        assertThat(counter.sum(1, 3 * BUCKET)).isEqualTo(50);
+    }
+}